@@ -0,0 +1,274 @@
+package com.jpprade.jcgmtosvg.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes synthetic binary CGMs (ISO 8632-3, default precisions) for the benchmarks.
+ * <p>
+ * Every application structure of a drawing holds a name, a rectangular region hotspot, a polyline, a rectangle,
+ * a hatched polygon, a figure made of poly-beziers and a restricted text, so all the main paths of CGM4SVG are used.
+ */
+public final class CgmGenerator {
+
+	/**
+	 * The drawings used by the end to end benchmarks, sized by their number of application structures.
+	 */
+	public enum Size {
+		SMALL(10),
+		MEDIUM(1_000),
+		HUGE(20_000);
+
+		final int structures;
+
+		Size(int structures) {
+			this.structures = structures;
+		}
+	}
+
+	private static final int EXTENT = 30_000;
+
+	private static final int INTERIOR_STYLE_SOLID = 1;
+	private static final int INTERIOR_STYLE_HATCH = 3;
+
+	private static final int SDR_INTEGER = 6;
+	private static final int SDR_REAL = 12;
+	private static final int SDR_STRING = 13;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream out = new DataOutputStream(this.bytes);
+
+	private CgmGenerator() {
+	}
+
+	/**
+	 * @param size the number of application structures
+	 * @return a CGM drawing laid out as a grid of application structures
+	 */
+	static byte[] drawing(Size size) {
+		CgmGenerator generator = new CgmGenerator();
+		generator.begin();
+		int columns = (int) Math.ceil(Math.sqrt(size.structures));
+		int cell = EXTENT / columns;
+		for (int i = 0; i < size.structures; i++) {
+			generator.structure(i, (i % columns) * cell, (i / columns) * cell, cell);
+		}
+		return generator.end();
+	}
+
+	/**
+	 * @param beziers the number of POLYBEZIER elements in the figure
+	 * @return a CGM with a single closed figure, its poly-beziers are merged into one shape by CGM4SVG
+	 */
+	static byte[] figure(int beziers) {
+		CgmGenerator generator = new CgmGenerator();
+		generator.begin();
+		generator.command(0, 8, new Params());
+		double step = 2 * Math.PI / beziers;
+		for (int i = 0; i < beziers; i++) {
+			generator.bezier(EXTENT / 2, EXTENT / 2, EXTENT / 3, i * step, (i + 1) * step);
+		}
+		generator.command(0, 9, new Params());
+		return generator.end();
+	}
+
+	private void begin() {
+		// BEGIN METAFILE, METAFILE VERSION
+		command(0, 1, new Params().string("benchmark"));
+		command(1, 1, new Params().integer(4));
+		// BEGIN PICTURE, VDC EXTENT, BEGIN PICTURE BODY
+		command(0, 3, new Params().string("picture"));
+		command(2, 6, new Params().point(0, 0).point(EXTENT, EXTENT));
+		command(0, 4, new Params());
+	}
+
+	private byte[] end() {
+		// END PICTURE, END METAFILE
+		command(0, 5, new Params());
+		command(0, 2, new Params());
+		return this.bytes.toByteArray();
+	}
+
+	private void structure(int index, int x, int y, int cell) {
+		int unit = Math.max(cell / 16, 1);
+		String id = "APS" + index;
+
+		// BEGIN APPLICATION STRUCTURE, name and region attributes, BEGIN APPLICATION STRUCTURE BODY
+		command(0, 21, new Params().string(id).string("grobject").enumeration(1));
+		command(9, 1, new Params().string("name").sdr(new Params()
+				.index(SDR_STRING).integer(1).string("SDET" + index)));
+		command(9, 1, new Params().string("region").sdr(new Params()
+				.index(SDR_INTEGER).integer(1).integer(1)
+				.index(SDR_REAL).integer(4).real(x + unit).real(y + unit).real(x + 15d * unit).real(y + 15d * unit)));
+		command(0, 22, new Params());
+
+		// LINE COLOUR, LINE WIDTH, POLYLINE
+		command(5, 4, new Params().colourIndex(1 + index % 7));
+		command(5, 3, new Params().real(1 + index % 3));
+		Params polyline = new Params();
+		for (int i = 0; i < 8; i++) {
+			polyline.point(x + unit + i * unit, y + unit + (i % 2) * 3 * unit);
+		}
+		command(4, 1, polyline);
+
+		// RECTANGLE
+		command(4, 11, new Params().point(x + unit, y + 5 * unit).point(x + 7 * unit, y + 9 * unit));
+
+		// FILL COLOUR, EDGE VISIBILITY, INTERIOR STYLE, HATCH INDEX, POLYGON
+		command(5, 23, new Params().colourIndex(1 + (index + 3) % 7));
+		command(5, 30, new Params().enumeration(1));
+		command(5, 22, new Params().enumeration(INTERIOR_STYLE_HATCH));
+		command(5, 24, new Params().index(1 + index % 6));
+		command(4, 7, new Params()
+				.point(x + 9 * unit, y + 5 * unit).point(x + 15 * unit, y + 5 * unit)
+				.point(x + 15 * unit, y + 9 * unit).point(x + 9 * unit, y + 9 * unit));
+		command(5, 22, new Params().enumeration(INTERIOR_STYLE_SOLID));
+
+		// BEGIN FIGURE, POLYBEZIER * 3, END FIGURE
+		command(0, 8, new Params());
+		for (int i = 0; i < 3; i++) {
+			bezier(x + 4 * unit, y + 12 * unit, 2 * unit, i * 2 * Math.PI / 3, (i + 1) * 2 * Math.PI / 3);
+		}
+		command(0, 9, new Params());
+
+		// CHARACTER HEIGHT, RESTRICTED TEXT
+		command(5, 15, new Params().vdc(unit * 2));
+		command(4, 5, new Params().vdc(6 * unit).vdc(2 * unit).point(x + 9 * unit, y + 12 * unit).enumeration(1).string("TXT-" + index));
+
+		// END APPLICATION STRUCTURE
+		command(0, 23, new Params());
+	}
+
+	/**
+	 * A discontinuous POLYBEZIER with one curve approximating an arc.
+	 */
+	private void bezier(int cx, int cy, int radius, double from, double to) {
+		double k = 4d / 3 * Math.tan((to - from) / 4) * radius;
+		command(4, 26, new Params().index(1)
+				.point(cx + radius * Math.cos(from), cy + radius * Math.sin(from))
+				.point(cx + radius * Math.cos(from) - k * Math.sin(from), cy + radius * Math.sin(from) + k * Math.cos(from))
+				.point(cx + radius * Math.cos(to) + k * Math.sin(to), cy + radius * Math.sin(to) - k * Math.cos(to))
+				.point(cx + radius * Math.cos(to), cy + radius * Math.sin(to)));
+	}
+
+	/**
+	 * Writes a command with the short form header, or the long form split in partitions of even length.
+	 */
+	private void command(int elementClass, int elementId, Params params) {
+		byte[] data = params.toByteArray();
+		int header = (elementClass << 12) | (elementId << 5);
+		try {
+			if (data.length < 31) {
+				this.out.writeShort(header | data.length);
+				this.out.write(data);
+			} else {
+				this.out.writeShort(header | 31);
+				int offset = 0;
+				do {
+					int length = Math.min(data.length - offset, 32766);
+					boolean more = offset + length < data.length;
+					this.out.writeShort((more ? 0x8000 : 0) | length);
+					this.out.write(data, offset, length);
+					offset += length;
+				} while (offset < data.length);
+			}
+			if (data.length % 2 == 1) {
+				this.out.writeByte(0);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Parameter list encoded with the default precisions: 16 bit integers, indexes, enumerations and VDC,
+	 * 8 bit colour indexes and 32 bit fixed point reals.
+	 */
+	private static final class Params {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(this.bytes);
+
+		Params integer(int value) {
+			return int16(value);
+		}
+
+		Params index(int value) {
+			return int16(value);
+		}
+
+		Params enumeration(int value) {
+			return int16(value);
+		}
+
+		Params vdc(double value) {
+			return int16((int) Math.round(value));
+		}
+
+		Params point(double x, double y) {
+			return vdc(x).vdc(y);
+		}
+
+		Params colourIndex(int value) {
+			try {
+				this.out.writeByte(value);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this;
+		}
+
+		Params real(double value) {
+			int whole = (int) Math.floor(value);
+			return int16(whole).int16((int) ((value - whole) * 0x10000));
+		}
+
+		Params string(String value) {
+			byte[] chars = value.getBytes(StandardCharsets.ISO_8859_1);
+			return length(chars.length).raw(chars);
+		}
+
+		/**
+		 * A structured data record is written like a string: its length followed by the typed members.
+		 */
+		Params sdr(Params members) {
+			byte[] data = members.toByteArray();
+			return length(data.length).raw(data);
+		}
+
+		private Params length(int length) {
+			try {
+				if (length < 255) {
+					this.out.writeByte(length);
+				} else {
+					this.out.writeByte(255);
+					this.out.writeShort(length);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this;
+		}
+
+		private Params int16(int value) {
+			try {
+				this.out.writeShort(value);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return this;
+		}
+
+		private Params raw(byte[] data) {
+			this.bytes.write(data, 0, data.length);
+			return this;
+		}
+
+		byte[] toByteArray() {
+			return this.bytes.toByteArray();
+		}
+	}
+}
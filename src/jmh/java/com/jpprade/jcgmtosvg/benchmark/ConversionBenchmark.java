@@ -0,0 +1,109 @@
+package com.jpprade.jcgmtosvg.benchmark;
+
+import com.jpprade.jcgmtosvg.CGM4SVG;
+import com.jpprade.jcgmtosvg.ConversionOptions;
+import com.jpprade.jcgmtosvg.JcgmToSvg;
+import com.jpprade.jcgmtosvg.JcgmToSvgConverter;
+import com.jpprade.jcgmtosvg.SVGPainter;
+import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import com.jpprade.jcgmtosvg.extension.StreamingSVGGraphics2D;
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.batik.svggen.SVGGraphics2DIOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end conversion of a CGM, and the painting of an already parsed CGM on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	CgmGenerator.Size size;
+
+	@Param({"false", "true"})
+	boolean streamingOutput;
+
+	private byte[] cgm;
+
+	private Map<String, Object> options;
+
+	private CGM4SVG parsed;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.cgm = CgmGenerator.drawing(this.size);
+		this.options = new HashMap<>();
+		this.options.put(ConversionOptions.OPTION_HOTSPOT_ENABLED, true);
+		this.options.put(ConversionOptions.OPTION_STREAMING_OUTPUT, this.streamingOutput);
+		this.parsed = new CGM4SVG(new ByteArrayInputStream(this.cgm), new SVGPainter(), this.options);
+	}
+
+	@Benchmark
+	public void convert() throws SVGGraphics2DIOException {
+		JcgmToSvg.convert(new ByteArrayInputStream(this.cgm), OutputStream.nullOutputStream(), this.options);
+	}
+
+	/**
+	 * Same as {@link #convert()} reading the CGM from a buffer instead of a stream.
+	 */
+	@Benchmark
+	public void convertBuffer() throws SVGGraphics2DIOException {
+		new JcgmToSvgConverter(ConversionOptions.fromMap(this.options)).convert(ByteBuffer.wrap(this.cgm), OutputStream.nullOutputStream());
+	}
+
+	/**
+	 * Parses the CGM and extracts its hotspots without rendering the SVG, to compare with {@link #convert()}.
+	 */
+	@Benchmark
+	public Object extractHotSpots() {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(this.options)).extractHotSpots(ByteBuffer.wrap(this.cgm));
+	}
+
+	/**
+	 * Paints the parsed CGM with the back end selected by {@code streamingOutput}, without parsing nor serializing.
+	 */
+	@Benchmark
+	public Object paint() {
+		if (this.streamingOutput) {
+			StreamingSVGGraphics2D svgGenerator = new StreamingSVGGraphics2D(Writer.nullWriter(), 4);
+			svgGenerator.startDocument(this.parsed.getSize(), "", "");
+			JcgmToSvg.paint2(svgGenerator, this.parsed);
+			svgGenerator.endDocument();
+			return svgGenerator;
+		}
+		Document document = SVGDOMImplementation.getDOMImplementation()
+				.createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+		SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+		ctx.setPrecision(4);
+		SVGGraphics2D svgGenerator = new SVGGraphics2DHS(ctx, false);
+		JcgmToSvg.paint2(svgGenerator, this.parsed);
+		return svgGenerator.getRoot();
+	}
+}
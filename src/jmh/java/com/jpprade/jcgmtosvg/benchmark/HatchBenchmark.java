@@ -0,0 +1,74 @@
+package com.jpprade.jcgmtosvg.benchmark;
+
+import com.jpprade.jcgmtosvg.commands.ExtendedCommand;
+import com.jpprade.jcgmtosvg.extension.HatchPatternHandler;
+import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import net.sf.jcgm.core.HatchIndex.HatchType;
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hatching of a filled shape, every hatch line becomes an SVG element unless the hatch is written as a pattern.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class HatchBenchmark {
+
+	@Param({"HORIZONTAL_LINES", "POSITIVE_SLOPE_LINES", "POSITIVE_NEGATIVE_CROSSHATCH"})
+	HatchType hatchType;
+
+	/**
+	 * Diameter of the hatched shape in CGM units, the hatch step is 1.41.
+	 */
+	@Param({"50", "500"})
+	int diameter;
+
+	/**
+	 * Fills the shape with a shared pattern instead of drawing the lines.
+	 */
+	@Param({"false", "true"})
+	boolean patterns;
+
+	private final ExtendedCommand command = new ExtendedCommand();
+
+	private SVGGeneratorContext ctx;
+
+	private Shape shape;
+
+	@Setup
+	public void setUp() {
+		this.ctx = SVGGeneratorContext.createDefault(SVGDOMImplementation.getDOMImplementation()
+				.createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null));
+		this.ctx.setExtensionHandler(new HatchPatternHandler());
+		this.shape = new Ellipse2D.Double(0, 0, this.diameter, this.diameter);
+	}
+
+	@Benchmark
+	public Object drawHatch() {
+		// a new generator per call so the DOM does not grow across invocations
+		SVGGraphics2DHS g2d = new SVGGraphics2DHS(this.ctx, false);
+		g2d.setHatchPatterns(this.patterns);
+		this.command.drawHatch(this.shape, g2d, Color.BLACK, this.hatchType);
+		return g2d.getTopLevelGroup();
+	}
+}
@@ -0,0 +1,78 @@
+package com.jpprade.jcgmtosvg.benchmark;
+
+import com.jpprade.jcgmtosvg.CGM4SVG;
+import com.jpprade.jcgmtosvg.ConversionOptions;
+import com.jpprade.jcgmtosvg.SVGPainter;
+import com.jpprade.jcgmtosvg.commands.FigurePath;
+import com.jpprade.jcgmtosvg.commands.PolyBezierV2;
+import net.sf.jcgm.core.PolyBezier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.geom.GeneralPath;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging of the poly-beziers of a figure into a single shape, as done by CGM4SVG at END FIGURE.
+ * <p>
+ * The time per bezier of {@link #figurePath()} stays flat as the figure grows, {@link #mergeShape()} grows with it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolyBezierBenchmark {
+
+	@Param({"16", "256", "4096", "16384"})
+	int beziers;
+
+	private List<PolyBezier> figure;
+
+	private List<PolyBezierV2> parts;
+
+	@Setup
+	public void setUp() throws IOException {
+		CGM4SVG cgm = new CGM4SVG(new ByteArrayInputStream(CgmGenerator.figure(this.beziers)), new SVGPainter(), ConversionOptions.DEFAULT);
+		this.figure = cgm.getCommands().stream()
+				.filter(PolyBezier.class::isInstance)
+				.map(PolyBezier.class::cast)
+				.toList();
+		this.parts = this.figure.stream().map(PolyBezierV2::new).toList();
+	}
+
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public PolyBezierV2 mergeShape() {
+		PolyBezierV2 merged = new PolyBezierV2(this.figure.getFirst());
+		for (int i = 1; i < this.parts.size(); i++) {
+			merged.mergeShape(this.parts.get(i));
+		}
+		return merged;
+	}
+
+	/**
+	 * Accumulates the figure and builds its path, the way CGM4SVG does it.
+	 */
+	@Benchmark
+	public GeneralPath figurePath() {
+		FigurePath path = new FigurePath();
+		for (PolyBezier polyBezier : this.figure) {
+			path.append(polyBezier);
+		}
+		return path.toPath();
+	}
+}
@@ -0,0 +1,78 @@
+package com.jpprade.jcgmtosvg.benchmark;
+
+import com.jpprade.jcgmtosvg.ConversionOptions;
+import com.jpprade.jcgmtosvg.JcgmToSvgConverter;
+import com.jpprade.jcgmtosvg.SVGUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Post-processing of a converted SVG file, as done by {@link SVGUtils#main(String[])} after each conversion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class SVGUtilsBenchmark {
+
+	@Param({"SMALL", "MEDIUM", "HUGE"})
+	CgmGenerator.Size size;
+
+	private final SVGUtils svgUtils = new SVGUtils();
+
+	private Path directory;
+
+	private File source;
+
+	private File destination;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.directory = Files.createTempDirectory("jcgmtosvg-benchmark");
+		this.source = this.directory.resolve("source.svg").toFile();
+		this.destination = this.directory.resolve("destination.svg").toFile();
+		ConversionOptions options = ConversionOptions.builder().hotSpotEnabled(true).build();
+		try (OutputStream os = Files.newOutputStream(this.source.toPath())) {
+			new JcgmToSvgConverter(options).convert(new ByteArrayInputStream(CgmGenerator.drawing(this.size)), os);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.source.toPath());
+		Files.deleteIfExists(this.destination.toPath());
+		Files.deleteIfExists(this.directory);
+	}
+
+	@Benchmark
+	public File applyTransformation() {
+		this.svgUtils.applyTransformation(this.source, this.destination);
+		return this.destination;
+	}
+
+	@Benchmark
+	public File moveHotspotToRightLayer() {
+		this.svgUtils.moveHotspotToRightLayer(this.source, this.destination);
+		return this.destination;
+	}
+}
@@ -0,0 +1,140 @@
+package com.jpprade.jcgmtosvg;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link DataInput} reading a heap or memory-mapped {@link ByteBuffer}, big-endian like {@link DataInputStream}.
+ * <p>
+ * jcgm-core decodes the commands one byte at a time: through a {@code DataInputStream(BufferedInputStream)} every
+ * byte goes through two delegations and a synchronized read, here it is a plain buffer access. Multi-byte values and
+ * {@link #readFully(byte[], int, int)} are bulk reads. The end of the buffer is reported with an {@link EOFException}.
+ */
+final class ByteBufferDataInput implements DataInput {
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * @param buffer the CGM bytes between its position and its limit, the buffer itself is not modified
+	 */
+	ByteBufferDataInput(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	@Override
+	public void readFully(byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(byte[] b, int off, int len) throws IOException {
+		require(len);
+		this.buffer.get(b, off, len);
+	}
+
+	@Override
+	public int skipBytes(int n) {
+		int skipped = Math.max(0, Math.min(n, this.buffer.remaining()));
+		this.buffer.position(this.buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		try {
+			return this.buffer.get();
+		} catch (BufferUnderflowException e) {
+			throw new EOFException();
+		}
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xFF;
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		require(Short.BYTES);
+		return this.buffer.getShort();
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		require(Character.BYTES);
+		return this.buffer.getChar();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		require(Integer.BYTES);
+		return this.buffer.getInt();
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		require(Long.BYTES);
+		return this.buffer.getLong();
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		require(Float.BYTES);
+		return this.buffer.getFloat();
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		require(Double.BYTES);
+		return this.buffer.getDouble();
+	}
+
+	@Override
+	public String readLine() {
+		if (!this.buffer.hasRemaining()) {
+			return null;
+		}
+		StringBuilder line = new StringBuilder();
+		while (this.buffer.hasRemaining()) {
+			int c = this.buffer.get() & 0xFF;
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\r') {
+				if (this.buffer.hasRemaining() && this.buffer.get(this.buffer.position()) == '\n') {
+					this.buffer.get();
+				}
+				break;
+			}
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	@Override
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+
+	private void require(int length) throws EOFException {
+		if (this.buffer.remaining() < length) {
+			this.buffer.position(this.buffer.limit());
+			throw new EOFException();
+		}
+	}
+}
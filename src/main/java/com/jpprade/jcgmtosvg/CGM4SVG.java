@@ -1,8 +1,9 @@
 package com.jpprade.jcgmtosvg;
 
 
+import com.jpprade.jcgmtosvg.commands.FigurePath;
 import com.jpprade.jcgmtosvg.commands.PolyBezierV2;
-import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import com.jpprade.jcgmtosvg.extension.HotSpotGraphics;
 
 import net.sf.jcgm.core.BeginApplicationStructure;
 import net.sf.jcgm.core.BeginFigure;
@@ -29,28 +30,21 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 
 public class CGM4SVG extends CGM {
 
 	static final String RESTRICTED_TEXT_HOTSPOT_ID = "rt_";
 
-	static final String OPTION_HOTSPOT_ENABLED = "hotSpotEnabled";
-	static final String OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY = "hotSpotInApplicationStructureOnly";
-	static final String OPTION_HOTSPOT_PADDING = "hotSpotPadding";
-	static final String OPTION_HOTSPOT_REGEX = "hotSpotRegex";
-	static final String OPTION_HOTSPOT_LINK = "hotSpotLink";
-	static final String OPTION_HOTSPOT_COLOR = "hotSpotColor";
-	
 	SVGPainter painter;
 
-	Map<String,Object> options = new HashMap<String,Object>();
+	final ConversionOptions options;
 	
 	private final Stack<BeginApplicationStructure> basStack = new Stack<>();
 	
@@ -58,22 +52,44 @@ public class CGM4SVG extends CGM {
 	
 	private BeginFigure currentFigure = null;
 	
-	private final ConcurrentHashMap<BeginFigure, List<PolyBezierV2>> figurePolyBezier = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<BeginFigure, FigurePath> figurePaths = new ConcurrentHashMap<>();
+	
+	/**
+	 * Number of painted commands per type, null when not counted.
+	 */
+	private Map<Class<? extends Command>, Integer> commandCounts = null;
 
 	public CGM4SVG(InputStream is, SVGPainter painter, Map<String,Object> options) throws IOException {
+		this(is, painter, ConversionOptions.fromMap(options));
+	}
+	
+	public CGM4SVG(InputStream is, SVGPainter painter, ConversionOptions options) throws IOException {
 		super();
 		this.painter = painter;
-		if(options != null){
-			this.options = options;
-		}
+		this.options = options != null ? options : ConversionOptions.DEFAULT;
 		DataInputStream in = new DataInputStream(new BufferedInputStream(is));
 		read(in);
 		in.close();
 	}
 	
+	/**
+	 * Reads a binary CGM from a heap or memory-mapped buffer, without the stream buffering layers.
+	 *
+	 * @param cgm the CGM bytes between the position and the limit of the buffer, the buffer is not modified
+	 */
+	// read like the stream constructors and super(File), once the painter and the options are set
+	@SuppressWarnings("this-escape")
+	public CGM4SVG(ByteBuffer cgm, SVGPainter painter, ConversionOptions options) throws IOException {
+		super();
+		this.painter = painter;
+		this.options = options != null ? options : ConversionOptions.DEFAULT;
+		read(new ByteBufferDataInput(cgm));
+	}
+	
 	public CGM4SVG(File cgmFile, SVGPainter painter) throws IOException {
 		super(cgmFile);
 		this.painter = painter;
+		this.options = ConversionOptions.DEFAULT;
 	}
 	
 	@Override
@@ -83,12 +99,15 @@ public class CGM4SVG extends CGM {
 			if (c == null) {
 				continue;
 			}
+			if (this.commandCounts != null) {
+				this.commandCounts.merge(c.getClass(), 1, Integer::sum);
+			}
 			
 			BeginApplicationStructure currentAPS;
 			switch (c) {
  				case RestrictedText rt -> {
 					//Draw hotSpot on Restricted text if hotSpotEnabled option is set to true
-					if(options.get(OPTION_HOTSPOT_ENABLED) != null && (boolean) options.get(OPTION_HOTSPOT_ENABLED) == true) {
+					if(this.options.isHotSpotEnabled()) {
 						drawRestrictedTextHotspot(d,rt,RESTRICTED_TEXT_HOTSPOT_ID+restrictedTextCounter);
 						restrictedTextCounter++;
 					}
@@ -106,7 +125,7 @@ public class CGM4SVG extends CGM {
 				case BeginFigure bf -> {
 					c.paint(d);
 					this.currentFigure = bf;
-					this.figurePolyBezier.put(this.currentFigure, new ArrayList<>());
+					this.figurePaths.put(this.currentFigure, new FigurePath());
 				}
 				case EndApplicationStructure ignored1 -> {
 					c.paint(d);
@@ -117,21 +136,19 @@ public class CGM4SVG extends CGM {
 					}
 				}
 				case EndFigure ignored2 -> {
-					List<PolyBezierV2> toPaint = this.figurePolyBezier.get(this.currentFigure);
+					FigurePath toPaint = this.figurePaths.remove(this.currentFigure);
 					
 					if (!toPaint.isEmpty()) {
-						PolyBezierV2 c2 = mergePB(toPaint);
-						
 						if (!this.basStack.isEmpty()) {
 							BeginApplicationStructure top = this.basStack.peek();
 							
-							c2.paint(d, this.currentFigure,
+							toPaint.paint(d,
 									this.mapping.get(top).getCurrentFC(),
 									this.mapping.get(top).getCurrentEC(),
 									this.mapping.get(top).getCurrentEW());
 							
 						} else {
-							c2.paint(d, this.currentFigure);
+							toPaint.paint(d, null, null, null);
 							
 						}
 					}
@@ -141,23 +158,16 @@ public class CGM4SVG extends CGM {
 				default -> {
 					switch (c) {
 						case PolyBezier pb -> {
-							PolyBezierV2 c2 = new PolyBezierV2(pb);
-							if (!this.basStack.isEmpty()) {
+							if (this.currentFigure != null) {
+								this.figurePaths.get(this.currentFigure).append(pb); // all polybezier will be merged into a single shape
+							} else if (!this.basStack.isEmpty()) {
 								BeginApplicationStructure top = this.basStack.peek();
-								if (this.currentFigure == null) {
-									c2.paint(d, null,
-											this.mapping.get(top).getCurrentFC(),
-											this.mapping.get(top).getCurrentEC(),
-											this.mapping.get(top).getCurrentEW());
-								} else {
-									this.figurePolyBezier.get(this.currentFigure).add(c2); // all polybezier will be merged into a single shape
-								}
+								new PolyBezierV2(pb).paint(d, null,
+										this.mapping.get(top).getCurrentFC(),
+										this.mapping.get(top).getCurrentEC(),
+										this.mapping.get(top).getCurrentEW());
 							} else {
-								if (this.currentFigure == null) {
-									c2.paint(d, null);
-								} else {
-									this.figurePolyBezier.get(this.currentFigure).add(c2);
-								}
+								new PolyBezierV2(pb).paint(d, null);
 							}
 						}
 						case FillColour fc -> {
@@ -213,22 +223,19 @@ public class CGM4SVG extends CGM {
 		}
 	}
 	
-	private PolyBezierV2 mergePB(List<PolyBezierV2> tomerge) {
-		PolyBezierV2 ret = tomerge.getFirst();
-		if (tomerge.size() == 1) {
-			return ret;
-		}
-		for (int i = 1; i < tomerge.size(); i++) {
-			ret.mergeShape(tomerge.get(i));
-		}
-		return ret;
+	/**
+	 * Counts the commands of the next {@link #paint(CGMDisplay)} calls per type into the given map.
+	 */
+	void countCommands(Map<Class<? extends Command>, Integer> counts) {
+		this.commandCounts = counts;
 	}
-
+	
 	private Rectangle2D.Double addPadding(CGMDisplay d, Rectangle2D.Double shape) {
 		AffineTransform cgmTransform = d.getGraphics2D().getTransform();
-		if(options.get(OPTION_HOTSPOT_PADDING) != null) {
-			Double paddingX = (Double) options.get(OPTION_HOTSPOT_PADDING) / Math.abs(cgmTransform.getScaleX());
-			Double paddingY = (Double) options.get(OPTION_HOTSPOT_PADDING) / Math.abs(cgmTransform.getScaleX());
+		Double padding = this.options.getHotSpotPadding();
+		if(padding != null) {
+			double paddingX = padding / Math.abs(cgmTransform.getScaleX());
+			double paddingY = padding / Math.abs(cgmTransform.getScaleX());
 			shape.setFrame(shape.x - paddingX, shape.y - paddingY, 
 			shape.width + 2 * paddingX, shape.height + 2 * paddingY);
 		}
@@ -245,9 +252,7 @@ public class CGM4SVG extends CGM {
 
 		//hotSpotInApplicationStructureOnly option filter the Restricted text commands
 		//will put hotSpot only for Restricted text within an ApplicationStructure when option is set to true.
-		if(options.get(OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY) != null &&
-		 (boolean) options.get(OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY) == true &&
-		  !isWithinApplicationStructure) {
+		if(this.options.isHotSpotInApplicationStructureOnly() && !isWithinApplicationStructure) {
 			return null;
 		}
 
@@ -269,8 +274,9 @@ public class CGM4SVG extends CGM {
 	
 		String text = rt.getText();
 		//apply a regex to select specific restricted text to draw hotSpot on. 
-		//hotSpotRegex contains the regex String.
-		if(options.get(OPTION_HOTSPOT_REGEX) == null || text.matches((String) options.get(OPTION_HOTSPOT_REGEX))){
+		//hotSpotRegex is compiled once with the options.
+		Pattern hotSpotRegex = this.options.getHotSpotRegex();
+		if(hotSpotRegex == null || hotSpotRegex.matcher(text).matches()){
 			
 			Rectangle2D.Double shape = rt.getTextBox();
 			//apply Restricted Text offset on the hotSpot shape
@@ -279,13 +285,13 @@ public class CGM4SVG extends CGM {
 			//add padding to rectangle hotSpot shape if hotSpotPadding is set (double value)
 			shape = addPadding(d,shape);						
 
-			SVGGraphics2DHS g2d;
+			HotSpotGraphics g2d;
 			if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-				g2d = (SVGGraphics2DHS) decorator.getDelegate();
+				g2d = (HotSpotGraphics) decorator.getDelegate();
 			} else {
-				g2d = (SVGGraphics2DHS) d.getGraphics2D(); 
+				g2d = (HotSpotGraphics) d.getGraphics2D(); 
 			}
-			g2d.drawHotSpot(shape, id, apsid, text, (String)options.get(OPTION_HOTSPOT_LINK), (String)options.get(OPTION_HOTSPOT_COLOR));
+			g2d.drawHotSpot(shape, id, apsid, text, this.options.getHotSpotLink(), this.options.getHotSpotColor());
 		}	
 	}
 
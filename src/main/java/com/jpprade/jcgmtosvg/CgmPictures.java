@@ -0,0 +1,117 @@
+package com.jpprade.jcgmtosvg;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a binary CGM holding several pictures into one CGM per picture.
+ * <p>
+ * jcgm-core can only build a CGM by reading a metafile, so the split is done on the bytes, before the commands are
+ * parsed: the commands are skipped using the class, id and parameter length of their header, ISO 8632-3. Every
+ * picture gets the metafile header, from BEGIN METAFILE to the first BEGIN PICTURE, so it keeps the metafile
+ * descriptor (VDC type, precisions, font list...), followed by its own commands from BEGIN PICTURE to END PICTURE and an
+ * END METAFILE.
+ */
+final class CgmPictures {
+
+	private static final int DELIMITER_CLASS = 0;
+	private static final int END_METAFILE = 2;
+	private static final int BEGIN_PICTURE = 3;
+	private static final int END_PICTURE = 5;
+
+	/**
+	 * Long form parameter length.
+	 */
+	private static final int LONG_FORM = 31;
+
+	/**
+	 * Set in the long form length when another partition follows.
+	 */
+	private static final int PARTITION_FLAG = 1 << 15;
+
+	/**
+	 * END METAFILE command header: class 0, id 2, no parameter.
+	 */
+	private static final byte[] END_METAFILE_COMMAND = {0x00, 0x40};
+
+	private CgmPictures() {
+	}
+
+	/**
+	 * @param cgm the CGM bytes between the position and the limit of the buffer, the buffer is not modified
+	 * @return one CGM per picture, in the order of the metafile; the CGM itself when it has at most one picture
+	 * @throws JcgmToSvgException if a command goes beyond the end of the CGM
+	 */
+	static List<ByteBuffer> split(ByteBuffer cgm) {
+		ByteBuffer buffer = cgm.duplicate();
+		int start = buffer.position();
+		int headerEnd = -1;
+		List<int[]> pictures = new ArrayList<>();
+		int pictureStart = -1;
+		while (buffer.remaining() >= 2) {
+			int commandStart = buffer.position();
+			int header = buffer.getShort() & 0xFFFF;
+			int elementClass = header >> 12;
+			int elementId = (header >> 5) & 0x7F;
+			skipParameters(buffer, header & 0x1F);
+			if (elementClass != DELIMITER_CLASS) {
+				continue;
+			}
+			if (elementId == BEGIN_PICTURE) {
+				if (headerEnd < 0) {
+					headerEnd = commandStart;
+				}
+				pictureStart = commandStart;
+			} else if (elementId == END_PICTURE && pictureStart >= 0) {
+				pictures.add(new int[]{pictureStart, buffer.position()});
+				pictureStart = -1;
+			} else if (elementId == END_METAFILE) {
+				break;
+			}
+		}
+		if (pictures.size() <= 1) {
+			return List.of(cgm);
+		}
+
+		List<ByteBuffer> split = new ArrayList<>(pictures.size());
+		int headerLength = headerEnd - start;
+		for (int[] picture : pictures) {
+			int pictureLength = picture[1] - picture[0];
+			ByteBuffer out = ByteBuffer.allocate(headerLength + pictureLength + END_METAFILE_COMMAND.length);
+			out.put(cgm.duplicate().position(start).limit(headerEnd));
+			out.put(cgm.duplicate().position(picture[0]).limit(picture[1]));
+			out.put(END_METAFILE_COMMAND);
+			split.add(out.flip());
+		}
+		return split;
+	}
+
+	/**
+	 * Moves the buffer after the parameters of the command, the parameter lists of odd length are followed by a
+	 * padding byte.
+	 */
+	private static void skipParameters(ByteBuffer buffer, int length) {
+		boolean partitioned = length == LONG_FORM;
+		if (!partitioned) {
+			skip(buffer, length + (length & 1));
+			return;
+		}
+		while (partitioned) {
+			if (buffer.remaining() < 2) {
+				throw new JcgmToSvgException("Truncated CGM at byte {0}", buffer.position());
+			}
+			int partition = buffer.getShort() & 0xFFFF;
+			partitioned = (partition & PARTITION_FLAG) != 0;
+			length = partition & ~PARTITION_FLAG;
+			skip(buffer, length + (length & 1));
+		}
+	}
+
+	private static void skip(ByteBuffer buffer, int length) {
+		if (length > buffer.remaining()) {
+			throw new JcgmToSvgException("Truncated CGM at byte {0}", buffer.position());
+		}
+		buffer.position(buffer.position() + length);
+	}
+}
@@ -0,0 +1,301 @@
+package com.jpprade.jcgmtosvg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of converted SVGs on the local disk, in front of a {@link JcgmToSvgConverter}.
+ * <p>
+ * An entry is keyed on the SHA-256 of the CGM bytes, of the {@link ConversionOptions#outputKey() options changing
+ * the SVG} and of the converter version, so the
+ * SVGs of a previous version of the converter are not served and the same illustration
+ * shared by several manuals is converted once: a repeated conversion is a copy of the cached file to the output.
+ * The least recently used entries are evicted once the cache exceeds its size budget. The entries found in the
+ * directory are reused when the cache is created, ordered by their last modification time which is updated on
+ * every hit. The {@link ConversionListener} of the converter is only notified of the misses.
+ * <p>
+ * A cache can be shared by any number of threads. Two threads missing the same entry both convert the CGM,
+ * the last one replaces the entry with an identical file.
+ */
+public final class ConversionCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConversionCache.class);
+
+	private static final String ENTRY_EXTENSION = ".svg";
+
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+
+	private final JcgmToSvgConverter converter;
+
+	private final Path directory;
+
+	private final long maxBytes;
+
+	private final ByteBuffer converterKey;
+
+	/**
+	 * Size in bytes of the entries, from the least to the most recently used.
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	/**
+	 * @param converter the converter called on a miss, its options and version are part of the key
+	 * @param directory the directory of the cached SVGs, created if needed, should not be used by anything else
+	 * @param maxBytes  the size budget of the cache in bytes
+	 * @throws IOException if the directory cannot be created or listed
+	 */
+	public ConversionCache(JcgmToSvgConverter converter, Path directory, long maxBytes) throws IOException {
+		if (maxBytes < 0) {
+			throw new JcgmToSvgException("Invalid cache size {0}", maxBytes);
+		}
+		this.converter = Objects.requireNonNull(converter, "converter");
+		this.directory = Files.createDirectories(directory);
+		this.maxBytes = maxBytes;
+		this.converterKey = converterKey(JcgmToSvgConverter.VERSION, converter.getOptions());
+		load();
+	}
+
+	/**
+	 * @return the part of the keys identifying the converter, like the manifest of the incremental conversions
+	 */
+	static ByteBuffer converterKey(String version, ConversionOptions options) {
+		return ByteBuffer.wrap((version + '\n' + options.outputKey()).getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Converts a CGM to an SVG, or copies the SVG cached for the same bytes.
+	 *
+	 * @param is the input stream of the CGM, read fully to compute the key
+	 * @param os an output stream of the converted SVG
+	 * @throws IOException if the CGM cannot be read or the cache cannot be written
+	 */
+	public void convert(InputStream is, OutputStream os) throws IOException {
+		convert(ByteBuffer.wrap(is.readAllBytes()), os);
+	}
+
+	/**
+	 * Converts a CGM file to an SVG, or copies the SVG cached for the same bytes. The file is memory-mapped when
+	 * the memory-mapped input option of the converter is enabled.
+	 *
+	 * @param input the CGM file
+	 * @param os    an output stream of the converted SVG
+	 * @throws IOException if the file cannot be read or the cache cannot be written
+	 */
+	public void convert(Path input, OutputStream os) throws IOException {
+		convert(this.converter.read(input), os);
+	}
+
+	/**
+	 * Converts a CGM held in a buffer to an SVG, or copies the SVG cached for the same bytes.
+	 *
+	 * @param cgm the CGM bytes between the position and the limit of the buffer
+	 * @param os  an output stream of the converted SVG
+	 * @throws IOException if the cache cannot be written
+	 */
+	public void convert(ByteBuffer cgm, OutputStream os) throws IOException {
+		String key = Digests.sha256(cgm, this.converterKey);
+		Path entry = this.directory.resolve(key + ENTRY_EXTENSION);
+		InputStream cached = touch(key) ? open(key, entry) : null;
+		count(cached != null);
+		if (cached != null) {
+			try (cached) {
+				cached.transferTo(os);
+			}
+			return;
+		}
+
+		Path temporary = Files.createTempFile(this.directory, key, TEMPORARY_EXTENSION);
+		try {
+			try (OutputStream out = Files.newOutputStream(temporary)) {
+				this.converter.convert(cgm, out);
+			}
+			// copied before the entry is published, where it could be evicted by another thread
+			Files.copy(temporary, os);
+			long length = Files.size(temporary);
+			move(temporary, entry);
+			add(key, length);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+
+	/**
+	 * Marks the cached SVG as recently used and opens it. Nothing is written to the output before it is open, so
+	 * the CGM can still be converted when it has disappeared.
+	 *
+	 * @return the cached SVG, null when it has been removed behind our back
+	 */
+	private InputStream open(String key, Path entry) throws IOException {
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+			return Files.newInputStream(entry);
+		} catch (NoSuchFileException e) {
+			logger.warn("The cached SVG {} has disappeared", entry);
+			remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * @return a snapshot of the counters of the cache
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(this.hits, this.misses, this.evictions, this.entries.size(), this.size);
+	}
+
+	/**
+	 * Removes every entry from the cache, the counters are kept.
+	 *
+	 * @throws IOException if an entry cannot be deleted
+	 */
+	public synchronized void clear() throws IOException {
+		for (Iterator<Map.Entry<String, Long>> it = this.entries.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<String, Long> entry = it.next();
+			Files.deleteIfExists(this.directory.resolve(entry.getKey() + ENTRY_EXTENSION));
+			this.size -= entry.getValue();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Counters of a {@link ConversionCache}.
+	 *
+	 * @param hits      the number of conversions served from the cache
+	 * @param misses    the number of conversions that ran the converter
+	 * @param evictions the number of entries evicted to stay in the size budget
+	 * @param entries   the number of cached SVGs
+	 * @param size      the total size of the cached SVGs in bytes
+	 */
+	public record Stats(long hits, long misses, long evictions, int entries, long size) {
+
+		/**
+		 * @return the fraction of the conversions served from the cache, 0 before the first one
+		 */
+		public double hitRate() {
+			long total = this.hits + this.misses;
+			return total == 0 ? 0 : (double) this.hits / total;
+		}
+	}
+
+	/**
+	 * Marks the entry as the most recently used if it is cached.
+	 *
+	 * @return true if the entry is cached
+	 */
+	private synchronized boolean touch(String key) {
+		return this.entries.get(key) != null;
+	}
+
+	/**
+	 * @param hit true if the cached SVG was opened, false if the CGM is converted
+	 */
+	private synchronized void count(boolean hit) {
+		if (hit) {
+			this.hits++;
+		} else {
+			this.misses++;
+		}
+	}
+
+	private synchronized void add(String key, long length) {
+		Long previous = this.entries.put(key, length);
+		this.size += length - (previous == null ? 0 : previous);
+		evict();
+	}
+
+	private synchronized void remove(String key) {
+		Long length = this.entries.remove(key);
+		if (length != null) {
+			this.size -= length;
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache fits in its budget. The entry just added is
+	 * kept even when it is larger than the whole budget, so that the caller can still copy it.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> it = this.entries.entrySet().iterator();
+		while (this.size > this.maxBytes && this.entries.size() > 1) {
+			Map.Entry<String, Long> eldest = it.next();
+			Path path = this.directory.resolve(eldest.getKey() + ENTRY_EXTENSION);
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				logger.warn("Could not delete the cached SVG {}", path, e);
+			}
+			this.size -= eldest.getValue();
+			this.evictions++;
+			it.remove();
+		}
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Indexes the entries left in the directory by a previous cache, and deletes the temporary files
+	 * of the conversions that did not complete.
+	 */
+	private void load() throws IOException {
+		List<Path> files;
+		try (Stream<Path> list = Files.list(this.directory)) {
+			files = list.filter(Files::isRegularFile).toList();
+		}
+		List<Map.Entry<Path, BasicFileAttributes>> cached = new ArrayList<>();
+		for (Path file : files) {
+			String name = file.getFileName().toString();
+			if (name.endsWith(TEMPORARY_EXTENSION)) {
+				Files.deleteIfExists(file);
+			} else if (name.endsWith(ENTRY_EXTENSION)) {
+				cached.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+			}
+		}
+		cached.sort(Comparator.comparing(e -> e.getValue().lastModifiedTime()));
+		synchronized (this) {
+			for (Map.Entry<Path, BasicFileAttributes> entry : cached) {
+				String name = entry.getKey().getFileName().toString();
+				this.entries.put(name.substring(0, name.length() - ENTRY_EXTENSION.length()), entry.getValue().size());
+				this.size += entry.getValue().size();
+			}
+			evict();
+			this.evictions = 0;
+		}
+		logger.info("Conversion cache {} loaded with {} entries, {} bytes.", this.directory, this.entries.size(), this.size);
+	}
+}
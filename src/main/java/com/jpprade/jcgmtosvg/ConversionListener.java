@@ -0,0 +1,47 @@
+package com.jpprade.jcgmtosvg;
+
+import java.time.Duration;
+
+/**
+ * Receives the metrics of each conversion, e.g. to forward them to a metrics registry.
+ * <p>
+ * The counters of {@link ConversionMetrics} are only collected when a listener other than {@link #NOOP} is
+ * registered on the {@link JcgmToSvgConverter}. A listener of a converter shared between threads is called
+ * concurrently and must be thread-safe. An exception thrown by a listener is logged and does not fail the conversion.
+ */
+public interface ConversionListener {
+
+	ConversionListener NOOP = new ConversionListener() {
+	};
+
+	enum Phase {
+		/**
+		 * Reading the CGM commands in the {@link CGM4SVG} constructor.
+		 */
+		PARSE,
+		/**
+		 * Painting the commands on the SVG graphics.
+		 */
+		PAINT,
+		/**
+		 * Setting the canvas size and adding the style sheet and script, DOM output only.
+		 */
+		CANVAS,
+		/**
+		 * Writing the SVG to the output stream.
+		 */
+		SERIALIZE
+	}
+
+	/**
+	 * Called at the end of each phase of a conversion.
+	 */
+	default void phaseCompleted(Phase phase, Duration duration) {
+	}
+
+	/**
+	 * Called once the SVG has been written.
+	 */
+	default void conversionCompleted(ConversionMetrics metrics) {
+	}
+}
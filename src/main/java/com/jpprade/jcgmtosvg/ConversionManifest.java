@@ -0,0 +1,204 @@
+package com.jpprade.jcgmtosvg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Manifest of an incremental batch conversion: for every CGM of the input directory, the hash of its bytes,
+ * the hash of the options and the version of the converter that produced its SVG.
+ * <p>
+ * The manifest is a text file with one tab separated entry per line. It is rewritten when it is opened and closed,
+ * through a temporary file atomically moved over the previous one. In between, every change is appended to it
+ * and forced to the disk: a run that is interrupted leaves the entries of the files it converted, a last line
+ * without its line feed was truncated and is ignored, so the next run only converts what is left.
+ */
+final class ConversionManifest implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConversionManifest.class);
+
+	private static final String HEADER = "# jcgm-to-svg manifest 1";
+
+	private static final int ENTRY_FIELDS = 8;
+
+	private final Path file;
+
+	private final Map<String, Entry> entries;
+
+	private final FileChannel journal;
+
+	/**
+	 * A converted CGM.
+	 *
+	 * @param input            the name of the CGM file in the input directory
+	 * @param inputSize        the size of the CGM file, with its modification time it avoids hashing unchanged files
+	 * @param inputModified    the modification time of the CGM file in milliseconds
+	 * @param inputHash        the SHA-256 of the CGM
+	 * @param optionsHash      the SHA-256 of the conversion options
+	 * @param converterVersion the version of the converter
+	 * @param output           the name of the SVG file in the output directory
+	 * @param outputSize       the size of the SVG file
+	 */
+	record Entry(String input, long inputSize, long inputModified, String inputHash, String optionsHash,
+	             String converterVersion, String output, long outputSize) {
+
+		private String format() {
+			return escape(this.input) + '\t' + this.inputSize + '\t' + this.inputModified + '\t' + this.inputHash
+					+ '\t' + this.optionsHash + '\t' + escape(this.converterVersion) + '\t' + escape(this.output)
+					+ '\t' + this.outputSize;
+		}
+
+		private static Entry parse(String[] fields) {
+			return new Entry(unescape(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3],
+					fields[4], unescape(fields[5]), unescape(fields[6]), Long.parseLong(fields[7]));
+		}
+	}
+
+	private ConversionManifest(Path file, Map<String, Entry> entries) throws IOException {
+		this.file = file;
+		this.entries = entries;
+		compact();
+		this.journal = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Reads the manifest, or starts an empty one if the file does not exist.
+	 */
+	static ConversionManifest open(Path file) throws IOException {
+		Map<String, Entry> entries = new HashMap<>();
+		String content;
+		try {
+			content = Files.readString(file, StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			content = "";
+		}
+		// the text after the last line feed is a line that was being appended when the previous run stopped
+		List<String> lines = List.of(content.substring(0, content.lastIndexOf('\n') + 1).split("\n"));
+		for (String line : lines) {
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t", -1);
+			try {
+				if (fields.length == 1) {
+					// a removed input
+					entries.remove(unescape(fields[0]));
+				} else if (fields.length == ENTRY_FIELDS) {
+					Entry entry = Entry.parse(fields);
+					entries.put(entry.input(), entry);
+				} else {
+					logger.warn("Ignoring the malformed line of the manifest {}: {}", file, line);
+				}
+			} catch (NumberFormatException e) {
+				logger.warn("Ignoring the malformed line of the manifest {}: {}", file, line);
+			}
+		}
+		return new ConversionManifest(file, entries);
+	}
+
+	synchronized Entry get(String input) {
+		return this.entries.get(input);
+	}
+
+	synchronized Set<String> inputs() {
+		return Set.copyOf(this.entries.keySet());
+	}
+
+	synchronized void put(Entry entry) throws IOException {
+		this.entries.put(entry.input(), entry);
+		append(entry.format());
+	}
+
+	synchronized void remove(String input) throws IOException {
+		if (this.entries.remove(input) != null) {
+			append(escape(input));
+		}
+	}
+
+	/**
+	 * Rewrites the manifest with the current entries only.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.journal.close();
+		compact();
+	}
+
+	private void append(String line) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap((line + '\n').getBytes(StandardCharsets.UTF_8));
+		while (bytes.hasRemaining()) {
+			this.journal.write(bytes);
+		}
+		this.journal.force(false);
+	}
+
+	private void compact() throws IOException {
+		Path directory = this.file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temporary = Files.createTempFile(directory, this.file.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+			     BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+				writer.write(HEADER);
+				writer.write('\n');
+				for (Entry entry : new TreeMap<>(this.entries).values()) {
+					writer.write(entry.format());
+					writer.write('\n');
+				}
+				writer.flush();
+				channel.force(false);
+			}
+			try {
+				Files.move(temporary, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				sb.append(switch (next) {
+					case 't' -> '\t';
+					case 'n' -> '\n';
+					case 'r' -> '\r';
+					default -> next;
+				});
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
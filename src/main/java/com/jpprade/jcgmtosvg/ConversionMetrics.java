@@ -0,0 +1,22 @@
+package com.jpprade.jcgmtosvg;
+
+import net.sf.jcgm.core.Command;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Metrics of a single conversion, reported to a {@link ConversionListener}.
+ *
+ * @param phaseDurations the duration of each phase that ran, in execution order
+ * @param commandCounts  the number of commands painted per command type
+ * @param hotSpotCount   the number of hotspots emitted
+ * @param outputBytes    the size of the SVG in bytes
+ * @param elementCount   the number of SVG elements generated by the painting, before the post-processing of the DOM
+ *                       output: held in memory once painted (the peak) for the DOM output, written for the
+ *                       streaming output
+ */
+public record ConversionMetrics(Map<ConversionListener.Phase, Duration> phaseDurations,
+                                Map<Class<? extends Command>, Integer> commandCounts,
+                                int hotSpotCount, long outputBytes, long elementCount) {
+}
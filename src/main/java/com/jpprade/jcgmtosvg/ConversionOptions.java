@@ -0,0 +1,643 @@
+package com.jpprade.jcgmtosvg;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+/**
+ * Immutable, typed conversion options.
+ * <p>
+ * Values are parsed once when the options are built (the hotspot regular expression is compiled up front and the
+ * hotspot colour validated), so a single instance can be shared by all the conversions of a
+ * {@link JcgmToSvgConverter}.
+ */
+public final class ConversionOptions {
+
+	public static final String OPTION_HOTSPOT_ENABLED = "hotSpotEnabled";
+	public static final String OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY = "hotSpotInApplicationStructureOnly";
+	public static final String OPTION_HOTSPOT_PADDING = "hotSpotPadding";
+	public static final String OPTION_HOTSPOT_REGEX = "hotSpotRegex";
+	public static final String OPTION_HOTSPOT_LINK = "hotSpotLink";
+	public static final String OPTION_HOTSPOT_COLOR = "hotSpotColor";
+	public static final String OPTION_STREAMING_OUTPUT = "streamingOutput";
+	public static final String OPTION_COMPRESSED_OUTPUT = "compressedOutput";
+	public static final String OPTION_COMPRESSION_LEVEL = "compressionLevel";
+	public static final String OPTION_HOTSPOT_INDEX = "hotSpotIndex";
+	public static final String OPTION_SIMPLIFICATION_TOLERANCE = "simplificationTolerance";
+	public static final String OPTION_HATCH_PATTERNS = "hatchPatterns";
+	public static final String OPTION_STYLE_CLASSES = "styleClasses";
+	public static final String OPTION_DISPLAY_RESOLUTION = "displayResolution";
+	public static final String OPTION_QUANTIZED_COORDINATES = "quantizedCoordinates";
+	public static final String OPTION_COMPACT_PATH_DATA = "compactPathData";
+	public static final String OPTION_SYMBOL_INSTANCING = "symbolInstancing";
+	public static final String OPTION_TILE_SIZE = "tileSize";
+	public static final String OPTION_TILE_LEVELS = "tileLevels";
+	public static final String OPTION_THUMBNAIL_SIZE = "thumbnailSize";
+	public static final String OPTION_HOTSPOTS_ON_TOP = "hotSpotsOnTop";
+	public static final String OPTION_FLATTEN_TRANSFORMS = "flattenTransforms";
+	public static final String OPTION_MEMORY_MAPPED_INPUT = "memoryMappedInput";
+
+	public static final ConversionOptions DEFAULT = builder().build();
+
+	/**
+	 * CSS colours accepted for the hotspots: a hex colour, a colour keyword or an rgb(a) / hsl(a) function.
+	 */
+	private static final Pattern COLOR = Pattern.compile("#(?:[0-9a-fA-F]{3,4}|[0-9a-fA-F]{6}|[0-9a-fA-F]{8})"
+			+ "|[a-zA-Z]+|(?:rgba?|hsla?)\\([0-9.,%/ +-]*\\)");
+
+	private final boolean hotSpotEnabled;
+	private final boolean hotSpotInApplicationStructureOnly;
+	private final Double hotSpotPadding;
+	private final Pattern hotSpotRegex;
+	private final String hotSpotLink;
+	private final String hotSpotColor;
+	private final boolean streamingOutput;
+	private final boolean compressedOutput;
+	private final int compressionLevel;
+	private final boolean hotSpotIndex;
+	private final Double simplificationTolerance;
+	private final boolean hatchPatterns;
+	private final boolean styleClasses;
+	private final Integer displayResolution;
+	private final boolean quantizedCoordinates;
+	private final boolean compactPathData;
+	private final boolean symbolInstancing;
+	private final int tileSize;
+	private final Integer tileLevels;
+	private final Integer thumbnailSize;
+	private final boolean hotSpotsOnTop;
+	private final boolean flattenTransforms;
+	private final boolean memoryMappedInput;
+
+	private ConversionOptions(Builder builder) {
+		if (builder.compressionLevel < Deflater.DEFAULT_COMPRESSION || builder.compressionLevel > Deflater.BEST_COMPRESSION) {
+			throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_COMPRESSION_LEVEL, builder.compressionLevel);
+		}
+		if (builder.simplificationTolerance != null
+				&& (!(builder.simplificationTolerance >= 0) || builder.simplificationTolerance.isInfinite())) {
+			throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_SIMPLIFICATION_TOLERANCE, builder.simplificationTolerance);
+		}
+		if (builder.displayResolution != null && builder.displayResolution <= 0) {
+			throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_DISPLAY_RESOLUTION, builder.displayResolution);
+		}
+		if (builder.tileSize <= 0) {
+			throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_TILE_SIZE, builder.tileSize);
+		}
+		if (builder.tileLevels != null && builder.tileLevels <= 0) {
+			throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_TILE_LEVELS, builder.tileLevels);
+		}
+		if (builder.thumbnailSize != null && builder.thumbnailSize <= 0) {
+			throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_THUMBNAIL_SIZE, builder.thumbnailSize);
+		}
+		this.hotSpotEnabled = builder.hotSpotEnabled;
+		this.hotSpotInApplicationStructureOnly = builder.hotSpotInApplicationStructureOnly;
+		this.hotSpotPadding = builder.hotSpotPadding;
+		this.hotSpotRegex = builder.hotSpotRegex == null ? null : Pattern.compile(builder.hotSpotRegex);
+		this.hotSpotLink = builder.hotSpotLink;
+		this.hotSpotColor = builder.hotSpotColor;
+		this.streamingOutput = builder.streamingOutput;
+		this.compressedOutput = builder.compressedOutput;
+		this.compressionLevel = builder.compressionLevel;
+		this.hotSpotIndex = builder.hotSpotIndex;
+		this.simplificationTolerance = builder.simplificationTolerance;
+		this.hatchPatterns = builder.hatchPatterns;
+		this.styleClasses = builder.styleClasses;
+		this.displayResolution = builder.displayResolution;
+		this.quantizedCoordinates = builder.quantizedCoordinates;
+		this.compactPathData = builder.compactPathData;
+		this.symbolInstancing = builder.symbolInstancing;
+		this.tileSize = builder.tileSize;
+		this.tileLevels = builder.tileLevels;
+		this.thumbnailSize = builder.thumbnailSize;
+		this.hotSpotsOnTop = builder.hotSpotsOnTop;
+		this.flattenTransforms = builder.flattenTransforms;
+		this.memoryMappedInput = builder.memoryMappedInput;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Builds the options from the untyped map accepted by {@link JcgmToSvg#convert(java.io.InputStream, java.io.OutputStream, Map)}.
+	 *
+	 * @param options the options map, may be null
+	 * @throws JcgmToSvgException if an option has an unexpected type
+	 */
+	public static ConversionOptions fromMap(Map<String, Object> options) {
+		Builder builder = builder();
+		if (options == null) {
+			return builder.build();
+		}
+		builder.hotSpotEnabled(booleanOption(options, OPTION_HOTSPOT_ENABLED));
+		builder.hotSpotInApplicationStructureOnly(booleanOption(options, OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY));
+		Object padding = options.get(OPTION_HOTSPOT_PADDING);
+		if (padding != null) {
+			builder.hotSpotPadding(numberOption(OPTION_HOTSPOT_PADDING, padding));
+		}
+		builder.hotSpotRegex(stringOption(options, OPTION_HOTSPOT_REGEX));
+		builder.hotSpotLink(stringOption(options, OPTION_HOTSPOT_LINK));
+		builder.hotSpotColor(stringOption(options, OPTION_HOTSPOT_COLOR));
+		builder.streamingOutput(booleanOption(options, OPTION_STREAMING_OUTPUT));
+		builder.compressedOutput(booleanOption(options, OPTION_COMPRESSED_OUTPUT));
+		Object level = options.get(OPTION_COMPRESSION_LEVEL);
+		if (level != null) {
+			builder.compressionLevel((int) numberOption(OPTION_COMPRESSION_LEVEL, level));
+		}
+		builder.hotSpotIndex(booleanOption(options, OPTION_HOTSPOT_INDEX));
+		Object tolerance = options.get(OPTION_SIMPLIFICATION_TOLERANCE);
+		if (tolerance != null) {
+			builder.simplificationTolerance(numberOption(OPTION_SIMPLIFICATION_TOLERANCE, tolerance));
+		}
+		builder.hatchPatterns(booleanOption(options, OPTION_HATCH_PATTERNS));
+		builder.styleClasses(booleanOption(options, OPTION_STYLE_CLASSES));
+		Object resolution = options.get(OPTION_DISPLAY_RESOLUTION);
+		if (resolution != null) {
+			builder.displayResolution((int) numberOption(OPTION_DISPLAY_RESOLUTION, resolution));
+		}
+		builder.quantizedCoordinates(booleanOption(options, OPTION_QUANTIZED_COORDINATES));
+		builder.compactPathData(booleanOption(options, OPTION_COMPACT_PATH_DATA));
+		builder.symbolInstancing(booleanOption(options, OPTION_SYMBOL_INSTANCING));
+		Object tileSize = options.get(OPTION_TILE_SIZE);
+		if (tileSize != null) {
+			builder.tileSize((int) numberOption(OPTION_TILE_SIZE, tileSize));
+		}
+		Object tileLevels = options.get(OPTION_TILE_LEVELS);
+		if (tileLevels != null) {
+			builder.tileLevels((int) numberOption(OPTION_TILE_LEVELS, tileLevels));
+		}
+		Object thumbnailSize = options.get(OPTION_THUMBNAIL_SIZE);
+		if (thumbnailSize != null) {
+			builder.thumbnailSize((int) numberOption(OPTION_THUMBNAIL_SIZE, thumbnailSize));
+		}
+		builder.hotSpotsOnTop(booleanOption(options, OPTION_HOTSPOTS_ON_TOP));
+		builder.flattenTransforms(booleanOption(options, OPTION_FLATTEN_TRANSFORMS));
+		builder.memoryMappedInput(booleanOption(options, OPTION_MEMORY_MAPPED_INPUT));
+		return builder.build();
+	}
+
+	static boolean booleanOption(Map<String, Object> options, String key) {
+		Object value = options.get(key);
+		if (value == null) {
+			return false;
+		} else if (value instanceof Boolean b) {
+			return b;
+		} else if (value instanceof String s) {
+			return Boolean.parseBoolean(s);
+		}
+		throw new JcgmToSvgException("Invalid value for the option {0}: {1}", key, value);
+	}
+
+	static double numberOption(String key, Object value) {
+		if (value instanceof Number n) {
+			return n.doubleValue();
+		} else if (value instanceof String s) {
+			try {
+				return Double.parseDouble(s);
+			} catch (NumberFormatException e) {
+				throw new JcgmToSvgException("Invalid value for the option " + key + ": " + s, e);
+			}
+		}
+		throw new JcgmToSvgException("Invalid value for the option {0}: {1}", key, value);
+	}
+
+	static String stringOption(Map<String, Object> options, String key) {
+		Object value = options.get(key);
+		return value == null ? null : value.toString();
+	}
+
+	public boolean isHotSpotEnabled() {
+		return this.hotSpotEnabled;
+	}
+
+	public boolean isHotSpotInApplicationStructureOnly() {
+		return this.hotSpotInApplicationStructureOnly;
+	}
+
+	/**
+	 * @return the hotspot padding in px, null when no padding is applied
+	 */
+	public Double getHotSpotPadding() {
+		return this.hotSpotPadding;
+	}
+
+	/**
+	 * @return the compiled hotspot filter, null when every restricted text gets a hotspot
+	 */
+	public Pattern getHotSpotRegex() {
+		return this.hotSpotRegex;
+	}
+
+	public String getHotSpotLink() {
+		return this.hotSpotLink;
+	}
+
+	/**
+	 * @return the hotspot fill, validated and trimmed, null for the default transparent fill
+	 */
+	public String getHotSpotColor() {
+		return this.hotSpotColor;
+	}
+
+	public boolean isStreamingOutput() {
+		return this.streamingOutput;
+	}
+
+	public boolean isCompressedOutput() {
+		return this.compressedOutput;
+	}
+
+	/**
+	 * @return the deflate level of the compressed output, from 0 to 9 or -1 for the default level
+	 */
+	public int getCompressionLevel() {
+		return this.compressionLevel;
+	}
+
+	public boolean isHotSpotIndex() {
+		return this.hotSpotIndex;
+	}
+
+	/**
+	 * @return the path simplification tolerance in px, null when the paths are written as drawn
+	 */
+	public Double getSimplificationTolerance() {
+		return this.simplificationTolerance;
+	}
+
+	public boolean isHatchPatterns() {
+		return this.hatchPatterns;
+	}
+
+	public boolean isStyleClasses() {
+		return this.styleClasses;
+	}
+
+	/**
+	 * @return the largest side in px the SVG is displayed at, null when it is displayed at its own size
+	 */
+	public Integer getDisplayResolution() {
+		return this.displayResolution;
+	}
+
+	public boolean isQuantizedCoordinates() {
+		return this.quantizedCoordinates;
+	}
+
+	public boolean isCompactPathData() {
+		return this.compactPathData;
+	}
+
+	public boolean isSymbolInstancing() {
+		return this.symbolInstancing;
+	}
+
+	/**
+	 * @return the width and height in px of the tiles written by {@link JcgmToSvgConverter#convertTiled}
+	 */
+	public int getTileSize() {
+		return this.tileSize;
+	}
+
+	/**
+	 * @return the number of zoom levels of the tiled output, null when there are enough levels for the coarsest one
+	 * to fit in a single tile
+	 */
+	public Integer getTileLevels() {
+		return this.tileLevels;
+	}
+
+	/**
+	 * @return the largest side in px of the PNG thumbnail painted with the SVG, null when no thumbnail is written
+	 * next to the SVG files
+	 */
+	public Integer getThumbnailSize() {
+		return this.thumbnailSize;
+	}
+
+	public boolean isHotSpotsOnTop() {
+		return this.hotSpotsOnTop;
+	}
+
+	public boolean isFlattenTransforms() {
+		return this.flattenTransforms;
+	}
+
+	/**
+	 * @return true when the CGM files are memory-mapped, false when they are read through a buffered stream
+	 */
+	public boolean isMemoryMappedInput() {
+		return this.memoryMappedInput;
+	}
+
+	/**
+	 * Identifies the options changing the converted SVG, the conversion cache and the manifest of the incremental
+	 * conversions are keyed on it. The options that only change how the CGM is read or the tiles and thumbnails are
+	 * left out, so that enabling them does not convert everything again.
+	 *
+	 * @return the names and values of the options changing the SVG
+	 */
+	public String outputKey() {
+		return "{" + OPTION_HOTSPOT_ENABLED + "=" + this.hotSpotEnabled
+				+ ", " + OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY + "=" + this.hotSpotInApplicationStructureOnly
+				+ ", " + OPTION_HOTSPOT_PADDING + "=" + this.hotSpotPadding
+				+ ", " + OPTION_HOTSPOT_REGEX + "=" + this.hotSpotRegex
+				+ ", " + OPTION_HOTSPOT_LINK + "=" + this.hotSpotLink
+				+ ", " + OPTION_HOTSPOT_COLOR + "=" + this.hotSpotColor
+				+ ", " + OPTION_STREAMING_OUTPUT + "=" + this.streamingOutput
+				+ ", " + OPTION_COMPRESSED_OUTPUT + "=" + this.compressedOutput
+				+ ", " + OPTION_COMPRESSION_LEVEL + "=" + this.compressionLevel
+				+ ", " + OPTION_HOTSPOT_INDEX + "=" + this.hotSpotIndex
+				+ ", " + OPTION_SIMPLIFICATION_TOLERANCE + "=" + this.simplificationTolerance
+				+ ", " + OPTION_HATCH_PATTERNS + "=" + this.hatchPatterns
+				+ ", " + OPTION_STYLE_CLASSES + "=" + this.styleClasses
+				+ ", " + OPTION_DISPLAY_RESOLUTION + "=" + this.displayResolution
+				+ ", " + OPTION_QUANTIZED_COORDINATES + "=" + this.quantizedCoordinates
+				+ ", " + OPTION_COMPACT_PATH_DATA + "=" + this.compactPathData
+				+ ", " + OPTION_SYMBOL_INSTANCING + "=" + this.symbolInstancing
+				+ ", " + OPTION_HOTSPOTS_ON_TOP + "=" + this.hotSpotsOnTop
+				+ ", " + OPTION_FLATTEN_TRANSFORMS + "=" + this.flattenTransforms
+				+ "}";
+	}
+
+	@Override
+	public String toString() {
+		return "{" + OPTION_HOTSPOT_ENABLED + "=" + this.hotSpotEnabled
+				+ ", " + OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY + "=" + this.hotSpotInApplicationStructureOnly
+				+ ", " + OPTION_HOTSPOT_PADDING + "=" + this.hotSpotPadding
+				+ ", " + OPTION_HOTSPOT_REGEX + "=" + this.hotSpotRegex
+				+ ", " + OPTION_HOTSPOT_LINK + "=" + this.hotSpotLink
+				+ ", " + OPTION_HOTSPOT_COLOR + "=" + this.hotSpotColor
+				+ ", " + OPTION_STREAMING_OUTPUT + "=" + this.streamingOutput
+				+ ", " + OPTION_COMPRESSED_OUTPUT + "=" + this.compressedOutput
+				+ ", " + OPTION_COMPRESSION_LEVEL + "=" + this.compressionLevel
+				+ ", " + OPTION_HOTSPOT_INDEX + "=" + this.hotSpotIndex
+				+ ", " + OPTION_SIMPLIFICATION_TOLERANCE + "=" + this.simplificationTolerance
+				+ ", " + OPTION_HATCH_PATTERNS + "=" + this.hatchPatterns
+				+ ", " + OPTION_STYLE_CLASSES + "=" + this.styleClasses
+				+ ", " + OPTION_DISPLAY_RESOLUTION + "=" + this.displayResolution
+				+ ", " + OPTION_QUANTIZED_COORDINATES + "=" + this.quantizedCoordinates
+				+ ", " + OPTION_COMPACT_PATH_DATA + "=" + this.compactPathData
+				+ ", " + OPTION_SYMBOL_INSTANCING + "=" + this.symbolInstancing
+				+ ", " + OPTION_TILE_SIZE + "=" + this.tileSize
+				+ ", " + OPTION_TILE_LEVELS + "=" + this.tileLevels
+				+ ", " + OPTION_THUMBNAIL_SIZE + "=" + this.thumbnailSize
+				+ ", " + OPTION_HOTSPOTS_ON_TOP + "=" + this.hotSpotsOnTop
+				+ ", " + OPTION_FLATTEN_TRANSFORMS + "=" + this.flattenTransforms
+				+ ", " + OPTION_MEMORY_MAPPED_INPUT + "=" + this.memoryMappedInput
+				+ "}";
+	}
+
+	public static final class Builder {
+
+		private boolean hotSpotEnabled;
+		private boolean hotSpotInApplicationStructureOnly;
+		private Double hotSpotPadding;
+		private String hotSpotRegex;
+		private String hotSpotLink;
+		private String hotSpotColor;
+		private boolean streamingOutput;
+		private boolean compressedOutput;
+		private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+		private boolean hotSpotIndex;
+		private Double simplificationTolerance;
+		private boolean hatchPatterns;
+		private boolean styleClasses;
+		private Integer displayResolution;
+		private boolean quantizedCoordinates;
+		private boolean compactPathData;
+		private boolean symbolInstancing;
+		private int tileSize = 512;
+		private Integer tileLevels;
+		private Integer thumbnailSize;
+		private boolean hotSpotsOnTop;
+		private boolean flattenTransforms;
+		private boolean memoryMappedInput;
+
+		private Builder() {
+		}
+
+		/**
+		 * Enables the RestrictedText hotspot feature.
+		 */
+		public Builder hotSpotEnabled(boolean hotSpotEnabled) {
+			this.hotSpotEnabled = hotSpotEnabled;
+			return this;
+		}
+
+		/**
+		 * Only puts hotspots on RestrictedText within an ApplicationStructure.
+		 */
+		public Builder hotSpotInApplicationStructureOnly(boolean hotSpotInApplicationStructureOnly) {
+			this.hotSpotInApplicationStructureOnly = hotSpotInApplicationStructureOnly;
+			return this;
+		}
+
+		/**
+		 * Padding added to the hotspot box in px related to the cgm default size.
+		 */
+		public Builder hotSpotPadding(Double hotSpotPadding) {
+			this.hotSpotPadding = hotSpotPadding;
+			return this;
+		}
+
+		/**
+		 * Regular expression the whole RestrictedText must match to get a hotspot.
+		 */
+		public Builder hotSpotRegex(String hotSpotRegex) {
+			this.hotSpotRegex = hotSpotRegex;
+			return this;
+		}
+
+		/**
+		 * Link opened when the RestrictedText hotspot is clicked.
+		 */
+		public Builder hotSpotLink(String hotSpotLink) {
+			this.hotSpotLink = hotSpotLink;
+			return this;
+		}
+
+		/**
+		 * Colour of the hotspot (format: rgba(r, g, b, a), a hex colour or a colour keyword).
+		 *
+		 * @throws JcgmToSvgException if the colour is not one of these formats
+		 */
+		public Builder hotSpotColor(String hotSpotColor) {
+			this.hotSpotColor = parseColor(hotSpotColor);
+			return this;
+		}
+
+		/**
+		 * @return the colour as written on the hotspots, null when not set
+		 */
+		private static String parseColor(String color) {
+			if (color == null) {
+				return null;
+			}
+			String trimmed = color.trim();
+			if (!COLOR.matcher(trimmed).matches()) {
+				throw new JcgmToSvgException("Invalid value for the option {0}: {1}", OPTION_HOTSPOT_COLOR, color);
+			}
+			return trimmed;
+		}
+
+		/**
+		 * Writes the SVG while painting instead of building a Batik DOM.
+		 */
+		public Builder streamingOutput(boolean streamingOutput) {
+			this.streamingOutput = streamingOutput;
+			return this;
+		}
+
+		/**
+		 * Writes gzip compressed SVG (.svgz) through a streaming deflater.
+		 */
+		public Builder compressedOutput(boolean compressedOutput) {
+			this.compressedOutput = compressedOutput;
+			return this;
+		}
+
+		/**
+		 * Deflate level of the compressed output, from 0 (no compression) to 9 (best compression), -1 for the default.
+		 */
+		public Builder compressionLevel(int compressionLevel) {
+			this.compressionLevel = compressionLevel;
+			return this;
+		}
+
+		/**
+		 * Writes a spatial index of the hotspots and TDETs ({@link HotSpotIndex}) next to the SVG files.
+		 */
+		public Builder hotSpotIndex(boolean hotSpotIndex) {
+			this.hotSpotIndex = hotSpotIndex;
+			return this;
+		}
+
+		/**
+		 * Simplifies the drawn paths within this tolerance in px: straight curves become lines, collinear points are
+		 * merged and the shorter segments are dropped.
+		 */
+		public Builder simplificationTolerance(Double simplificationTolerance) {
+			this.simplificationTolerance = simplificationTolerance;
+			return this;
+		}
+
+		/**
+		 * Fills the hatched shapes with one SVG pattern per hatch type, colour and step instead of a line per step.
+		 */
+		public Builder hatchPatterns(boolean hatchPatterns) {
+			this.hatchPatterns = hatchPatterns;
+			return this;
+		}
+
+		/**
+		 * Writes every distinct style once as a class of the style sheet, the elements refer to it instead of
+		 * repeating the style inline. {@link SVGUtils#applyTransformation} only rescales inline styles.
+		 */
+		public Builder styleClasses(boolean styleClasses) {
+			this.styleClasses = styleClasses;
+			return this;
+		}
+
+		/**
+		 * Largest side in px the SVG is displayed at. The coordinates are written with just enough decimals to be
+		 * exact to half a pixel at this size instead of a fixed precision.
+		 */
+		public Builder displayResolution(Integer displayResolution) {
+			this.displayResolution = displayResolution;
+			return this;
+		}
+
+		/**
+		 * Writes the shapes with integer coordinates in a finer {@code viewBox}, scaled so that the rounding stays
+		 * below half a pixel at the display resolution. The hotspot bounds are in {@code viewBox} units.
+		 */
+		public Builder quantizedCoordinates(boolean quantizedCoordinates) {
+			this.quantizedCoordinates = quantizedCoordinates;
+			return this;
+		}
+
+		/**
+		 * Writes the path data with relative or absolute coordinates, whichever is shorter, without repeated command
+		 * letters, redundant separators nor leading zeros.
+		 */
+		public Builder compactPathData(boolean compactPathData) {
+			this.compactPathData = compactPathData;
+			return this;
+		}
+
+		/**
+		 * Writes the paths repeated at different positions once as a {@code <symbol>} placed with {@code <use>}.
+		 * Only done by the DOM output, not by the streaming output. {@link SVGUtils#applyTransformation} does not
+		 * recalculate {@code <use>} elements.
+		 */
+		public Builder symbolInstancing(boolean symbolInstancing) {
+			this.symbolInstancing = symbolInstancing;
+			return this;
+		}
+
+		/**
+		 * Width and height in px of the tiles of the tiled output, 512 by default.
+		 */
+		public Builder tileSize(int tileSize) {
+			this.tileSize = tileSize;
+			return this;
+		}
+
+		/**
+		 * Number of zoom levels of the tiled output, each one twice as large as the previous one. By default the
+		 * coarsest level fits in a single tile and the finest one is at least at the size of the CGM.
+		 */
+		public Builder tileLevels(Integer tileLevels) {
+			this.tileLevels = tileLevels;
+			return this;
+		}
+
+		/**
+		 * Largest side in px of a PNG thumbnail painted in the same pass as the SVG and written next to it.
+		 */
+		public Builder thumbnailSize(Integer thumbnailSize) {
+			this.thumbnailSize = thumbnailSize;
+			return this;
+		}
+
+		/**
+		 * Moves the hotspots on top of the drawing before the SVG is written, like
+		 * {@link SVGUtils#moveHotspotToRightLayer(java.io.File, java.io.File)} on the written file. Only done by the DOM
+		 * output.
+		 */
+		public Builder hotSpotsOnTop(boolean hotSpotsOnTop) {
+			this.hotSpotsOnTop = hotSpotsOnTop;
+			return this;
+		}
+
+		/**
+		 * Applies the transforms to the coordinates before the SVG is written, like
+		 * {@link SVGUtils#applyTransformation(java.io.File, java.io.File)} on the written file. Only done by the DOM
+		 * output.
+		 */
+		public Builder flattenTransforms(boolean flattenTransforms) {
+			this.flattenTransforms = flattenTransforms;
+			return this;
+		}
+
+		/**
+		 * Maps the CGM files in memory instead of reading them through a buffered stream. On Windows a mapped file
+		 * stays locked until the mapping is garbage collected, it cannot be deleted nor replaced right after the
+		 * conversion.
+		 */
+		public Builder memoryMappedInput(boolean memoryMappedInput) {
+			this.memoryMappedInput = memoryMappedInput;
+			return this;
+		}
+
+		/**
+		 * @throws java.util.regex.PatternSyntaxException if the hotspot regular expression is invalid
+		 * @throws JcgmToSvgException if the compression level, the simplification tolerance, the display
+		 *                            resolution, the tile size or levels or the thumbnail size is out of range
+		 */
+		public ConversionOptions build() {
+			return new ConversionOptions(this);
+		}
+	}
+}
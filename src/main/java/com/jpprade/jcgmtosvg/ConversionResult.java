@@ -0,0 +1,33 @@
+package com.jpprade.jcgmtosvg;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Outcome of the conversion of a single CGM file, or of a picture of a CGM file, in a batch.
+ *
+ * @param input      the CGM file
+ * @param output     the SVG file, may be null when the conversion failed before it was created
+ * @param status     whether the conversion succeeded or was skipped
+ * @param duration   the wall clock time spent on this file
+ * @param outputSize the size of the SVG file in bytes, 0 when it failed
+ * @param error      the failure cause, null on success
+ */
+public record ConversionResult(Path input, Path output, Status status, Duration duration, long outputSize, Throwable error) {
+
+	public enum Status {
+		SUCCESS,
+		/**
+		 * The SVG of an incremental conversion was already up to date.
+		 */
+		SKIPPED,
+		FAILED
+	}
+
+	/**
+	 * @return true when the SVG is available, converted or skipped
+	 */
+	public boolean isSuccess() {
+		return this.status != Status.FAILED;
+	}
+}
@@ -0,0 +1,62 @@
+package com.jpprade.jcgmtosvg;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digests of the CGMs and options, used as keys by the conversion cache and the batch manifest.
+ */
+final class Digests {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private Digests() {
+	}
+
+	/**
+	 * @param parts the bytes between the position and the limit of each buffer, the buffers are not modified
+	 * @return the hexadecimal SHA-256 of the concatenated parts
+	 */
+	static String sha256(ByteBuffer... parts) {
+		MessageDigest digest = newDigest();
+		for (ByteBuffer part : parts) {
+			digest.update(part.duplicate());
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	static String sha256(String text) {
+		return sha256(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * @return the hexadecimal SHA-256 of the file, read through a stream: a mapping would keep the file locked on
+	 * Windows until it is garbage collected
+	 */
+	static String sha256(Path file) throws IOException {
+		MessageDigest digest = newDigest();
+		try (InputStream in = Files.newInputStream(file)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new JcgmToSvgException("SHA-256 is not available", e);
+		}
+	}
+}
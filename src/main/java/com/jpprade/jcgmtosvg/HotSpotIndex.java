@@ -0,0 +1,293 @@
+package com.jpprade.jcgmtosvg;
+
+import com.jpprade.jcgmtosvg.extension.HotSpot;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable spatial index of the hotspots and TDETs of a drawing, for hit testing and "zoom to part" in
+ * logarithmic time instead of scanning every hotspot.
+ * <p>
+ * The index is a packed R-tree bulk loaded with the Sort-Tile-Recursive algorithm: the hotspots are sorted in
+ * vertical slices, then every node groups {@value #NODE_SIZE} consecutive nodes of the level below. The bounds
+ * of the nodes are held in a single array. The sidecar file written next to the SVG only holds the sorted
+ * hotspots, the upper levels are computed again when it is read.
+ */
+public final class HotSpotIndex {
+
+	/**
+	 * Extension of the sidecar file, replacing the extension of the SVG.
+	 */
+	public static final String EXTENSION = ".hsi";
+
+	static final int NODE_SIZE = 16;
+
+	private static final int MAGIC = 0x4A485349; // JHSI
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The hotspots in tree order, the leaves of the tree.
+	 */
+	private final HotSpot[] hotSpots;
+
+	/**
+	 * minX, minY, maxX, maxY of every node, the leaves first then level by level up to the root.
+	 */
+	private final double[] boxes;
+
+	private final int[] levelStarts;
+
+	private final int[] levelCounts;
+
+	private HotSpotIndex(HotSpot[] sorted) {
+		this.hotSpots = sorted;
+		int levels = 1;
+		int total = sorted.length;
+		for (int count = sorted.length; count > 1; levels++) {
+			count = (count + NODE_SIZE - 1) / NODE_SIZE;
+			total += count;
+		}
+		this.boxes = new double[4 * total];
+		this.levelStarts = new int[levels];
+		this.levelCounts = new int[levels];
+		for (int i = 0; i < sorted.length; i++) {
+			Rectangle2D bounds = sorted[i].bounds();
+			setBox(i, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+		}
+		this.levelCounts[0] = sorted.length;
+		for (int level = 1; level < levels; level++) {
+			int childStart = this.levelStarts[level - 1];
+			int childCount = this.levelCounts[level - 1];
+			int start = childStart + childCount;
+			int count = (childCount + NODE_SIZE - 1) / NODE_SIZE;
+			for (int node = 0; node < count; node++) {
+				int first = childStart + node * NODE_SIZE;
+				int last = childStart + Math.min(childCount, (node + 1) * NODE_SIZE);
+				double minX = Double.POSITIVE_INFINITY;
+				double minY = Double.POSITIVE_INFINITY;
+				double maxX = Double.NEGATIVE_INFINITY;
+				double maxY = Double.NEGATIVE_INFINITY;
+				for (int child = first; child < last; child++) {
+					minX = Math.min(minX, this.boxes[4 * child]);
+					minY = Math.min(minY, this.boxes[4 * child + 1]);
+					maxX = Math.max(maxX, this.boxes[4 * child + 2]);
+					maxY = Math.max(maxY, this.boxes[4 * child + 3]);
+				}
+				setBox(start + node, minX, minY, maxX, maxY);
+			}
+			this.levelStarts[level] = start;
+			this.levelCounts[level] = count;
+		}
+	}
+
+	/**
+	 * Builds the index of the hotspots recorded during a conversion.
+	 */
+	public static HotSpotIndex build(List<HotSpot> hotSpots) {
+		HotSpot[] sorted = hotSpots.toArray(new HotSpot[0]);
+		Arrays.sort(sorted, Comparator.comparingDouble(h -> h.bounds().getCenterX()));
+		int leaves = (sorted.length + NODE_SIZE - 1) / NODE_SIZE;
+		int sliceSize = NODE_SIZE * (int) Math.ceil(Math.sqrt(leaves));
+		for (int start = 0; start < sorted.length; start += sliceSize) {
+			Arrays.sort(sorted, start, Math.min(sorted.length, start + sliceSize),
+					Comparator.comparingDouble(h -> h.bounds().getCenterY()));
+		}
+		return new HotSpotIndex(sorted);
+	}
+
+	/**
+	 * @return the number of indexed hotspots and TDETs
+	 */
+	public int size() {
+		return this.hotSpots.length;
+	}
+
+	/**
+	 * @return the hotspots and TDETs whose bounds contain the point, borders included
+	 */
+	public List<HotSpot> at(double x, double y) {
+		return search(x, y, x, y);
+	}
+
+	/**
+	 * @return the hotspots and TDETs whose bounds intersect the rectangle, borders included
+	 */
+	public List<HotSpot> search(Rectangle2D area) {
+		return search(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY());
+	}
+
+	private List<HotSpot> search(double minX, double minY, double maxX, double maxY) {
+		List<HotSpot> result = new ArrayList<>();
+		if (this.hotSpots.length == 0) {
+			return result;
+		}
+		int top = this.levelStarts.length - 1;
+		// pending nodes as (level, absolute index) pairs
+		int[] stack = new int[2 * (top + 1) * NODE_SIZE];
+		int size = 0;
+		stack[size++] = top;
+		stack[size++] = this.levelStarts[top];
+		while (size > 0) {
+			int node = stack[--size];
+			int level = stack[--size];
+			if (!intersects(node, minX, minY, maxX, maxY)) {
+				continue;
+			}
+			if (level == 0) {
+				result.add(this.hotSpots[node]);
+				continue;
+			}
+			int first = firstChild(level, node);
+			int last = lastChild(level, node);
+			for (int child = first; child < last; child++) {
+				stack[size++] = level - 1;
+				stack[size++] = child;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param k the maximum number of hotspots returned
+	 * @return the k hotspots and TDETs whose bounds are the closest to the point, the closest first,
+	 * the ones containing the point are at a distance 0
+	 */
+	public List<HotSpot> nearest(double x, double y, int k) {
+		List<HotSpot> result = new ArrayList<>(Math.min(k, this.hotSpots.length));
+		if (this.hotSpots.length == 0 || k <= 0) {
+			return result;
+		}
+		// best first traversal, the leaves come out of the queue by increasing distance
+		PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(e -> e[0]));
+		int top = this.levelStarts.length - 1;
+		queue.add(new double[]{distanceSq(this.levelStarts[top], x, y), top, this.levelStarts[top]});
+		while (!queue.isEmpty() && result.size() < k) {
+			double[] entry = queue.poll();
+			int level = (int) entry[1];
+			int node = (int) entry[2];
+			if (level == 0) {
+				result.add(this.hotSpots[node]);
+				continue;
+			}
+			int first = firstChild(level, node);
+			int last = lastChild(level, node);
+			for (int child = first; child < last; child++) {
+				queue.add(new double[]{distanceSq(child, x, y), level - 1, child});
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the index, the stream is left open.
+	 */
+	public void write(OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeInt(this.hotSpots.length);
+		for (HotSpot hotSpot : this.hotSpots) {
+			out.writeByte(hotSpot.type().ordinal());
+			out.writeUTF(hotSpot.id());
+			out.writeUTF(hotSpot.apsId());
+			out.writeUTF(hotSpot.apsName());
+			Rectangle2D bounds = hotSpot.bounds();
+			out.writeDouble(bounds.getX());
+			out.writeDouble(bounds.getY());
+			out.writeDouble(bounds.getWidth());
+			out.writeDouble(bounds.getHeight());
+		}
+		out.flush();
+	}
+
+	public void write(Path file) throws IOException {
+		try (OutputStream os = Files.newOutputStream(file)) {
+			write(os);
+		}
+	}
+
+	/**
+	 * Reads an index written by {@link #write(OutputStream)}.
+	 *
+	 * @throws IOException if the stream is not a hotspot index
+	 */
+	public static HotSpotIndex read(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a hotspot index");
+		}
+		int version = in.readUnsignedShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported hotspot index version " + version);
+		}
+		HotSpot.Type[] types = HotSpot.Type.values();
+		HotSpot[] hotSpots = new HotSpot[in.readInt()];
+		for (int i = 0; i < hotSpots.length; i++) {
+			HotSpot.Type type = types[in.readUnsignedByte()];
+			String id = in.readUTF();
+			String apsId = in.readUTF();
+			String apsName = in.readUTF();
+			Rectangle2D.Double bounds = new Rectangle2D.Double(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+			hotSpots[i] = new HotSpot(type, id, apsId, apsName, bounds);
+		}
+		return new HotSpotIndex(hotSpots);
+	}
+
+	public static HotSpotIndex read(Path file) throws IOException {
+		try (InputStream is = Files.newInputStream(file)) {
+			return read(is);
+		}
+	}
+
+	/**
+	 * @param svg the SVG file
+	 * @return the sidecar index file of the SVG, in the same directory
+	 */
+	public static Path sidecar(Path svg) {
+		String name = svg.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return svg.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + EXTENSION);
+	}
+
+	private void setBox(int node, double minX, double minY, double maxX, double maxY) {
+		this.boxes[4 * node] = minX;
+		this.boxes[4 * node + 1] = minY;
+		this.boxes[4 * node + 2] = maxX;
+		this.boxes[4 * node + 3] = maxY;
+	}
+
+	private boolean intersects(int node, double minX, double minY, double maxX, double maxY) {
+		return this.boxes[4 * node] <= maxX && this.boxes[4 * node + 1] <= maxY
+				&& this.boxes[4 * node + 2] >= minX && this.boxes[4 * node + 3] >= minY;
+	}
+
+	private double distanceSq(int node, double x, double y) {
+		double dx = Math.max(0, Math.max(this.boxes[4 * node] - x, x - this.boxes[4 * node + 2]));
+		double dy = Math.max(0, Math.max(this.boxes[4 * node + 1] - y, y - this.boxes[4 * node + 3]));
+		return dx * dx + dy * dy;
+	}
+
+	private int firstChild(int level, int node) {
+		return this.levelStarts[level - 1] + (node - this.levelStarts[level]) * NODE_SIZE;
+	}
+
+	private int lastChild(int level, int node) {
+		int childLevelEnd = this.levelStarts[level - 1] + this.levelCounts[level - 1];
+		return Math.min(childLevelEnd, firstChild(level, node) + NODE_SIZE);
+	}
+}
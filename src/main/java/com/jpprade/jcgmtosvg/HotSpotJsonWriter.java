@@ -0,0 +1,43 @@
+package com.jpprade.jcgmtosvg;
+
+import com.jpprade.jcgmtosvg.extension.HotSpot;
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.awt.Dimension;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the hotspots of a CGM as a single JSON object:
+ * <pre>
+ * {"width":800,"height":600,"hotspots":[{"type":"hotspot","id":"rt_0","apsid":"12","apsname":"12",
+ *   "x":10.5,"y":20.0,"width":30.0,"height":8.0}]}
+ * </pre>
+ */
+final class HotSpotJsonWriter {
+
+	private HotSpotJsonWriter() {
+	}
+
+	static void write(Dimension size, List<HotSpot> hotSpots, Writer out) throws IOException {
+		out.write("{\"width\":" + size.width + ",\"height\":" + size.height + ",\"hotspots\":[");
+		for (int i = 0; i < hotSpots.size(); i++) {
+			HotSpot hotSpot = hotSpots.get(i);
+			Rectangle2D bounds = hotSpot.bounds();
+			if (i > 0) {
+				out.write(',');
+			}
+			out.write("{\"type\":\"" + hotSpot.type().name().toLowerCase(Locale.ROOT) + '"');
+			out.write(",\"id\":\"" + StringEscapeUtils.escapeJson(hotSpot.id()) + '"');
+			out.write(",\"apsid\":\"" + StringEscapeUtils.escapeJson(hotSpot.apsId()) + '"');
+			out.write(",\"apsname\":\"" + StringEscapeUtils.escapeJson(hotSpot.apsName()) + '"');
+			out.write(",\"x\":" + bounds.getX() + ",\"y\":" + bounds.getY()
+					+ ",\"width\":" + bounds.getWidth() + ",\"height\":" + bounds.getHeight() + '}');
+		}
+		out.write("]}");
+		out.flush();
+	}
+}
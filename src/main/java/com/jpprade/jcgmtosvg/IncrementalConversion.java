@@ -0,0 +1,128 @@
+package com.jpprade.jcgmtosvg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Incremental conversion of the CGM files of a directory driven by a {@link ConversionManifest}, see
+ * {@link JcgmToSvgConverter#convertIncremental(Path, Path, Path, int)}.
+ */
+final class IncrementalConversion {
+
+	private static final Logger logger = LoggerFactory.getLogger(IncrementalConversion.class);
+
+	private final JcgmToSvgConverter converter;
+
+	private final ConversionOptions options;
+
+	IncrementalConversion(JcgmToSvgConverter converter) {
+		this.converter = converter;
+		this.options = converter.getOptions();
+	}
+
+	/**
+	 * @return the result of each conversion, in the order the files were listed
+	 */
+	List<ConversionResult> convert(Path inputDirectory, Path outputDirectory, Path manifest, int parallelism) throws IOException {
+		List<Path> inputs = JcgmToSvg.listCgmFiles(inputDirectory);
+		String optionsHash = Digests.sha256(this.options.outputKey());
+		try (ConversionManifest conversionManifest = ConversionManifest.open(manifest);
+		     ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+			deleteRemovedOutputs(inputs, outputDirectory, conversionManifest);
+			logger.info("Start of the incremental conversion of {} CGM files.", inputs.size());
+			List<ConversionResult> results = this.converter.runAll(inputs, executor, parallelism,
+					input -> convertIfChanged(input, outputDirectory, conversionManifest, optionsHash));
+			logger.info("End of the incremental conversion, {} skipped, {} failed.",
+					results.stream().filter(r -> r.status() == ConversionResult.Status.SKIPPED).count(),
+					results.stream().filter(r -> !r.isSuccess()).count());
+			return results;
+		}
+	}
+
+	private static void deleteRemovedOutputs(List<Path> inputs, Path outputDirectory, ConversionManifest manifest) throws IOException {
+		Set<String> names = new HashSet<>();
+		for (Path input : inputs) {
+			names.add(input.getFileName().toString());
+		}
+		for (String name : manifest.inputs()) {
+			if (!names.contains(name)) {
+				Path output = outputDirectory.resolve(manifest.get(name).output());
+				Files.deleteIfExists(output);
+				Files.deleteIfExists(HotSpotIndex.sidecar(output));
+				Files.deleteIfExists(JcgmToSvgConverter.thumbnailFile(output));
+				manifest.remove(name);
+				logger.info("Deleted the SVG {} of the removed CGM {}", output, name);
+			}
+		}
+	}
+
+	private ConversionResult convertIfChanged(Path input, Path outputDirectory, ConversionManifest manifest, String optionsHash) {
+		long begin = System.nanoTime();
+		String name = input.getFileName().toString();
+		ConversionManifest.Entry previous = manifest.get(name);
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(input, BasicFileAttributes.class);
+			long modified = attributes.lastModifiedTime().toMillis();
+			boolean unchanged = previous != null && previous.inputSize() == attributes.size() && previous.inputModified() == modified;
+			String inputHash = unchanged ? previous.inputHash() : Digests.sha256(input);
+			if (previous != null && isUpToDate(previous, inputHash, optionsHash, outputDirectory)) {
+				if (!unchanged) {
+					// touched but identical, not hashed again next time
+					manifest.put(new ConversionManifest.Entry(name, attributes.size(), modified, inputHash, optionsHash,
+							JcgmToSvgConverter.VERSION, previous.output(), previous.outputSize()));
+				}
+				Duration duration = Duration.ofNanos(System.nanoTime() - begin);
+				return new ConversionResult(input, outputDirectory.resolve(previous.output()), ConversionResult.Status.SKIPPED,
+						duration, previous.outputSize(), null);
+			}
+
+			ConversionResult result = this.converter.convertOne(input, outputDirectory);
+			if (!result.isSuccess()) {
+				manifest.remove(name);
+				return result;
+			}
+			String output = result.output().getFileName().toString();
+			if (previous != null && !previous.output().equals(output)) {
+				// e.g. the compressed output was enabled, the .svg is replaced by a .svgz
+				Files.deleteIfExists(outputDirectory.resolve(previous.output()));
+			}
+			manifest.put(new ConversionManifest.Entry(name, attributes.size(), modified, inputHash, optionsHash,
+					JcgmToSvgConverter.VERSION, output, result.outputSize()));
+			return result;
+		} catch (IOException | RuntimeException e) {
+			logger.error("Error while converting CGM {}", input, e);
+			Duration duration = Duration.ofNanos(System.nanoTime() - begin);
+			return new ConversionResult(input, null, ConversionResult.Status.FAILED, duration, 0, e);
+		}
+	}
+
+	private boolean isUpToDate(ConversionManifest.Entry entry, String inputHash, String optionsHash, Path outputDirectory) {
+		if (!entry.inputHash().equals(inputHash) || !entry.optionsHash().equals(optionsHash)
+				|| !entry.converterVersion().equals(JcgmToSvgConverter.VERSION)) {
+			return false;
+		}
+		Path output = outputDirectory.resolve(entry.output());
+		if (this.options.isHotSpotIndex() && !Files.exists(HotSpotIndex.sidecar(output))) {
+			return false;
+		}
+		if (this.options.getThumbnailSize() != null && !Files.exists(JcgmToSvgConverter.thumbnailFile(output))) {
+			return false;
+		}
+		try {
+			return Files.size(output) == entry.outputSize();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
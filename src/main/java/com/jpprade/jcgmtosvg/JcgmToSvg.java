@@ -1,43 +1,27 @@
 package com.jpprade.jcgmtosvg;
 
-import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import com.jpprade.jcgmtosvg.extension.HotSpot;
 import net.sf.jcgm.core.CGMDisplay;
-import net.sf.jcgm.core.Command;
-import net.sf.jcgm.core.ScalingMode;
-import org.apache.batik.anim.dom.SVGDOMImplementation;
-import org.apache.batik.svggen.SVGGeneratorContext;
-import org.apache.batik.svggen.SVGGraphics2D;
 import org.apache.batik.svggen.SVGGraphics2DIOException;
-import org.apache.batik.svggen.SVGSyntax;
-import org.apache.batik.util.SVGConstants;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.w3c.dom.CDATASection;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.svg.SVGSVGElement;
 
 import java.awt.*;
-import java.io.Closeable;
+import java.awt.geom.AffineTransform;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 public class JcgmToSvg {
 	
-	private static final Logger logger = LoggerFactory.getLogger(JcgmToSvg.class);
-	
 	/**
 	 * Converts a single CGM to an SVG
 	 *
@@ -49,7 +33,8 @@ public class JcgmToSvg {
 	}
 
 	/**
-	 * Converts a single CGM to an SVG
+	 * Converts a single CGM to an SVG.
+	 * To convert several files with the same options, create a {@link JcgmToSvgConverter} once and reuse it.
 	 *
 	 * @param is the input stream of the CGM
 	 * @param os an output stream of the converted SVG
@@ -60,77 +45,59 @@ public class JcgmToSvg {
 	 * - hotSpotRegex: Filter Restricted text hotspots based on a regular expression
 	 * - hotSpotLink: Add a specific link to the Restricted text hotspot
 	 * - hotSpotColor: Specify the color of the hotSpot (format: rgba(r, g, b, a))
+	 * - streamingOutput: Write the SVG while painting instead of building a Batik DOM, memory no longer grows with the document size
+	 * - compressedOutput: Write gzip compressed SVG (.svgz) through a streaming deflater
+	 * - compressionLevel: Deflate level of the compressed output, from 0 to 9 (default: -1, the zlib default level)
+	 * - hotSpotIndex: Write a spatial index of the hotspots (.hsi, see {@link HotSpotIndex}) next to the SVG files
+	 * - simplificationTolerance: Simplify the paths within this tolerance in px, straight curves become lines and collinear points are merged
+	 * - hatchPatterns: Fill the hatched shapes with shared SVG patterns instead of drawing every hatch line
+	 * - styleClasses: Write every distinct style once as a CSS class instead of repeating it inline on the elements
+	 * - displayResolution: Largest side in px the SVG is displayed at, the coordinates get just enough decimals for this size
+	 * - quantizedCoordinates: Write the shapes with integer coordinates in a finer viewBox
+	 * - compactPathData: Write the path data with the shorter of relative and absolute coordinates and no redundant letter or separator
+	 * - symbolInstancing: Write the paths repeated at different positions once as a symbol placed with use elements (DOM output only)
+	 * - tileSize: Width and height in px of the tiles written by {@link #convertTiled(Path, Path, Map)} (default: 512)
+	 * - tileLevels: Number of zoom levels of the tiled output (default: enough for the coarsest level to fit in one tile)
+	 * - thumbnailSize: Largest side in px of a PNG thumbnail painted in the same pass as the SVG and written next to the SVG files
+	 * - hotSpotsOnTop: Move the hotspots on top of the drawing before the SVG is written (DOM output only)
+	 * - flattenTransforms: Apply the transforms to the coordinates before the SVG is written (DOM output only)
+	 * - memoryMappedInput: Map the CGM files in memory instead of reading them through a stream, a mapped file stays locked on Windows until it is garbage collected
+	 * @see ConversionOptions
 	 */
 	public static void convert(InputStream is, OutputStream os, Map<String, Object> options) throws SVGGraphics2DIOException {
-		logger.info("Start of CGM file to SVG conversion with the options:{}.", options.toString());
-		// Get a DOMImplementation.
-		DOMImplementation domImpl = SVGDOMImplementation.getDOMImplementation();
-		
-		// Create an instance of org.w3c.dom.Document.
-		Document document = domImpl.createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
-		
-		SVGPainter svgPainter = new SVGPainter();
-		
-		SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
-		
-		CGM4SVG cgm;
-		try {
-			cgm = loadCgm(is, svgPainter, options);
-		} catch (Exception e) {
-			logger.error("Error while converting CGM to SVG" + ", " + e.getMessage(), e);
-			throw new JcgmToSvgException("Error while converting the CGM to SVG", e.getCause());
-		}
-		
-		if (cgm == null) {
-			throw new JcgmToSvgException("Could not load the CGM");
-		}
-		
-		double scale = findScale(cgm);
-		if (scale > 0 && scale <= 0.0001) {
-			ctx.setPrecision(8);
-			logger.info("Precision 8 {}", scale);
-		} else if (scale > 0.0001 && scale < 0.01) {
-			ctx.setPrecision(4);
-			logger.info("Precision 4 {}", scale);
-		} else {
-			ctx.setPrecision(4);
-		}
-		
-		CDATASection styleSheet = document.createCDATASection("");
-		
-		// Create an instance of the SVG Generator.
-		SVGGraphics2D svgGenerator = new SVGGraphics2DHS(ctx, false);
-		
-		try {
-			paint2(svgGenerator, cgm);
-		} catch (NullPointerException e) {
-			closeStreams(is, os);
-			throw new JcgmToSvgException("Invalid CGM input stream: ", e);
-		}
-		
-		svgGenerator.setSVGCanvasSize(cgm.getSize());
-		
-		Element root = createrCss(document, styleSheet, svgGenerator);
-		
-		// Finally, stream out SVG to the standard output using
-		// UTF-8 encoding.
-		boolean useCSS = true; // we want to use CSS style attributes
-		Writer out = new OutputStreamWriter(os, StandardCharsets.UTF_8);
-		svgGenerator.stream(root, out, useCSS, false);
-		
-		logger.info("End of CGM file to SVG conversion.");
+		new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convert(is, os);
 	}
-
-	private static void closeStreams(Closeable... streams) {
-		for (Closeable stream : streams) {
-			if (stream != null) {
-				try {
-					stream.close();
-				} catch (IOException e) {
-					logger.info("Error while closing streams (invalid CGM input files):", e);
-				}
-			}
-		}
+	
+	/**
+	 * Converts a single CGM file to an SVG, the file is memory-mapped with the memoryMappedInput option.
+	 *
+	 * @param input   the CGM file
+	 * @param os      an output stream of the converted SVG
+	 * @param options the conversion options, see {@link #convert(InputStream, OutputStream, Map)}
+	 */
+	public static void convert(Path input, OutputStream os, Map<String, Object> options) throws IOException {
+		new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convert(input, os);
+	}
+	
+	/**
+	 * Converts a single CGM to an SVG and a PNG thumbnail, the CGM is parsed and painted once for both.
+	 *
+	 * @param thumbnail an output stream of the PNG thumbnail
+	 * @param options   the conversion options, see {@link #convert(InputStream, OutputStream, Map)}
+	 * @see JcgmToSvgConverter#convert(InputStream, OutputStream, OutputStream)
+	 */
+	public static void convert(InputStream is, OutputStream os, OutputStream thumbnail, Map<String, Object> options) throws SVGGraphics2DIOException {
+		new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convert(is, os, thumbnail);
+	}
+	
+	/**
+	 * Converts a single CGM to an SVG, reporting the phase timings and metrics of the conversion.
+	 *
+	 * @param listener receives the metrics, see {@link ConversionListener}
+	 * @see #convert(InputStream, OutputStream, Map)
+	 */
+	public static void convert(InputStream is, OutputStream os, Map<String, Object> options, ConversionListener listener) throws SVGGraphics2DIOException {
+		new JcgmToSvgConverter(ConversionOptions.fromMap(options), listener).convert(is, os);
 	}
 	
 	/**
@@ -138,7 +105,7 @@ public class JcgmToSvg {
 	 *
 	 * @param fileInput       path to the CGM file
 	 * @param directoryOutput path to the SVG directory output
-	 * @return the SVG file
+	 * @return the SVG file, with the .svgz extension when the compressed output is enabled
 	 * @throws IOException
 	 */
 	public static File convert(String fileInput, String directoryOutput) throws IOException {
@@ -146,77 +113,99 @@ public class JcgmToSvg {
 	}
 	
 	public static File convert(String fileInput, String directoryOutput, Map<String, Object> options) throws IOException {
-		File file = new File(fileInput);
-
-		String fname = getFilenameWithoutExtension(new File(fileInput));
-		File dout = new File(directoryOutput);
-		File outf = new File(dout.getAbsolutePath() + "/" + fname + ".svg");
-		FileOutputStream fos = new FileOutputStream(outf);
-
-        try (InputStream inputStream = new FileInputStream(file)) {
-			convert(inputStream, fos, options);           
-        } catch (IOException e) {
-            logger.error("An error occured during the conversion: {}", e);
-        }
-		
-		return outf;
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convert(fileInput, directoryOutput);
 	}
 	
 	
-	private static double findScale(CGM4SVG cgm) {
-		List<Command> commands = cgm.getCommands();
-		for (Command c : commands) {
-			if (c instanceof ScalingMode sm) {
-				return sm.getMetricScalingFactor();
-			}
-		}
-		return 0;
+	/**
+	 * Converts all the CGM files of a directory in parallel on a fixed pool of worker threads.
+	 *
+	 * @param inputDirectory  directory containing the CGM files (not recursive)
+	 * @param outputDirectory directory where the SVG files are written
+	 * @param options         the conversion options, see {@link #convert(InputStream, OutputStream, Map)}
+	 * @param parallelism     the number of worker threads
+	 * @return the result of each conversion, in the order the files were listed
+	 * @throws IOException if the input directory cannot be listed
+	 */
+	public static List<ConversionResult> convertAll(Path inputDirectory, Path outputDirectory, Map<String, Object> options, int parallelism) throws IOException {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convertAll(inputDirectory, outputDirectory, parallelism);
 	}
 	
-	private static Element createrCss(Document document, CDATASection styleSheet, SVGGraphics2D svgGenerator) {
-		// Add a stylesheet to the definition section.
-		SVGSVGElement root = (SVGSVGElement) svgGenerator.getRoot();
-		
-		Element defs = root.getElementById(SVGSyntax.ID_PREFIX_GENERIC_DEFS);
-		Element style = document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_STYLE_TAG);
-		style.setAttributeNS(null, SVGConstants.SVG_TYPE_ATTRIBUTE, "text/css");
-		style.appendChild(styleSheet);
-		defs.appendChild(style);
-		styleSheet.appendData("svg { fill-rule: evenodd;pointer-events: none;}");
-		
-		styleSheet.appendData(".hotspot { cursor: pointer;pointer-events: all;}");
-		styleSheet.appendData("@keyframes blink {100%,0% {fill: transparent;}60% {fill: #f00;}}.hotspotBlink {animation: blink 0.25s 3;}");
-		//-----------JS
-		
-		Element javascript = document.createElement(SVGConstants.SVG_SCRIPT_TAG);
-		javascript.setAttribute("id", "nativeJSHS");
-		defs.appendChild(javascript);
-		
-		CDATASection javascriptData = document.createCDATASection("");
-		javascript.appendChild(javascriptData);
-		
-		javascriptData.appendData("function clickHS(apsid){var apselement = document.getElementById(apsid);apselement.classList.add('hotspotBlink');setTimeout(function(){apselement.classList.remove('hotspotBlink');},750);}");
-		
-		return root;
+	/**
+	 * Converts a list of CGM files in parallel on the given executor, the options are parsed once for the whole batch.
+	 *
+	 * @see JcgmToSvgConverter#convertAll(List, Path, Executor, int)
+	 */
+	public static List<ConversionResult> convertAll(List<Path> inputs, Path outputDirectory, Map<String, Object> options, Executor executor, int maxConcurrent) {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convertAll(inputs, outputDirectory, executor, maxConcurrent);
+	}
+	
+	/**
+	 * Converts every picture of a CGM file to its own SVG, in parallel on the given executor.
+	 *
+	 * @see JcgmToSvgConverter#convertPictures(Path, Path, Executor, int)
+	 */
+	public static List<ConversionResult> convertPictures(Path input, Path outputDirectory, Map<String, Object> options, Executor executor, int maxConcurrent) throws IOException {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convertPictures(input, outputDirectory, executor, maxConcurrent);
+	}
+	
+	/**
+	 * Extracts the hotspots and TDETs of a CGM without rendering the SVG.
+	 *
+	 * @param options the conversion options, see {@link #convert(InputStream, OutputStream, Map)}
+	 * @see JcgmToSvgConverter#extractHotSpots(InputStream)
+	 */
+	public static List<HotSpot> extractHotSpots(InputStream is, Map<String, Object> options) {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).extractHotSpots(is);
+	}
+	
+	/**
+	 * Converts the CGM files of a directory that changed since the previous run recorded in the manifest.
+	 *
+	 * @see JcgmToSvgConverter#convertIncremental(Path, Path, Path, int)
+	 */
+	public static List<ConversionResult> convertIncremental(Path inputDirectory, Path outputDirectory, Path manifest, Map<String, Object> options, int parallelism) throws IOException {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convertIncremental(inputDirectory, outputDirectory, manifest, parallelism);
 	}
 	
-	private static CGM4SVG loadCgm(InputStream is, SVGPainter svgPainter, Map<String, Object> options) {
-		CGM4SVG cgm;
-		try {
-			cgm = new CGM4SVG(is, svgPainter, options);
-		} catch (IOException e) {
-			logger.error("Error while loading the CGM from the input stream: " + e.getMessage(), e);
-			return null;
+	/**
+	 * Converts a CGM file to SVG tiles at several zoom levels with an index and a hotspot overlay.
+	 *
+	 * @param options the conversion options, see {@link #convert(InputStream, OutputStream, Map)}
+	 * @return the index file
+	 * @see JcgmToSvgConverter#convertTiled(Path, Path)
+	 */
+	public static Path convertTiled(Path input, Path outputDirectory, Map<String, Object> options) throws IOException {
+		return new JcgmToSvgConverter(ConversionOptions.fromMap(options)).convertTiled(input, outputDirectory);
+	}
+	
+	static List<Path> listCgmFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(Files::isRegularFile)
+					.filter(f -> f.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".cgm"))
+					.sorted()
+					.toList();
 		}
-		return cgm;
 	}
 	
 	public static void paint2(Graphics2D g2d, CGM4SVG cgm) {
+		paint2(g2d, cgm, 1);
+	}
+	
+	/**
+	 * Paints the CGM in a canvas {@code scale} times larger than its size.
+	 */
+	static void paint2(Graphics2D g2d, CGM4SVG cgm, double scale) {
 		final CGMDisplay display = new CGMDisplay4SVG(cgm);
 		Dimension size = cgm.getSize();
 		int width = size.width;
 		int height = size.height;
 		display.scale(g2d, width, height);
+		if (scale != 1) {
+			AffineTransform transform = AffineTransform.getScaleInstance(scale, scale);
+			transform.concatenate(g2d.getTransform());
+			g2d.setTransform(transform);
+		}
 		display.paint(g2d);
 	}
 	
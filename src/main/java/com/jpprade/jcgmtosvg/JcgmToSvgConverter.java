@@ -0,0 +1,982 @@
+package com.jpprade.jcgmtosvg;
+
+import com.jpprade.jcgmtosvg.extension.HatchPatternHandler;
+import com.jpprade.jcgmtosvg.extension.HotSpot;
+import com.jpprade.jcgmtosvg.extension.HotSpotCollector;
+import com.jpprade.jcgmtosvg.extension.PathSimplifier;
+import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import com.jpprade.jcgmtosvg.extension.StreamingSVGGraphics2D;
+import com.jpprade.jcgmtosvg.extension.StyleClasses;
+import com.jpprade.jcgmtosvg.extension.SymbolInstancing;
+import com.jpprade.jcgmtosvg.extension.TeeGraphics2D;
+import net.sf.jcgm.core.Command;
+import net.sf.jcgm.core.ScalingMode;
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGCSSStyler;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.batik.svggen.SVGGraphics2DIOException;
+import org.apache.batik.svggen.SVGSyntax;
+import org.apache.batik.util.SVGConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.svg.SVGSVGElement;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Reusable CGM to SVG converter.
+ * <p>
+ * The options are parsed once when the converter is created. A converter holds no mutable state, so a single
+ * instance can be shared by any number of threads, e.g. a server converting requests concurrently or a batch.
+ */
+public final class JcgmToSvgConverter {
+
+	private static final Logger logger = LoggerFactory.getLogger(JcgmToSvgConverter.class);
+
+	static final String STYLE_SHEET = "svg { fill-rule: evenodd;pointer-events: none;}"
+			+ ".hotspot { cursor: pointer;pointer-events: all;}"
+			+ "@keyframes blink {100%,0% {fill: transparent;}60% {fill: #f00;}}.hotspotBlink {animation: blink 0.25s 3;}";
+
+	static final String HOTSPOT_SCRIPT = "function clickHS(apsid){var apselement = document.getElementById(apsid);apselement.classList.add('hotspotBlink');setTimeout(function(){apselement.classList.remove('hotspotBlink');},750);}";
+
+	private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
+
+	private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Largest side in px of the thumbnails when the options have no thumbnail size.
+	 */
+	static final int DEFAULT_THUMBNAIL_SIZE = 256;
+
+	/**
+	 * Extension of the thumbnail written next to the SVG, replacing the extension of the SVG.
+	 */
+	static final String THUMBNAIL_EXTENSION = ".png";
+
+	/**
+	 * The version of the converter recorded in the manifest of the incremental conversions, the SVGs produced
+	 * by another version are converted again. It is read from the jar manifest.
+	 */
+	static final String VERSION = Objects.requireNonNullElse(JcgmToSvgConverter.class.getPackage().getImplementationVersion(), "dev");
+
+	private final ConversionOptions options;
+
+	private final ConversionListener listener;
+
+	public JcgmToSvgConverter() {
+		this(ConversionOptions.DEFAULT);
+	}
+
+	public JcgmToSvgConverter(ConversionOptions options) {
+		this(options, ConversionListener.NOOP);
+	}
+
+	/**
+	 * @param listener receives the phase timings and metrics of every conversion, must be thread-safe
+	 *                 when the converter is shared
+	 */
+	public JcgmToSvgConverter(ConversionOptions options, ConversionListener listener) {
+		this.options = Objects.requireNonNull(options, "options");
+		this.listener = Objects.requireNonNull(listener, "listener");
+	}
+
+	public ConversionOptions getOptions() {
+		return this.options;
+	}
+
+	/**
+	 * Converts a single CGM to an SVG
+	 *
+	 * @param is the input stream of the CGM
+	 * @param os an output stream of the converted SVG
+	 */
+	public void convert(InputStream is, OutputStream os) throws SVGGraphics2DIOException {
+		convert(is, os, painter -> new CGM4SVG(is, painter, this.options), null, null);
+	}
+
+	/**
+	 * Converts a single CGM to an SVG and paints a PNG thumbnail of it in the same pass: the parsed CGM is painted
+	 * once through a {@link TeeGraphics2D} feeding both the SVG generator and the image. The hotspots are not drawn
+	 * on the thumbnail.
+	 *
+	 * @param is        the input stream of the CGM
+	 * @param os        an output stream of the converted SVG
+	 * @param thumbnail an output stream of the PNG thumbnail, whose largest side is the thumbnail size of the options,
+	 *                  {@value #DEFAULT_THUMBNAIL_SIZE} px by default
+	 */
+	public void convert(InputStream is, OutputStream os, OutputStream thumbnail) throws SVGGraphics2DIOException {
+		convert(is, os, painter -> new CGM4SVG(is, painter, this.options), null, Objects.requireNonNull(thumbnail, "thumbnail"));
+	}
+
+	/**
+	 * Converts a single CGM to an SVG and builds the spatial index of its hotspots and TDETs in the same pass.
+	 *
+	 * @param is the input stream of the CGM
+	 * @param os an output stream of the converted SVG
+	 * @return the index of the hotspots and TDETs of the SVG
+	 */
+	public HotSpotIndex convertWithIndex(InputStream is, OutputStream os) throws SVGGraphics2DIOException {
+		List<HotSpot> hotSpots = new ArrayList<>();
+		convert(is, os, painter -> new CGM4SVG(is, painter, this.options), hotSpots, null);
+		return HotSpotIndex.build(hotSpots);
+	}
+
+	/**
+	 * Converts the CGM built by the reader, e.g. a CGM already parsed.
+	 */
+	void convert(CgmReader reader, OutputStream os) throws SVGGraphics2DIOException {
+		convert(null, os, reader, null, null);
+	}
+
+	/**
+	 * Converts a single CGM held in a heap or memory-mapped buffer to an SVG.
+	 *
+	 * @param cgm the CGM bytes between the position and the limit of the buffer
+	 * @param os  an output stream of the converted SVG
+	 */
+	public void convert(ByteBuffer cgm, OutputStream os) throws SVGGraphics2DIOException {
+		convert(null, os, painter -> new CGM4SVG(cgm, painter, this.options), null, null);
+	}
+
+	/**
+	 * Converts a single CGM file to an SVG. The file is read through a buffered stream, or memory-mapped when the
+	 * memory-mapped input option is enabled.
+	 *
+	 * @param input the CGM file
+	 * @param os    an output stream of the converted SVG
+	 * @throws IOException if the file cannot be read
+	 */
+	public void convert(Path input, OutputStream os) throws IOException {
+		convertFile(input, os, null, null);
+	}
+
+	private void convertFile(Path input, OutputStream os, List<HotSpot> hotSpots, OutputStream thumbnail) throws IOException {
+		if (this.options.isMemoryMappedInput()) {
+			ByteBuffer cgm = read(input);
+			convert(null, os, painter -> new CGM4SVG(cgm, painter, this.options), hotSpots, thumbnail);
+			return;
+		}
+		try (InputStream is = Files.newInputStream(input)) {
+			convert(is, os, painter -> new CGM4SVG(is, painter, this.options), hotSpots, thumbnail);
+		}
+	}
+
+	/**
+	 * @return the bytes of the CGM file, mapped when the memory-mapped input option is enabled, read on the heap
+	 * otherwise: on Windows a mapped file stays locked until the mapping is garbage collected
+	 */
+	ByteBuffer read(Path input) throws IOException {
+		if (!this.options.isMemoryMappedInput()) {
+			return ByteBuffer.wrap(Files.readAllBytes(input));
+		}
+		try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Extracts the hotspots and TDETs of a CGM without rendering the SVG: the commands are painted on a
+	 * {@link HotSpotCollector} which discards the drawing, no SVG element is created. The restricted text
+	 * hotspots are only extracted with the hotspot enabled option.
+	 *
+	 * @param is the input stream of the CGM
+	 * @return the hotspots and TDETs in painting order, with the bounds written on the SVG hotspots
+	 */
+	public List<HotSpot> extractHotSpots(InputStream is) {
+		return extract(painter -> new CGM4SVG(is, painter, this.options)).hotSpots();
+	}
+
+	/**
+	 * @param cgm the CGM bytes between the position and the limit of the buffer
+	 * @see #extractHotSpots(InputStream)
+	 */
+	public List<HotSpot> extractHotSpots(ByteBuffer cgm) {
+		return extract(painter -> new CGM4SVG(cgm, painter, this.options)).hotSpots();
+	}
+
+	/**
+	 * Extracts the hotspots of a CGM file and writes them as a JSON record with the canvas size, see
+	 * {@link #extractHotSpots(InputStream)}. The file is memory-mapped when the memory-mapped input option is enabled.
+	 *
+	 * @param input the CGM file
+	 * @param os    an output stream of the JSON record, left open
+	 * @throws IOException if the file cannot be read or the record cannot be written
+	 */
+	public void writeHotSpots(Path input, OutputStream os) throws IOException {
+		ByteBuffer cgm = read(input);
+		Extraction extraction = extract(painter -> new CGM4SVG(cgm, painter, this.options));
+		HotSpotJsonWriter.write(extraction.size(), extraction.hotSpots(), new OutputStreamWriter(os, StandardCharsets.UTF_8));
+	}
+
+	private Extraction extract(CgmReader reader) {
+		CGM4SVG cgm;
+		try {
+			cgm = loadCgm(reader, new SVGPainter());
+		} catch (Exception e) {
+			throw new JcgmToSvgException("Error while extracting the hotspots of the CGM", e.getCause());
+		}
+		if (cgm == null) {
+			throw new JcgmToSvgException("Could not load the CGM");
+		}
+		HotSpotCollector collector = new HotSpotCollector();
+		try {
+			JcgmToSvg.paint2(collector, cgm);
+		} catch (NullPointerException e) {
+			throw new JcgmToSvgException("Invalid CGM input stream: ", e);
+		}
+		return new Extraction(cgm.getSize(), collector.getHotSpots());
+	}
+
+	private record Extraction(Dimension size, List<HotSpot> hotSpots) {
+	}
+
+	/**
+	 * Converts a CGM file to square SVG tiles at several zoom levels, for the viewers loading only the tiles
+	 * displayed. The file is memory-mapped when the memory-mapped input option is enabled.
+	 * <p>
+	 * The level {@code z} is cut in tiles of {@code max(width, height) / 2^z} canvas px, each one written at the tile
+	 * size of the options to {@code z/column_row.svg}; the tiles where nothing is drawn are not written. The shapes are
+	 * only written in the tiles they intersect. On the coarser levels the paths are simplified to half a tile px and
+	 * the shapes smaller than half a tile px are dropped, the finest level is written with the simplification
+	 * tolerance of the options. The hotspots and TDETs are written once, at the size of the CGM, to an overlay SVG
+	 * the viewer scales over the tiles. {@code index.json} lists the levels and their tiles, see
+	 * {@link TileIndexJsonWriter}.
+	 *
+	 * @param input           the CGM file
+	 * @param outputDirectory directory where the tiles, the overlay and the index are written, created if needed
+	 * @return the index file
+	 * @throws IOException if the file cannot be read or the tiles cannot be written
+	 */
+	public Path convertTiled(Path input, Path outputDirectory) throws IOException {
+		return new TiledConversion(this).convert(input, outputDirectory);
+	}
+
+	/**
+	 * @param input    the source of the CGM, closed when the CGM is invalid, may be null
+	 * @param hotSpots  receives the hotspots and TDETs drawn, may be null
+	 * @param thumbnail receives the PNG thumbnail painted with the SVG, may be null
+	 */
+	private void convert(Closeable input, OutputStream os, CgmReader reader, List<HotSpot> hotSpots, OutputStream thumbnail) throws SVGGraphics2DIOException {
+		logger.info("Start of CGM file to SVG conversion with the options:{}.", this.options);
+		SVGPainter svgPainter = new SVGPainter();
+		Metrics metrics = this.listener == ConversionListener.NOOP ? null : new Metrics(os);
+		if (metrics != null) {
+			os = metrics.output;
+		}
+		long begin = System.nanoTime();
+
+		CGM4SVG cgm;
+		try {
+			cgm = loadCgm(reader, svgPainter);
+		} catch (Exception e) {
+			logger.error("Error while converting CGM to SVG" + ", " + e.getMessage(), e);
+			throw new JcgmToSvgException("Error while converting the CGM to SVG", e.getCause());
+		}
+
+		if (cgm == null) {
+			throw new JcgmToSvgException("Could not load the CGM");
+		}
+		begin = phaseCompleted(metrics, ConversionListener.Phase.PARSE, begin);
+		if (metrics != null) {
+			cgm.countCommands(metrics.commandCounts);
+		}
+		OutputStream compressed = compress(os);
+		try {
+			convert(input, compressed, cgm, metrics, begin, hotSpots, thumbnail);
+		} finally {
+			end(compressed);
+		}
+		logger.info("End of CGM file to SVG conversion.");
+	}
+
+	/**
+	 * Paints the parsed CGM and writes the SVG, with the DOM or the streaming output.
+	 */
+	private void convert(Closeable input, OutputStream os, CGM4SVG cgm, Metrics metrics, long begin, List<HotSpot> hotSpots, OutputStream thumbnail) throws SVGGraphics2DIOException {
+		double quantizationScale = quantizationScale(cgm);
+		int precision = precision(cgm, quantizationScale);
+		BufferedImage image = thumbnail == null ? null : thumbnailImage(cgm.getSize());
+
+		if (this.options.isStreamingOutput()) {
+			convertStreaming(input, os, cgm, precision, quantizationScale, metrics, begin, hotSpots, image);
+			writeThumbnail(image, thumbnail);
+			return;
+		}
+
+		// Get a DOMImplementation.
+		DOMImplementation domImpl = SVGDOMImplementation.getDOMImplementation();
+
+		// Create an instance of org.w3c.dom.Document.
+		Document document = domImpl.createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+
+		SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+		ctx.setPrecision(precision);
+		if (this.options.isHatchPatterns()) {
+			ctx.setExtensionHandler(new HatchPatternHandler());
+		}
+
+		CDATASection styleSheet = document.createCDATASection("");
+
+		// Create an instance of the SVG Generator.
+		SVGGraphics2DHS svgGenerator = new SVGGraphics2DHS(ctx, false);
+		svgGenerator.recordHotSpots(hotSpots);
+		svgGenerator.setPathSimplifier(pathSimplifier());
+		svgGenerator.setHatchPatterns(this.options.isHatchPatterns());
+		svgGenerator.setQuantizedCoordinates(this.options.isQuantizedCoordinates());
+		svgGenerator.setCompactPathData(this.options.isCompactPathData());
+
+		try {
+			JcgmToSvg.paint2(tee(svgGenerator, image, cgm.getSize(), quantizationScale), cgm, quantizationScale);
+		} catch (NullPointerException e) {
+			closeStreams(input, os);
+			throw new JcgmToSvgException("Invalid CGM input stream: ", e);
+		}
+		begin = phaseCompleted(metrics, ConversionListener.Phase.PAINT, begin);
+
+		svgGenerator.setSVGCanvasSize(cgm.getSize());
+
+		Element root = createrCss(document, styleSheet, svgGenerator);
+		if (quantizationScale != 1) {
+			Dimension viewBox = viewBox(cgm.getSize(), quantizationScale);
+			root.setAttributeNS(null, SVGConstants.SVG_VIEW_BOX_ATTRIBUTE, "0 0 " + viewBox.width + " " + viewBox.height);
+		}
+		// the elements generated, before the post-processing moves, merges and instances them
+		long elementCount = metrics == null ? 0 : root.getElementsByTagName("*").getLength() + 1L;
+		postProcess(root, ctx, styleSheet);
+		begin = phaseCompleted(metrics, ConversionListener.Phase.CANVAS, begin);
+
+		// Finally, stream out SVG to the standard output using
+		// UTF-8 encoding.
+		boolean useCSS = true; // we want to use CSS style attributes
+		Writer out = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+		svgGenerator.stream(root, out, useCSS, false);
+		finish(os);
+		writeThumbnail(image, thumbnail);
+		phaseCompleted(metrics, ConversionListener.Phase.SERIALIZE, begin);
+
+		if (metrics != null) {
+			conversionCompleted(metrics, svgGenerator.getHotSpotCount(), elementCount);
+		}
+	}
+
+	/**
+	 * Runs the post-processing stages enabled by the options on the DOM, before it is serialized once. The stages
+	 * run in this order: hotspots moved on top, transforms flattened, repeated paths instanced, styles written as
+	 * classes; a path is flattened before it is instanced and the styles are rescaled before they become classes.
+	 */
+	private void postProcess(Element root, SVGGeneratorContext ctx, CDATASection styleSheet) {
+		if (this.options.isHotSpotsOnTop()) {
+			int hotSpots = new SVGUtils().moveHotspotToRightLayer(root);
+			logger.debug("{} hotspots moved on top", hotSpots);
+		}
+		if (this.options.isFlattenTransforms()) {
+			// the stroke widths and font sizes are rescaled in the inline styles
+			SVGCSSStyler.style(root);
+			SVGUtils svgUtils = new SVGUtils();
+			svgUtils.setCompactPathData(this.options.isCompactPathData());
+			svgUtils.applyTransformation(root);
+		}
+		if (this.options.isSymbolInstancing()) {
+			Element defs = ((SVGSVGElement) root).getElementById(SVGSyntax.ID_PREFIX_GENERIC_DEFS);
+			int symbols = new SymbolInstancing(ctx).apply(root, defs);
+			logger.debug("{} repeated paths written as symbols", symbols);
+		}
+		if (this.options.isStyleClasses()) {
+			// the presentation attributes become inline styles, then the styles become classes
+			SVGCSSStyler.style(root);
+			StyleClasses styleClasses = new StyleClasses();
+			styleClasses.apply(root);
+			styleSheet.appendData(styleClasses.getStyleSheet());
+		}
+	}
+
+	/**
+	 * @return the path simplifier of the options, null when the paths are written as drawn
+	 */
+	PathSimplifier pathSimplifier() {
+		Double tolerance = this.options.getSimplificationTolerance();
+		return tolerance == null ? null : new PathSimplifier(tolerance);
+	}
+
+	/**
+	 * @return the image of the thumbnail, its largest side is the thumbnail size
+	 */
+	private BufferedImage thumbnailImage(Dimension size) {
+		int thumbnailSize = Objects.requireNonNullElse(this.options.getThumbnailSize(), DEFAULT_THUMBNAIL_SIZE);
+		double zoom = thumbnailSize / (double) Math.max(1, Math.max(size.width, size.height));
+		return new BufferedImage(Math.max(1, (int) Math.round(size.width * zoom)),
+				Math.max(1, (int) Math.round(size.height * zoom)), BufferedImage.TYPE_INT_RGB);
+	}
+
+	/**
+	 * @param image the thumbnail image, null to paint the SVG only
+	 * @return the graphics painting both the SVG and the thumbnail
+	 */
+	private static Graphics2D tee(Graphics2D svgGenerator, BufferedImage image, Dimension size, double quantizationScale) {
+		if (image == null) {
+			return svgGenerator;
+		}
+		Graphics2D raster = image.createGraphics();
+		raster.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		raster.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		raster.setBackground(Color.WHITE);
+		raster.clearRect(0, 0, image.getWidth(), image.getHeight());
+		// the canvas is quantizationScale times larger than the CGM size
+		double zoom = Math.max(image.getWidth(), image.getHeight()) / (double) Math.max(size.width, size.height);
+		raster.scale(zoom / quantizationScale, zoom / quantizationScale);
+		return new TeeGraphics2D(svgGenerator, raster);
+	}
+
+	private static void writeThumbnail(BufferedImage image, OutputStream thumbnail) throws SVGGraphics2DIOException {
+		if (image == null) {
+			return;
+		}
+		try {
+			if (!ImageIO.write(image, "png", thumbnail)) {
+				throw new JcgmToSvgException("No image writer for the PNG thumbnail");
+			}
+			thumbnail.flush();
+		} catch (IOException e) {
+			throw new SVGGraphics2DIOException(e);
+		}
+	}
+
+	/**
+	 * Paints the CGM through a {@link StreamingSVGGraphics2D}: elements are written to the output
+	 * while painting instead of being collected in a Batik DOM.
+	 *
+	 * @param image the thumbnail painted in the same pass, may be null
+	 */
+	private void convertStreaming(Closeable input, OutputStream os, CGM4SVG cgm, int precision, double quantizationScale, Metrics metrics, long begin, List<HotSpot> hotSpots, BufferedImage image) throws SVGGraphics2DIOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), STREAMING_BUFFER_SIZE);
+		StreamingSVGGraphics2D svgGenerator = new StreamingSVGGraphics2D(out, precision);
+		svgGenerator.recordHotSpots(hotSpots);
+		svgGenerator.setPathSimplifier(pathSimplifier());
+		svgGenerator.setHatchPatterns(this.options.isHatchPatterns());
+		svgGenerator.setQuantizedCoordinates(this.options.isQuantizedCoordinates());
+		svgGenerator.setCompactPathData(this.options.isCompactPathData());
+		if (this.options.isStyleClasses()) {
+			svgGenerator.setStyleClasses(new StyleClasses());
+		}
+		try {
+			try {
+				Dimension viewBox = quantizationScale == 1 ? null : viewBox(cgm.getSize(), quantizationScale);
+				svgGenerator.startDocument(cgm.getSize(), viewBox, STYLE_SHEET, HOTSPOT_SCRIPT);
+				JcgmToSvg.paint2(tee(svgGenerator, image, cgm.getSize(), quantizationScale), cgm, quantizationScale);
+			} catch (NullPointerException e) {
+				closeStreams(input, os);
+				throw new JcgmToSvgException("Invalid CGM input stream: ", e);
+			}
+			begin = phaseCompleted(metrics, ConversionListener.Phase.PAINT, begin);
+			svgGenerator.endDocument();
+			finish(os);
+			phaseCompleted(metrics, ConversionListener.Phase.SERIALIZE, begin);
+		} catch (UncheckedIOException e) {
+			throw new SVGGraphics2DIOException(e.getCause());
+		}
+		if (metrics != null) {
+			// the root, defs, style, script and outer group are written by startDocument
+			conversionCompleted(metrics, svgGenerator.getHotSpotCount(), svgGenerator.getElementCount() + 5);
+		}
+	}
+
+	/**
+	 * Wraps the output in a gzip stream at the configured level when the compressed output is enabled.
+	 */
+	private OutputStream compress(OutputStream os) throws SVGGraphics2DIOException {
+		if (!this.options.isCompressedOutput()) {
+			return os;
+		}
+		try {
+			return new CompressedOutputStream(os, this.options.getCompressionLevel());
+		} catch (IOException e) {
+			throw new SVGGraphics2DIOException(e);
+		}
+	}
+
+	/**
+	 * Releases the native memory of the deflater of a compressed output, which is not closed: the output stream of
+	 * the caller stays open.
+	 */
+	private static void end(OutputStream os) {
+		if (os instanceof CompressedOutputStream compressed) {
+			compressed.end();
+		}
+	}
+
+	/**
+	 * Gzip stream at a given deflate level.
+	 */
+	private static final class CompressedOutputStream extends GZIPOutputStream {
+
+		private CompressedOutputStream(OutputStream os, int level) throws IOException {
+			super(os, COMPRESSION_BUFFER_SIZE);
+			this.def.setLevel(level);
+		}
+
+		/**
+		 * Releases the deflater, nothing can be written afterwards.
+		 */
+		private void end() {
+			this.def.end();
+		}
+	}
+
+	/**
+	 * Writes the gzip trailer, the output stream itself is left open.
+	 */
+	private static void finish(OutputStream os) throws SVGGraphics2DIOException {
+		if (os instanceof GZIPOutputStream gzip) {
+			try {
+				gzip.finish();
+				gzip.flush();
+			} catch (IOException e) {
+				throw new SVGGraphics2DIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * @return the extension of the files written by {@link #convert(String, String)}
+	 */
+	String outputExtension() {
+		return this.options.isCompressedOutput() ? ".svgz" : ".svg";
+	}
+
+	/**
+	 * @return the end time of the phase, which is the start time of the next one
+	 */
+	private long phaseCompleted(Metrics metrics, ConversionListener.Phase phase, long begin) {
+		long end = System.nanoTime();
+		if (metrics != null) {
+			Duration duration = Duration.ofNanos(end - begin);
+			metrics.phaseDurations.put(phase, duration);
+			try {
+				this.listener.phaseCompleted(phase, duration);
+			} catch (RuntimeException e) {
+				logger.warn("Conversion listener failed on phase {}", phase, e);
+			}
+		}
+		return end;
+	}
+
+	private void conversionCompleted(Metrics metrics, int hotSpotCount, long elementCount) {
+		ConversionMetrics conversionMetrics = new ConversionMetrics(Collections.unmodifiableMap(metrics.phaseDurations),
+				Collections.unmodifiableMap(metrics.commandCounts), hotSpotCount, metrics.output.getCount(), elementCount);
+		try {
+			this.listener.conversionCompleted(conversionMetrics);
+		} catch (RuntimeException e) {
+			logger.warn("Conversion listener failed", e);
+		}
+	}
+
+	/**
+	 * Counters of a conversion, only allocated when a listener is registered.
+	 */
+	private static final class Metrics {
+
+		private final CountingOutputStream output;
+
+		private final Map<ConversionListener.Phase, Duration> phaseDurations = new EnumMap<>(ConversionListener.Phase.class);
+
+		private final Map<Class<? extends Command>, Integer> commandCounts = new HashMap<>();
+
+		private Metrics(OutputStream os) {
+			this.output = new CountingOutputStream(os);
+		}
+	}
+
+	private static void closeStreams(Closeable... streams) {
+		for (Closeable stream : streams) {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					logger.info("Error while closing streams (invalid CGM input files):", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts a single CGM file to an SVG.
+	 *
+	 * @param fileInput       path to the CGM file
+	 * @param directoryOutput path to the SVG directory output
+	 * @return the SVG file, with the .svgz extension when the compressed output is enabled, its spatial index
+	 * is written next to it when the hotspot index option is enabled and its PNG thumbnail when the thumbnail
+	 * size option is set
+	 * @throws IOException if the CGM cannot be read or the SVG cannot be written, the SVG may then be incomplete
+	 */
+	public File convert(String fileInput, String directoryOutput) throws IOException {
+		String fname = JcgmToSvg.getFilenameWithoutExtension(new File(fileInput));
+		File dout = new File(directoryOutput);
+		File outf = new File(dout.getAbsolutePath() + "/" + fname + outputExtension());
+		List<HotSpot> hotSpots = this.options.isHotSpotIndex() ? new ArrayList<>() : null;
+
+		try (FileOutputStream fos = new FileOutputStream(outf);
+		     OutputStream thumbnail = this.options.getThumbnailSize() == null ? null
+				     : Files.newOutputStream(thumbnailFile(outf.toPath()))) {
+			convertFile(Path.of(fileInput), fos, hotSpots, thumbnail);
+			if (hotSpots != null) {
+				HotSpotIndex.build(hotSpots).write(HotSpotIndex.sidecar(outf.toPath()));
+			}
+		}
+
+		return outf;
+	}
+
+	/**
+	 * Converts all the CGM files of a directory in parallel on a fixed pool of worker threads.
+	 *
+	 * @param inputDirectory  directory containing the CGM files (not recursive)
+	 * @param outputDirectory directory where the SVG files are written
+	 * @param parallelism     the number of worker threads
+	 * @return the result of each conversion, in the order the files were listed
+	 * @throws IOException if the input directory cannot be listed
+	 */
+	public List<ConversionResult> convertAll(Path inputDirectory, Path outputDirectory, int parallelism) throws IOException {
+		List<Path> inputs = JcgmToSvg.listCgmFiles(inputDirectory);
+		try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+			return convertAll(inputs, outputDirectory, executor, parallelism);
+		}
+	}
+
+	/**
+	 * Converts a list of CGM files in parallel on the given executor.
+	 * A failing file is reported in its {@link ConversionResult} and does not stop the batch.
+	 * <p>
+	 * At most {@code maxConcurrent} conversions are in flight at any time, which bounds the memory used
+	 * even with an unbounded executor such as {@link Executors#newVirtualThreadPerTaskExecutor()}.
+	 *
+	 * @param inputs          the CGM files
+	 * @param outputDirectory directory where the SVG files are written
+	 * @param executor        the executor running the conversions, a fixed pool or virtual threads
+	 * @param maxConcurrent   the maximum number of conversions running at the same time
+	 * @return the result of each conversion, in the order of {@code inputs}
+	 */
+	public List<ConversionResult> convertAll(List<Path> inputs, Path outputDirectory, Executor executor, int maxConcurrent) {
+		logger.info("Start of the batch conversion of {} CGM files.", inputs.size());
+		List<ConversionResult> results = runAll(inputs, executor, maxConcurrent, input -> convertOne(input, outputDirectory));
+		logger.info("End of the batch conversion, {} failed.", results.stream().filter(r -> !r.isSuccess()).count());
+		return results;
+	}
+
+	/**
+	 * Converts every picture of a CGM file to its own SVG, in parallel on the given executor. The file is read,
+	 * memory-mapped when the memory-mapped input option is enabled, and split in one CGM per picture, each one
+	 * keeping the metafile descriptor, see {@link CgmPictures}; a CGM with a single picture is converted as a whole.
+	 * <p>
+	 * The picture {@code n}, from 1, is written to {@code name_n.svg} with its hotspot index and thumbnail when the
+	 * options enable them. A failing picture is reported in its {@link ConversionResult} and does not stop the others.
+	 *
+	 * @param input           the CGM file
+	 * @param outputDirectory directory where the SVG files are written
+	 * @param executor        the executor running the conversions
+	 * @param maxConcurrent   the maximum number of pictures converted at the same time
+	 * @return the result of each picture, in the order of the metafile
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<ConversionResult> convertPictures(Path input, Path outputDirectory, Executor executor, int maxConcurrent) throws IOException {
+		List<ByteBuffer> pictures = CgmPictures.split(read(input));
+		logger.info("Start of the conversion of the {} pictures of {}.", pictures.size(), input);
+		String name = JcgmToSvg.getFilenameWithoutExtension(input.toFile());
+		List<Integer> numbers = new ArrayList<>(pictures.size());
+		for (int i = 1; i <= pictures.size(); i++) {
+			numbers.add(i);
+		}
+		List<ConversionResult> results = runAll(numbers, executor, maxConcurrent, n -> convertPicture(input, pictures.get(n - 1),
+				outputDirectory.resolve(name + "_" + n + outputExtension())));
+		logger.info("End of the conversion of the pictures, {} failed.", results.stream().filter(r -> !r.isSuccess()).count());
+		return results;
+	}
+
+	private ConversionResult convertPicture(Path input, ByteBuffer picture, Path output) {
+		long begin = System.nanoTime();
+		List<HotSpot> hotSpots = this.options.isHotSpotIndex() ? new ArrayList<>() : null;
+		try {
+			try (OutputStream os = Files.newOutputStream(output);
+			     OutputStream thumbnail = this.options.getThumbnailSize() == null ? null : Files.newOutputStream(thumbnailFile(output))) {
+				convert(null, os, painter -> new CGM4SVG(picture, painter, this.options), hotSpots, thumbnail);
+			}
+			if (hotSpots != null) {
+				HotSpotIndex.build(hotSpots).write(HotSpotIndex.sidecar(output));
+			}
+			Duration duration = Duration.ofNanos(System.nanoTime() - begin);
+			return new ConversionResult(input, output, ConversionResult.Status.SUCCESS, duration, Files.size(output), null);
+		} catch (IOException | RuntimeException e) {
+			logger.error("Error while converting the picture {} of CGM {}", output.getFileName(), input, e);
+			try {
+				Files.deleteIfExists(output);
+			} catch (IOException ex) {
+				logger.warn("Could not delete the partial output {}", output, ex);
+			}
+			deleteIndex(output);
+			deleteThumbnail(output);
+			Duration duration = Duration.ofNanos(System.nanoTime() - begin);
+			return new ConversionResult(input, null, ConversionResult.Status.FAILED, duration, 0, e);
+		}
+	}
+
+	/**
+	 * Converts the CGM files of a directory that changed since the previous run, on a fixed pool of worker threads.
+	 * <p>
+	 * The manifest records for every CGM the hash of its bytes, the hash of the
+	 * {@link ConversionOptions#outputKey() options changing the SVG} and the version of the converter. A CGM is skipped when they all match and its SVG is still in the output directory, the CGMs are
+	 * only hashed again when their size or modification time changed. The SVGs of the CGMs removed from the input
+	 * directory are deleted. Every conversion is recorded in the manifest as soon as it completes, an interrupted
+	 * run resumes where it stopped.
+	 *
+	 * @param inputDirectory  directory containing the CGM files (not recursive)
+	 * @param outputDirectory directory where the SVG files are written
+	 * @param manifest        the manifest file, created by the first run
+	 * @param parallelism     the number of worker threads
+	 * @return the result of each conversion, {@link ConversionResult.Status#SKIPPED} for the SVGs up to date,
+	 * in the order the files were listed
+	 * @throws IOException if the input directory cannot be listed or the manifest cannot be written
+	 */
+	public List<ConversionResult> convertIncremental(Path inputDirectory, Path outputDirectory, Path manifest, int parallelism) throws IOException {
+		return new IncrementalConversion(this).convert(inputDirectory, outputDirectory, manifest, parallelism);
+	}
+
+	<T> List<ConversionResult> runAll(List<T> inputs, Executor executor, int maxConcurrent, Function<T, ConversionResult> conversion) {
+		Semaphore permits = new Semaphore(Math.max(1, maxConcurrent));
+		List<CompletableFuture<ConversionResult>> futures = new ArrayList<>(inputs.size());
+		for (T input : inputs) {
+			permits.acquireUninterruptibly();
+			try {
+				futures.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return conversion.apply(input);
+					} finally {
+						permits.release();
+					}
+				}, executor));
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				throw e;
+			}
+		}
+		return futures.stream().map(CompletableFuture::join).toList();
+	}
+
+	ConversionResult convertOne(Path input, Path outputDirectory) {
+		long begin = System.nanoTime();
+		File output = null;
+		try {
+			output = convert(input.toString(), outputDirectory.toString());
+			Duration duration = Duration.ofNanos(System.nanoTime() - begin);
+			return new ConversionResult(input, output.toPath(), ConversionResult.Status.SUCCESS, duration, output.length(), null);
+		} catch (IOException | RuntimeException e) {
+			logger.error("Error while converting CGM {}", input, e);
+			if (output == null) {
+				output = outputFile(input, outputDirectory);
+			}
+			if (output != null && output.exists() && !output.delete()) {
+				logger.warn("Could not delete the partial output {}", output);
+			}
+			if (output != null) {
+				deleteIndex(output.toPath());
+				deleteThumbnail(output.toPath());
+			}
+			Duration duration = Duration.ofNanos(System.nanoTime() - begin);
+			return new ConversionResult(input, null, ConversionResult.Status.FAILED, duration, 0, e);
+		}
+	}
+
+	private static void deleteIndex(Path output) {
+		try {
+			Files.deleteIfExists(HotSpotIndex.sidecar(output));
+		} catch (IOException e) {
+			logger.warn("Could not delete the hotspot index of {}", output, e);
+		}
+	}
+
+	private static void deleteThumbnail(Path output) {
+		try {
+			Files.deleteIfExists(thumbnailFile(output));
+		} catch (IOException e) {
+			logger.warn("Could not delete the thumbnail of {}", output, e);
+		}
+	}
+
+	/**
+	 * @param svg the SVG file
+	 * @return the PNG thumbnail of the SVG, in the same directory
+	 */
+	static Path thumbnailFile(Path svg) {
+		String name = svg.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return svg.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + THUMBNAIL_EXTENSION);
+	}
+
+	private File outputFile(Path input, Path outputDirectory) {
+		try {
+			return new File(outputDirectory.toFile().getAbsolutePath() + "/" + JcgmToSvg.getFilenameWithoutExtension(input.toFile()) + outputExtension());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the number of times the canvas is scaled so that the quantized coordinates are exact to half a pixel
+	 * at the display resolution, 1 when the coordinates are not quantized
+	 */
+	private double quantizationScale(CGM4SVG cgm) {
+		if (!this.options.isQuantizedCoordinates()) {
+			return 1;
+		}
+		double zoom = displayZoom(cgm.getSize());
+		return Math.max(1, Math.pow(10, Math.ceil(Math.log10(2 * zoom))));
+	}
+
+	/**
+	 * @return the ratio between the display resolution and the canvas size, 1 without display resolution
+	 */
+	private double displayZoom(Dimension size) {
+		Integer resolution = this.options.getDisplayResolution();
+		int side = Math.max(size.width, size.height);
+		return resolution == null || side <= 0 ? 1 : resolution / (double) side;
+	}
+
+	/**
+	 * Number of decimals of the coordinates and matrices: without display resolution nor quantization, the fixed
+	 * precision of the CGM scaling mode; otherwise just enough decimals to be exact to half a pixel at the display
+	 * resolution, both for the user space coordinates and for the translation of the matrices.
+	 */
+	private int precision(CGM4SVG cgm, double quantizationScale) {
+		if (this.options.getDisplayResolution() == null && !this.options.isQuantizedCoordinates()) {
+			return findPrecision(cgm);
+		}
+		return adaptivePrecision(cgm, displayZoom(cgm.getSize()), quantizationScale);
+	}
+
+	/**
+	 * @param zoom the display px per canvas px
+	 * @return just enough decimals to be exact to half a pixel at this zoom
+	 */
+	static int adaptivePrecision(CGM4SVG cgm, double zoom, double quantizationScale) {
+		Dimension size = cgm.getSize();
+		HotSpotCollector probe = new HotSpotCollector();
+		new CGMDisplay4SVG(cgm).scale(probe, size.width, size.height);
+		// canvas px per VDC unit
+		double scale = Math.sqrt(Math.abs(probe.getTransform().getDeterminant()));
+		if (!(scale > 0) || Double.isInfinite(scale)) {
+			return findPrecision(cgm);
+		}
+		double coordinates = Math.ceil(Math.log10(2 * scale * zoom));
+		double matrices = Math.ceil(Math.log10(2 * zoom * Math.max(size.width, size.height) / (scale * quantizationScale)));
+		int precision = (int) Math.min(12, Math.max(0, Math.max(coordinates, matrices)));
+		logger.info("Precision {} for a scale of {} px per unit", precision, scale);
+		return precision;
+	}
+
+	private static Dimension viewBox(Dimension size, double quantizationScale) {
+		return new Dimension((int) Math.round(size.width * quantizationScale), (int) Math.round(size.height * quantizationScale));
+	}
+
+	private static int findPrecision(CGM4SVG cgm) {
+		double scale = findScale(cgm);
+		if (scale > 0 && scale <= 0.0001) {
+			logger.info("Precision 8 {}", scale);
+			return 8;
+		} else if (scale > 0.0001 && scale < 0.01) {
+			logger.info("Precision 4 {}", scale);
+		}
+		return 4;
+	}
+
+	private static double findScale(CGM4SVG cgm) {
+		List<Command> commands = cgm.getCommands();
+		for (Command c : commands) {
+			if (c instanceof ScalingMode sm) {
+				return sm.getMetricScalingFactor();
+			}
+		}
+		return 0;
+	}
+
+	private static Element createrCss(Document document, CDATASection styleSheet, SVGGraphics2D svgGenerator) {
+		// Add a stylesheet to the definition section.
+		SVGSVGElement root = (SVGSVGElement) svgGenerator.getRoot();
+
+		Element defs = root.getElementById(SVGSyntax.ID_PREFIX_GENERIC_DEFS);
+		Element style = document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, SVGConstants.SVG_STYLE_TAG);
+		style.setAttributeNS(null, SVGConstants.SVG_TYPE_ATTRIBUTE, "text/css");
+		style.appendChild(styleSheet);
+		defs.appendChild(style);
+		styleSheet.appendData(STYLE_SHEET);
+		//-----------JS
+
+		Element javascript = document.createElement(SVGConstants.SVG_SCRIPT_TAG);
+		javascript.setAttribute("id", "nativeJSHS");
+		defs.appendChild(javascript);
+
+		CDATASection javascriptData = document.createCDATASection("");
+		javascript.appendChild(javascriptData);
+
+		javascriptData.appendData(HOTSPOT_SCRIPT);
+
+		return root;
+	}
+
+	static CGM4SVG loadCgm(CgmReader reader, SVGPainter svgPainter) {
+		CGM4SVG cgm;
+		try {
+			cgm = reader.read(svgPainter);
+		} catch (IOException e) {
+			logger.error("Error while loading the CGM from the input stream: " + e.getMessage(), e);
+			return null;
+		}
+		return cgm;
+	}
+
+	@FunctionalInterface
+	interface CgmReader {
+		CGM4SVG read(SVGPainter painter) throws IOException;
+	}
+}
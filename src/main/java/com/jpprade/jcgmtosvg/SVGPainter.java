@@ -1,6 +1,7 @@
 package com.jpprade.jcgmtosvg;
 
-import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import com.jpprade.jcgmtosvg.commands.FigurePath;
+import com.jpprade.jcgmtosvg.extension.HotSpotGraphics;
 import net.sf.jcgm.core.ApplicationStructureAttribute;
 import net.sf.jcgm.core.CGMDisplay;
 import net.sf.jcgm.core.Member;
@@ -13,7 +14,6 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.List;
 
@@ -34,39 +34,17 @@ public class SVGPainter {
 					
 					int n = (objects.size() - 2) / 6;
 					
-					Point2D.Double[] p1;
-					Point2D.Double[] p2;
-					Point2D.Double[] p3;
-					Point2D.Double[] p4;
-					
-					p1 = new Point2D.Double[n];
-					p2 = new Point2D.Double[n];
-					p3 = new Point2D.Double[n];
-					p4 = new Point2D.Double[n];
-					
-					int point = 0;
-					int pos = 0;
-					while (point < n) {
-						if (point == 0) {
-							p1[point] = new Point2D.Double(objects.get(pos), objects.get(pos + 1));
-							pos += 2;
-						} else {
-							p1[point] = p4[point - 1];
-						}
-						p2[point] = new Point2D.Double(objects.get(pos), objects.get(pos + 1));
-						pos += 2;
-						p3[point] = new Point2D.Double(objects.get(pos), objects.get(pos + 1));
-						pos += 2;
-						p4[point] = new Point2D.Double(objects.get(pos), objects.get(pos + 1));
-						pos += 2;
-						point++;
+					// the start point then the control points and the end point of every curve
+					double[] coords = new double[n == 0 ? 0 : 2 + 6 * n];
+					for (int pos = 0; pos < coords.length; pos++) {
+						coords[pos] = objects.get(pos);
 					}
 
-					SVGGraphics2DHS g2d;
+					Graphics2D g2d;
 					if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-						g2d = (SVGGraphics2DHS) decorator.getDelegate();
+						g2d = decorator.getDelegate();
 					} else {
-						g2d = (SVGGraphics2DHS) d.getGraphics2D();
+						g2d = d.getGraphics2D();
 					}
 					g2d.setStroke(d.getLineStroke());
 					g2d.setColor(d.getLineColor());
@@ -74,21 +52,9 @@ public class SVGPainter {
 					
 					//svgGenerator.getTopLevelGroup().setAttribute("id", "whatever")
 					
-					GeneralPath gp = new GeneralPath();
-					
-					for (int i = 0; i < p1.length; i++) {
-						if (i == 0) {
-							gp.moveTo(p1[i].x, p1[i].y);
-						}
-						
-						gp.curveTo(p2[i].x, p2[i].y, p3[i].x, p3[i].y, p4[i].x, p4[i].y);
-						
-						if (i == p1.length - 1) {
-							gp.closePath();
-						}
-					}
+					GeneralPath gp = FigurePath.toPath(coords, n);
 					
-					g2d.drawHotSpot(gp, ph.getApsid(), ph.getName());
+					((HotSpotGraphics) g2d).drawHotSpot(gp, ph.getApsid(), ph.getName());
 					
 					
 					//Element e = g2d.
@@ -120,24 +86,24 @@ public class SVGPainter {
 					
 					Rectangle2D.Double shape = new Rectangle2D.Double(x1, y1, w, h);
 
-					SVGGraphics2DHS g2d;
+					Graphics2D g2d;
 					if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-						g2d = (SVGGraphics2DHS) decorator.getDelegate();
+						g2d = decorator.getDelegate();
 					} else {
-						g2d = (SVGGraphics2DHS) d.getGraphics2D();
+						g2d = d.getGraphics2D();
 					}
 					
 					g2d.setColor(d.getEdgeColor());
 					g2d.setStroke(d.getEdgeStroke());
-					g2d.drawHotSpot(shape, ph.getApsid(), ph.getName());
+					((HotSpotGraphics) g2d).drawHotSpot(shape, ph.getApsid(), ph.getName());
 				} else if (members.get(0).getData().getFirst().toString().equals("3")) {//polygon
 					List<Double> objects = (List<Double>) (Object) members.get(1).getData();
 					Path2D.Double polygon = new Path2D.Double(Path2D.WIND_EVEN_ODD);
-					SVGGraphics2DHS g2d;
+					Graphics2D g2d;
 					if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-						g2d = (SVGGraphics2DHS) decorator.getDelegate();
+						g2d = decorator.getDelegate();
 					} else {
-						g2d = (SVGGraphics2DHS) d.getGraphics2D();
+						g2d = d.getGraphics2D();
 					}
 					
 					for (int i = 0; i < objects.size(); i = i + 2) {
@@ -151,7 +117,7 @@ public class SVGPainter {
 					
 					g2d.setColor(d.getEdgeColor());
 					g2d.setStroke(d.getEdgeStroke());
-					g2d.drawHotSpot(polygon, ph.getApsid(), ph.getName());
+					((HotSpotGraphics) g2d).drawHotSpot(polygon, ph.getApsid(), ph.getName());
 					
 				} else {
 					logger.warn("unhandled HS type: {}", members.getFirst().getData().getFirst());
@@ -214,18 +180,18 @@ public class SVGPainter {
 					
 					Rectangle2D.Double shape = new Rectangle2D.Double(x1, y1, w, h);
 
-					SVGGraphics2DHS g2d;
+					Graphics2D g2d;
 					if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-						g2d = (SVGGraphics2DHS) decorator.getDelegate();
+						g2d = decorator.getDelegate();
 					} else {
-						g2d = (SVGGraphics2DHS) d.getGraphics2D();
+						g2d = d.getGraphics2D();
 					}
 					
 					Color trans = new Color(255, 255, 255, 255);
 					
 					g2d.setColor(trans);
 					g2d.setStroke(d.getEdgeStroke());
-					g2d.drawTDET(shape, ph.getApsid(), ph.getName());
+					((HotSpotGraphics) g2d).drawTDET(shape, ph.getApsid(), ph.getName());
 					
 				}
 			}
@@ -1,6 +1,6 @@
 package com.jpprade.jcgmtosvg;
 
-import org.apache.commons.io.FileUtils;
+import com.jpprade.jcgmtosvg.extension.PathData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -9,30 +9,49 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
+import java.nio.file.Files;
 import java.text.DecimalFormatSymbols;
-import java.util.Collection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,6 +65,8 @@ public class SVGUtils {
 	
 	private final DecimalFormat dfCoo;
 	
+	private PathData pathData;
+	
 	public SVGUtils() {
 		DecimalFormat df = new DecimalFormat("0.00");
 		this.dfCoo = new DecimalFormat("0.0000");
@@ -56,6 +77,14 @@ public class SVGUtils {
 		this.dfCoo.setDecimalFormatSymbols(sym);
 	}
 	
+	/**
+	 * Writes the recalculated paths with {@link PathData}: relative or absolute coordinates, whichever is shorter,
+	 * and no redundant command letter nor separator.
+	 */
+	public void setCompactPathData(boolean compactPathData) {
+		this.pathData = compactPathData ? new PathData(4) : null;
+	}
+	
 	/**
 	 * Moves hotspots SDET to first level.
 	 * Can also improve "usual" hotspots in order to prevent blinking to be on top.
@@ -78,30 +107,8 @@ public class SVGUtils {
 			db = dbf.newDocumentBuilder();
 			Document doc = db.parse(sourceF);
 			
-			XPath xPath = XPathFactory.newInstance().newXPath();
-			
-			//HS SDET on foreground
-			{
-				String expressionG = "//svg/g/g";
-				NodeList nodeGList = (NodeList) xPath.compile(expressionG).evaluate(doc, XPathConstants.NODESET);
-				
-				String expression = "//*[@class='hotspot']";
-				NodeList nodeList = (NodeList) xPath.compile(expression).evaluate(doc, XPathConstants.NODESET);
-				
-				if (nodeList.getLength() == 0) {
-					return;
-				}
-				
-				for (int n = 0; n < nodeList.getLength(); n++) {
-					Node node = nodeList.item(n);
-					Element hotspot = (Element) node;
-					Element gParent = findParentG(hotspot);
-					hotspot.getParentNode().removeChild(hotspot);
-					
-					Element lastG = findLastMatchingG(gParent, nodeGList);
-					
-					lastG.appendChild(hotspot);
-				}
+			if (moveHotspotToRightLayer(doc.getDocumentElement()) == 0) {
+				return;
 			}
 			
 			// usual HS in background
@@ -134,32 +141,91 @@ public class SVGUtils {
 			transformer.transform(source, result);
 			
 			
-		} catch (SAXException | IOException | ParserConfigurationException |
-		         XPathExpressionException | TransformerException e) {
+		} catch (SAXException | IOException | ParserConfigurationException | TransformerException e) {
 			logger.error(e.getMessage(), e);
 		}
 	}
 	
-	private Element findLastMatchingG(Element gParent, NodeList nodeGList) {
-		String parrentTransfo = gParent.getAttribute(TRANSFORM);
-		for (int n = nodeGList.getLength() - 1; n >= 0; n--) {
-			Element g = (Element) nodeGList.item(n);
-			String currentTransfo = g.getAttribute(TRANSFORM);
-			if (parrentTransfo.equalsIgnoreCase(currentTransfo)) {
-				return g;
-			}
+	/**
+	 * Moves the hotspots of an SVG held in memory to the last group having the same transform as their group, so
+	 * they are drawn on top of the drawing, see {@link #moveHotspotToRightLayer(File, File)}.
+	 *
+	 * @param root the svg element, it does not need to be attached to its document
+	 * @return the number of hotspots moved
+	 */
+	public int moveHotspotToRightLayer(Element root) {
+		//HS SDET on foreground
+		List<Element> nodeGList = elements(root, e -> isNamed(e, "g") && isNamed(e.getParentNode(), "g")
+				&& isNamed(e.getParentNode().getParentNode(), "svg"));
+		List<Element> nodeList = elements(root, e -> "hotspot".equals(e.getAttribute("class")));
+		if (nodeList.isEmpty()) {
+			return 0;
 		}
-		return gParent;
+		Map<String, Element> lastGs = lastGroupByTransform(nodeGList);
+		
+		for (Element hotspot : nodeList) {
+			Element gParent = findParentG(hotspot);
+			hotspot.getParentNode().removeChild(hotspot);
+			
+			Element lastG = lastGs.getOrDefault(gParent.getAttribute(TRANSFORM), gParent);
+			
+			lastG.appendChild(hotspot);
+		}
+		return nodeList.size();
+	}
+	
+	/**
+	 * The groups are not moved with the hotspots, so the index is built once instead of scanning the groups for
+	 * every hotspot. The case-insensitive order matches the transforms the same way as
+	 * {@link String#equalsIgnoreCase(String)}.
+	 *
+	 * @return the last group of each transform, an empty string for the groups without transform
+	 */
+	private static Map<String, Element> lastGroupByTransform(List<Element> nodeGList) {
+		Map<String, Element> lastGs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (Element g : nodeGList) {
+			lastGs.put(g.getAttribute(TRANSFORM), g);
+		}
+		return lastGs;
 	}
 	
 	private Element findParentG(Node n) {
 		Node parent = n.getParentNode();
-		if ("g".equalsIgnoreCase(parent.getNodeName())) {
+		if (isNamed(parent, "g")) {
 			return (Element) parent;
 		}
 		return findParentG(parent);
 	}
 	
+	/**
+	 * @return true if the node is an element with this name, without prefix, whether the DOM is namespace aware
+	 */
+	private static boolean isNamed(Node node, String name) {
+		if (!(node instanceof Element)) {
+			return false;
+		}
+		String localName = node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+		return name.equalsIgnoreCase(localName);
+	}
+	
+	/**
+	 * @return the element and its descendants matching the filter, in document order
+	 */
+	private static List<Element> elements(Element root, Predicate<Element> filter) {
+		List<Element> elements = new ArrayList<>();
+		if (filter.test(root)) {
+			elements.add(root);
+		}
+		NodeList descendants = root.getElementsByTagName("*");
+		for (int i = 0; i < descendants.getLength(); i++) {
+			Element element = (Element) descendants.item(i);
+			if (filter.test(element)) {
+				elements.add(element);
+			}
+		}
+		return elements;
+	}
+	
 	/**
 	 * all possible transformation (found in ietp 19)
 	 * <p>
@@ -184,69 +250,7 @@ public class SVGUtils {
 			db = dbf.newDocumentBuilder();
 			Document doc = db.parse(sourceF);
 			
-			XPath xPath = XPathFactory.newInstance().newXPath();
-			
-			{
-				String expressionG = "//g[@transform]";
-				NodeList nodeList = (NodeList) xPath.compile(expressionG).evaluate(doc, XPathConstants.NODESET);
-				
-				for (int n = 0; n < nodeList.getLength(); n++) {
-					Node node = nodeList.item(n);
-					Element g = (Element) node;
-					Matrix[] matrixs = parseTransform(g.getAttribute(TRANSFORM));
-					Matrix matrix = calculateMatrix(matrixs);
-					g.setAttribute(TRANSFORM, "");
-					
-					updateStyle(g, matrix.m00);
-					
-					NodeList childs = g.getElementsByTagName("*");
-					
-					for (int m = 0; m < childs.getLength(); m++) {
-						Node childNode = childs.item(m);
-						Element child = (Element) childNode;
-						
-						if (!child.getAttribute(TRANSFORM).isEmpty()) {
-							Matrix[] subMatrixs = parseTransform(child.getAttribute(TRANSFORM));
-							matrix = calculateMatrix(matrix, subMatrixs);
-							child.setAttribute(TRANSFORM, "");
-						}
-						
-						if ("path".equalsIgnoreCase(child.getNodeName())) {
-							recalculatePath(child, matrix);
-							updateStyle(child, matrix.m00);
-						} else if ("circle".equalsIgnoreCase(child.getNodeName())) {
-							recalculateCircle(child, matrix);
-							updateStyle(child, matrix.m00);
-						} else if ("text".equalsIgnoreCase(child.getNodeName())) {
-							recalculateText(child, matrix);
-							updateStyle(child, matrix.m00);
-						} else if ("rect".equalsIgnoreCase(child.getNodeName())) {
-							recalculateRect(child, matrix);
-							updateStyle(child, matrix.m00);
-						} else {
-							logger.warn("unhandled shape " + child.getNodeName());
-						}
-					}
-				}
-			}
-			
-			// transform images
-			{
-				String expressionG = "//image[@transform]";
-				NodeList nodeList = (NodeList) xPath.compile(expressionG).evaluate(doc, XPathConstants.NODESET);
-				
-				for (int n = 0; n < nodeList.getLength(); n++) {
-					Node node = nodeList.item(n);
-					Element image = (Element) node;
-					Matrix[] matrixs = parseTransform(image.getAttribute(TRANSFORM));
-					Matrix matrix = calculateMatrix(matrixs);
-					image.setAttribute(TRANSFORM, "");
-					
-					updateStyle(image, matrix.m00);
-					
-					recalculateImage(image, matrix);
-				}
-			}
+			applyTransformation(doc.getDocumentElement());
 			
 			DOMSource source = new DOMSource(doc);
 			FileOutputStream fos = new FileOutputStream(destination);
@@ -257,133 +261,308 @@ public class SVGUtils {
 			Transformer transformer = transformerFactory.newTransformer();
 			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
 			transformer.transform(source, result);
-		} catch (SAXException | IOException | ParserConfigurationException |
-		         XPathExpressionException | TransformerException e) {
+		} catch (SAXException | IOException | ParserConfigurationException | TransformerException e) {
 			logger.error(e.getMessage(), e);
 		}
 	}
 	
+	/**
+	 * Applies the transforms of an SVG held in memory, see {@link #applyTransformation(File, File)}. Only the inline
+	 * styles are rescaled, the presentation attributes written by Batik must be converted to styles first.
+	 * <p>
+	 * Like the streaming version, the matrix of an element is the matrix of its parent multiplied by its own
+	 * transform, which is removed, so a transform only applies to the descendants of its element.
+	 *
+	 * @param root the svg element, it does not need to be attached to its document
+	 */
+	public void applyTransformation(Element root) {
+		applyTransformation(root, null);
+	}
 	
-	private void recalculateCircle(Element child, Matrix matrix) {
-		float rayon = Float.parseFloat(child.getAttribute("r"));
-		String cx = child.getAttribute("cx");
-		String cy = child.getAttribute("cy");
+	/**
+	 * @param matrix the matrix of the parent, null while no transform applies
+	 */
+	private void applyTransformation(Element element, Matrix matrix) {
+		String transform = element.getAttribute(TRANSFORM);
+		if (!transform.isBlank()) {
+			Matrix[] matrixs = parseTransform(transform);
+			matrix = matrix == null ? calculateMatrix(matrixs) : calculateMatrix(matrix, matrixs);
+		}
+		if (matrix != null) {
+			element.removeAttribute(TRANSFORM);
+			String name = element.getLocalName() != null ? element.getLocalName() : element.getNodeName();
+			recalculateElement(name, attributes(element), matrix);
+		}
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child instanceof Element childElement) {
+				applyTransformation(childElement, matrix);
+			}
+		}
+	}
+	
+	/**
+	 * Streaming version of {@link #applyTransformation(File, File)}, the SVG is read and written with StAX instead of
+	 * being parsed to a DOM, see {@link #applyTransformation(InputStream, OutputStream)}.
+	 *
+	 * @param sourceF
+	 * @param destination
+	 */
+	public void applyTransformationStreaming(File sourceF, File destination) {
+		try (InputStream is = new BufferedInputStream(Files.newInputStream(sourceF.toPath()));
+		     OutputStream os = new BufferedOutputStream(Files.newOutputStream(destination.toPath()))) {
+			applyTransformation(is, os);
+		} catch (IOException | XMLStreamException e) {
+			logger.error(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Applies the transforms of the SVG to the coordinates of its paths, circles, texts, rectangles and images in a
+	 * single pass, the memory used only depends on the nesting depth of the elements.
+	 * <p>
+	 * A stack holds the matrix of every open element: the matrix of its parent multiplied by its own transform, which
+	 * is removed. The coordinates and the stroke width and font size of the styles are rewritten with the matrix, the
+	 * elements outside any transform are copied as they are.
+	 *
+	 * @param is the SVG, left open
+	 * @param os the SVG with the transforms applied, UTF-8 encoded, left open
+	 */
+	public void applyTransformation(InputStream is, OutputStream os) throws XMLStreamException {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		XMLEventReader reader = inputFactory.createXMLEventReader(is);
+		XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(os, StandardCharsets.UTF_8.name());
+		XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+		
+		// null while no transform applies, the stack holds none instead
+		Matrix none = new Matrix(1, 0, 0, 1, 0, 0);
+		Deque<Matrix> matrices = new ArrayDeque<>();
+		Matrix current = null;
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				StartElement element = event.asStartElement();
+				matrices.push(current == null ? none : current);
+				Attribute transform = element.getAttributeByName(new QName(TRANSFORM));
+				if (transform != null && !transform.getValue().isBlank()) {
+					Matrix[] matrixs = parseTransform(transform.getValue());
+					current = current == null ? calculateMatrix(matrixs) : calculateMatrix(current, matrixs);
+				}
+				if (current != null) {
+					event = recalculate(element, current, eventFactory);
+				}
+			} else if (event.isEndElement()) {
+				Matrix parent = matrices.pop();
+				current = parent == none ? null : parent;
+			}
+			writer.add(event);
+		}
+		writer.flush();
+		writer.close();
+		reader.close();
+	}
+	
+	private StartElement recalculate(StartElement element, Matrix matrix, XMLEventFactory eventFactory) {
+		Map<QName, String> values = new LinkedHashMap<>();
+		for (Iterator<Attribute> it = element.getAttributes(); it.hasNext(); ) {
+			Attribute attribute = it.next();
+			values.put(attribute.getName(), attribute.getValue());
+		}
+		values.remove(new QName(TRANSFORM));
+		Attributes attributes = new Attributes() {
+			@Override
+			public String get(String name) {
+				return values.getOrDefault(new QName(name), "");
+			}
+			
+			@Override
+			public void set(String name, String value) {
+				values.put(new QName(name), value);
+			}
+		};
+		recalculateElement(element.getName().getLocalPart(), attributes, matrix);
+		List<Attribute> rewritten = new ArrayList<>(values.size());
+		for (Map.Entry<QName, String> value : values.entrySet()) {
+			rewritten.add(eventFactory.createAttribute(value.getKey(), value.getValue()));
+		}
+		return eventFactory.createStartElement(element.getName(), rewritten.iterator(), element.getNamespaces());
+	}
+	
+	/**
+	 * Rescales the style of a group, or recalculates the coordinates and the style of an image or a shape.
+	 */
+	private void recalculateElement(String name, Attributes attributes, Matrix matrix) {
+		if ("g".equals(name)) {
+			updateStyle(attributes, matrix.m00);
+		} else if ("image".equals(name)) {
+			updateStyle(attributes, matrix.m00);
+			recalculateImage(attributes, matrix);
+		} else if (!recalculate(name, attributes, matrix)) {
+			logger.warn("unhandled shape " + name);
+		}
+	}
+	
+	/**
+	 * Recalculates the coordinates and the style of a path, circle, text or rectangle.
+	 *
+	 * @return false if the element is not one of them
+	 */
+	private boolean recalculate(String name, Attributes attributes, Matrix matrix) {
+		if ("path".equalsIgnoreCase(name)) {
+			recalculatePath(attributes, matrix);
+		} else if ("circle".equalsIgnoreCase(name)) {
+			recalculateCircle(attributes, matrix);
+		} else if ("text".equalsIgnoreCase(name)) {
+			recalculateText(attributes, matrix);
+		} else if ("rect".equalsIgnoreCase(name)) {
+			recalculateRect(attributes, matrix);
+		} else {
+			return false;
+		}
+		updateStyle(attributes, matrix.m00);
+		return true;
+	}
+	
+	/**
+	 * Attributes of an element read and written by the recalculations, a missing attribute is an empty string.
+	 */
+	private interface Attributes {
+		
+		String get(String name);
+		
+		void set(String name, String value);
+	}
+	
+	private static Attributes attributes(Element element) {
+		return new Attributes() {
+			@Override
+			public String get(String name) {
+				return element.getAttribute(name);
+			}
+			
+			@Override
+			public void set(String name, String value) {
+				element.setAttribute(name, value);
+			}
+		};
+	}
+	
+	private void recalculateCircle(Attributes child, Matrix matrix) {
+		float rayon = Float.parseFloat(child.get("r"));
+		String cx = child.get("cx");
+		String cy = child.get("cy");
 		
 		Point center = new Point(Float.parseFloat(cx), Float.parseFloat(cy));
 		Point newcenter = matrix.apply(center);
 		
-		child.setAttribute("cx", this.dfCoo.format(newcenter.x));
-		child.setAttribute("cy", this.dfCoo.format(newcenter.y));
-		child.setAttribute("r", this.dfCoo.format(rayon * matrix.m00));
+		child.set("cx", this.dfCoo.format(newcenter.x));
+		child.set("cy", this.dfCoo.format(newcenter.y));
+		child.set("r", this.dfCoo.format(rayon * matrix.m00));
 		
 	}
 	
-	private void recalculateText(Element child, Matrix matrix) {
-		String x = child.getAttribute("x");
-		String y = child.getAttribute("y");
+	private void recalculateText(Attributes child, Matrix matrix) {
+		String x = child.get("x");
+		String y = child.get("y");
 		
 		Point positon = new Point(Float.parseFloat(x), Float.parseFloat(y));
 		Point newPosition = matrix.apply(positon);
 		
-		child.setAttribute("x", this.dfCoo.format(newPosition.x));
-		child.setAttribute("y", this.dfCoo.format(newPosition.y));
+		child.set("x", this.dfCoo.format(newPosition.x));
+		child.set("y", this.dfCoo.format(newPosition.y));
 	}
 	
-	private void recalculateRect(Element child, Matrix matrix) {
-		String x = child.getAttribute("x");
-		String y = child.getAttribute("y");
+	private void recalculateRect(Attributes child, Matrix matrix) {
+		String x = child.get("x");
+		String y = child.get("y");
 		
-		float width = Float.parseFloat(child.getAttribute(WIDTH));
-		float height = Float.parseFloat(child.getAttribute(HEIGHT));
+		float width = Float.parseFloat(child.get(WIDTH));
+		float height = Float.parseFloat(child.get(HEIGHT));
 		
 		Point positon = new Point(Float.parseFloat(x), Float.parseFloat(y));
 		
 		Point newpositon = matrix.apply(positon);
 		
-		child.setAttribute("x", this.dfCoo.format(newpositon.x));
-		child.setAttribute("y", this.dfCoo.format(newpositon.y));
+		child.set("x", this.dfCoo.format(newpositon.x));
+		child.set("y", this.dfCoo.format(newpositon.y));
 		
 		
-		child.setAttribute(WIDTH, this.dfCoo.format(width * matrix.m00));
-		child.setAttribute(HEIGHT, this.dfCoo.format(height * matrix.m00));
+		child.set(WIDTH, this.dfCoo.format(width * matrix.m00));
+		child.set(HEIGHT, this.dfCoo.format(height * matrix.m00));
 	}
 	
-	private void recalculateImage(Element image, Matrix matrix) {
-		String x = image.getAttribute("x");
-		String y = image.getAttribute("y");
+	private void recalculateImage(Attributes image, Matrix matrix) {
+		String x = image.get("x");
+		String y = image.get("y");
 		
-		float width = Float.parseFloat(image.getAttribute(WIDTH));
-		float height = Float.parseFloat(image.getAttribute(HEIGHT));
+		float width = Float.parseFloat(image.get(WIDTH));
+		float height = Float.parseFloat(image.get(HEIGHT));
 		
 		Point positon = new Point(Float.parseFloat(x), Float.parseFloat(y));
 		Point newPosition = matrix.apply(positon);
 		
-		image.setAttribute("x", String.valueOf(Math.round(newPosition.x)));
-		image.setAttribute("y", String.valueOf(Math.round(newPosition.y)));
+		image.set("x", String.valueOf(Math.round(newPosition.x)));
+		image.set("y", String.valueOf(Math.round(newPosition.y)));
 		
-		image.setAttribute(WIDTH, String.valueOf(Math.round(Math.abs(width * matrix.m00))));
-		image.setAttribute(HEIGHT, String.valueOf(Math.round(Math.abs(height * matrix.m11))));
+		image.set(WIDTH, String.valueOf(Math.round(Math.abs(width * matrix.m00))));
+		image.set(HEIGHT, String.valueOf(Math.round(Math.abs(height * matrix.m11))));
 	}
 	
 	
-	private void recalculatePath(Element child, Matrix matrix) {
-		String d = child.getAttribute("d").trim();
-		StringBuilder newD = new StringBuilder();
-		
-		final String regex = "([MLQTCSAZVH])([^MLQTCSAZVH]*)";
-		
-		final Pattern pattern = Pattern.compile(regex, Pattern.MULTILINE);
-		final Matcher matcher = pattern.matcher(d);
-		
-		boolean first = true;
-		while (matcher.find()) {
-			if (!first) {
-				newD.append(" ");
+	private void recalculatePath(Attributes child, Matrix matrix) {
+		List<PathData.Segment> segments = PathData.parse(child.get("d"));
+		List<PathData.Segment> transformed = new ArrayList<>(segments.size());
+		for (PathData.Segment segment : segments) {
+			double[] values = segment.values().clone();
+			if (segment.command() == 'A') {
+				Point rxy = matrix.scale(new Point((float) values[0], (float) values[1]));
+				Point xy = matrix.apply(new Point((float) values[5], (float) values[6]));
+				values[0] = rxy.x;
+				values[1] = rxy.y;
+				values[4] = 1; // need to invert all arcs
+				values[5] = xy.x;
+				values[6] = xy.y;
 			} else {
-				first = false;
+				for (int i = 0; i < values.length; i = i + 2) {
+					Point xy = matrix.apply(new Point((float) values[i], (float) values[i + 1]));
+					values[i] = xy.x;
+					values[i + 1] = xy.y;
+				}
 			}
-			String letter = matcher.group(1);
-			String coordinates = matcher.group(2);
-			newD.append(letter);
-			if ("A".equals(letter)) {
-				String[] coos = coordinates.split(" ");
-				float rx = Float.parseFloat(coos[0]);
-				float ry = Float.parseFloat(coos[1]);
-				float xaxis = Float.parseFloat(coos[2]);
-				int laf = Integer.parseInt(coos[3]);
-				// int sf = Integer.parseInt(coos[4]);
-				float x = Float.parseFloat(coos[5]);
-				float y = Float.parseFloat(coos[6]);
-				Point rxy = new Point(rx, ry);
-				Point xy = new Point(x, y);
-				
-				rxy = matrix.scale(rxy);
-				xy = matrix.apply(xy);
-				newD.append(rxy.toString()).append(" ");
-				newD.append(xaxis).append(" ");
-				newD.append(laf).append(" ");
-				// newD.append(sf + " ");
-				newD.append("1 ");// need to invert all arcs
-				newD.append(xy.toString());
-			} else if ("Z".equals(letter)) {
-				// do nothing
+			transformed.add(new PathData.Segment(segment.command(), values));
+		}
+		
+		child.set("d", this.pathData != null ? this.pathData.encode(transformed) : toPathData(transformed));
+	}
+	
+	/**
+	 * @return the path data with absolute commands and the coordinates formatted with 4 decimals
+	 */
+	private String toPathData(List<PathData.Segment> segments) {
+		StringBuilder d = new StringBuilder();
+		for (PathData.Segment segment : segments) {
+			if (d.length() > 0) {
+				d.append(" ");
+			}
+			d.append(segment.command());
+			double[] values = segment.values();
+			if (segment.command() == 'A') {
+				d.append(new Point((float) values[0], (float) values[1])).append(" ");
+				d.append((float) values[2]).append(" ");
+				d.append((int) values[3]).append(" ");
+				d.append((int) values[4]).append(" ");
+				d.append(new Point((float) values[5], (float) values[6]));
 			} else {
-				String[] coos = coordinates.split(" ");
-				for (int i = 0; i < coos.length; i = i + 2) {
+				for (int i = 0; i < values.length; i = i + 2) {
 					if (i > 0) {
-						newD.append(" ");
+						d.append(" ");
 					}
-					float x = Float.parseFloat(coos[i]);
-					float y = Float.parseFloat(coos[i + 1]);
-					Point xy = new Point(x, y);
-					xy = matrix.apply(xy);
-					newD.append(xy.toString());
+					d.append(new Point((float) values[i], (float) values[i + 1]));
 				}
 			}
-			
 		}
-		
-		child.setAttribute("d", newD.toString());
+		return d.toString();
 	}
 	
 	private Matrix[] parseTransform(String transform) {
@@ -506,12 +685,12 @@ public class SVGUtils {
 		}
 	}
 	
-	private void updateStyle(Element g, float m00) {
-		String style = g.getAttribute("style");
+	private void updateStyle(Attributes g, float m00) {
+		String style = g.get("style");
 		if (!style.isEmpty()) {
 			style = parseStrokeWidth(style, m00);
 			style = parseFontSize(style, m00);
-			g.setAttribute("style", style);
+			g.set("style", style);
 		}
 	}
 	
@@ -671,14 +850,18 @@ public class SVGUtils {
 		options.put("hotSpotColor","rgba(0,200,100,0.5)");
 		
 		
-		final Collection<File> cgms = FileUtils.listFiles(new File(input), new String[]{"cgm", "CGM"}, false);
 		final long begin = System.currentTimeMillis();
-		for (File cgmFile : cgms) {
-			try {
-				JcgmToSvg.convert(cgmFile.getAbsolutePath(), output, options);
-			} catch (IOException e) {
-				logger.error("Error while converting CGM {}", cgmFile);
+		try {
+			// only the CGMs changed since the previous run are converted
+			Path manifest = Path.of(output, ".jcgmtosvg-manifest");
+			List<ConversionResult> results = JcgmToSvg.convertIncremental(Path.of(input), Path.of(output), manifest, options, Runtime.getRuntime().availableProcessors());
+			for (ConversionResult result : results) {
+				if (!result.isSuccess()) {
+					logger.error("Error while converting CGM {}", result.input());
+				}
 			}
+		} catch (IOException e) {
+			logger.error("Error while listing the CGMs of {}", input);
 		}
 		final long end = System.currentTimeMillis();
 		logger.debug("The conversion took {}ms", end - begin);
@@ -0,0 +1,57 @@
+package com.jpprade.jcgmtosvg;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the index of a tiled output as a single JSON object, the tiles are listed as [column,row] and the empty
+ * ones are not written:
+ * <pre>
+ * {"width":800,"height":600,"tileSize":512,"path":"{z}/{x}_{y}.svg","overlay":"hotspots.svg",
+ *   "levels":[{"zoom":0.64,"columns":1,"rows":1,"tiles":[[0,0]]}]}
+ * </pre>
+ */
+final class TileIndexJsonWriter {
+
+	static final String TILE_PATH = "{z}/{x}_{y}.svg";
+
+	static final String OVERLAY = "hotspots.svg";
+
+	/**
+	 * @param zoom    the tile px per canvas px
+	 * @param columns the number of tiles along the x axis
+	 * @param rows    the number of tiles along the y axis
+	 * @param tiles   the column and row of the tiles written
+	 */
+	record Level(double zoom, int columns, int rows, List<Point> tiles) {
+	}
+
+	private TileIndexJsonWriter() {
+	}
+
+	static void write(Dimension size, int tileSize, List<Level> levels, Writer out) throws IOException {
+		out.write("{\"width\":" + size.width + ",\"height\":" + size.height + ",\"tileSize\":" + tileSize);
+		out.write(",\"path\":\"" + TILE_PATH + "\",\"overlay\":\"" + OVERLAY + "\",\"levels\":[");
+		for (int i = 0; i < levels.size(); i++) {
+			Level level = levels.get(i);
+			if (i > 0) {
+				out.write(',');
+			}
+			out.write("{\"zoom\":" + level.zoom() + ",\"columns\":" + level.columns() + ",\"rows\":" + level.rows()
+					+ ",\"tiles\":[");
+			for (int j = 0; j < level.tiles().size(); j++) {
+				Point tile = level.tiles().get(j);
+				if (j > 0) {
+					out.write(',');
+				}
+				out.write("[" + tile.x + "," + tile.y + "]");
+			}
+			out.write("]}");
+		}
+		out.write("]}");
+		out.flush();
+	}
+}
@@ -0,0 +1,260 @@
+package com.jpprade.jcgmtosvg;
+
+import com.jpprade.jcgmtosvg.extension.PathSimplifier;
+import com.jpprade.jcgmtosvg.extension.StreamingSVGGraphics2D;
+import com.jpprade.jcgmtosvg.extension.StyleClasses;
+import com.jpprade.jcgmtosvg.extension.TileGraphics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Conversion of a CGM file to SVG tiles at several zoom levels, see
+ * {@link JcgmToSvgConverter#convertTiled(Path, Path)}.
+ */
+final class TiledConversion {
+
+	private static final Logger logger = LoggerFactory.getLogger(TiledConversion.class);
+
+	/**
+	 * Number of tile files open at once, well below the usual limit of 1024 open files per process.
+	 */
+	static final int MAX_OPEN_TILES = 256;
+
+	private final JcgmToSvgConverter converter;
+
+	private final ConversionOptions options;
+
+	TiledConversion(JcgmToSvgConverter converter) {
+		this.converter = converter;
+		this.options = converter.getOptions();
+	}
+
+	/**
+	 * @return the index file
+	 */
+	Path convert(Path input, Path outputDirectory) throws IOException {
+		logger.info("Start of the tiled conversion of {} with the options:{}.", input, this.options);
+		ByteBuffer buffer = this.converter.read(input);
+		CGM4SVG cgm;
+		try {
+			cgm = JcgmToSvgConverter.loadCgm(painter -> new CGM4SVG(buffer, painter, this.options), new SVGPainter());
+		} catch (RuntimeException e) {
+			throw new JcgmToSvgException("Error while converting the CGM to SVG tiles", e);
+		}
+		if (cgm == null) {
+			throw new JcgmToSvgException("Could not load the CGM");
+		}
+		Dimension size = cgm.getSize();
+		int side = Math.max(size.width, size.height);
+		if (side <= 0) {
+			throw new JcgmToSvgException("Invalid CGM size: {0}x{1}", size.width, size.height);
+		}
+		int tilePixels = this.options.getTileSize();
+		int levels = this.options.getTileLevels() != null ? this.options.getTileLevels()
+				: Math.max(1, (int) Math.ceil(Math.log(side / (double) tilePixels) / Math.log(2)) + 1);
+		double finestZoom = tilePixels * Math.pow(2, levels - 1) / side;
+		int precision = JcgmToSvgConverter.adaptivePrecision(cgm, finestZoom, 1);
+		Files.createDirectories(outputDirectory);
+
+		List<TileIndexJsonWriter.Level> index = new ArrayList<>(levels);
+		try (Writer overlayOut = Files.newBufferedWriter(outputDirectory.resolve(TileIndexJsonWriter.OVERLAY), StandardCharsets.UTF_8)) {
+			StreamingSVGGraphics2D overlay = new StreamingSVGGraphics2D(overlayOut, precision);
+			overlay.startDocument(size, JcgmToSvgConverter.STYLE_SHEET, JcgmToSvgConverter.HOTSPOT_SCRIPT);
+			for (int z = 0; z < levels; z++) {
+				index.add(writeLevel(cgm, z, z == levels - 1, precision, z == 0 ? overlay : null, outputDirectory));
+			}
+			overlay.endDocument();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		Path indexFile = outputDirectory.resolve("index.json");
+		try (Writer out = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)) {
+			TileIndexJsonWriter.write(size, tilePixels, index, out);
+		}
+		logger.info("End of the tiled conversion, {} levels.", levels);
+		return indexFile;
+	}
+
+	/**
+	 * Paints the CGM on the tiles of a zoom level and writes the tiles drawn on.
+	 *
+	 * @param overlay receives the hotspots and TDETs, null when they are already written
+	 */
+	private TileIndexJsonWriter.Level writeLevel(CGM4SVG cgm, int z, boolean finest, int precision, StreamingSVGGraphics2D overlay, Path outputDirectory) throws IOException {
+		Dimension size = cgm.getSize();
+		int tilePixels = this.options.getTileSize();
+		double tileSize = Math.max(size.width, size.height) / Math.pow(2, z);
+		double zoom = tilePixels / tileSize;
+		int columns = Math.max(1, (int) Math.ceil(size.width / tileSize));
+		int rows = Math.max(1, (int) Math.ceil(size.height / tileSize));
+		PathSimplifier simplifier = this.converter.pathSimplifier();
+		if (!finest) {
+			simplifier = new PathSimplifier(simplifier == null ? 0.5 : Math.max(0.5, simplifier.getTolerance()));
+		}
+		PathSimplifier levelSimplifier = simplifier;
+
+		// every tile is written to its file while painting, the level is never held in memory
+		Path directory = Files.createDirectories(outputDirectory.resolve(Integer.toString(z)));
+		StreamingSVGGraphics2D[] tiles = new StreamingSVGGraphics2D[columns * rows];
+		List<Point> written = new ArrayList<>();
+		try (TileFiles files = new TileFiles(MAX_OPEN_TILES)) {
+			TileGraphics g = new TileGraphics(tilePixels, tileSize, columns, rows, (column, row) -> {
+				Writer out = files.writer(directory.resolve(column + "_" + row + ".svg"));
+				StreamingSVGGraphics2D tile = new StreamingSVGGraphics2D(out, precision);
+				tile.setPathSimplifier(levelSimplifier);
+				tile.setHatchPatterns(this.options.isHatchPatterns());
+				tile.setCompactPathData(this.options.isCompactPathData());
+				if (this.options.isStyleClasses()) {
+					tile.setStyleClasses(new StyleClasses());
+				}
+				tile.startDocument(new Dimension(tilePixels, tilePixels), JcgmToSvgConverter.STYLE_SHEET, null);
+				tiles[row * columns + column] = tile;
+				return tile;
+			});
+			g.setHatchPatterns(this.options.isHatchPatterns());
+			g.setOverlay(overlay);
+			if (!finest) {
+				g.setMinimumSize(0.5 / zoom);
+			}
+			try {
+				JcgmToSvg.paint2(g, cgm);
+			} catch (NullPointerException e) {
+				throw new JcgmToSvgException("Invalid CGM input stream: ", e);
+			}
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					StreamingSVGGraphics2D tile = tiles[row * columns + column];
+					if (tile != null) {
+						tile.endDocument();
+						written.add(new Point(column, row));
+					}
+				}
+			}
+		}
+		logger.debug("Level {}: {} of {} tiles written", z, written.size(), columns * rows);
+		return new TileIndexJsonWriter.Level(zoom, columns, rows, written);
+	}
+
+	/**
+	 * Files of the tiles of a level, of which at most a fixed number are open at once: a level can have thousands of
+	 * tiles drawn on in any order. The least recently written file is closed when another one must be opened, and
+	 * opened again in append mode the next time its tile is drawn on.
+	 */
+	static final class TileFiles implements Closeable {
+
+		private final int maxOpen;
+
+		/**
+		 * The open files, from the least to the most recently written.
+		 */
+		private final LinkedHashMap<Path, Writer> open = new LinkedHashMap<>(16, 0.75f, true);
+
+		/**
+		 * The files already created, written in append mode when opened again.
+		 */
+		private final Set<Path> created = new HashSet<>();
+
+		TileFiles(int maxOpen) {
+			if (maxOpen < 1) {
+				throw new JcgmToSvgException("Invalid number of open tiles {0}", maxOpen);
+			}
+			this.maxOpen = maxOpen;
+		}
+
+		/**
+		 * @return the writer of the file, which is only opened when something is written
+		 */
+		Writer writer(Path file) {
+			return new Writer() {
+				@Override
+				public void write(char[] cbuf, int off, int len) throws IOException {
+					open(file).write(cbuf, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					Writer out = TileFiles.this.open.get(file);
+					if (out != null) {
+						out.flush();
+					}
+				}
+
+				@Override
+				public void close() throws IOException {
+					Writer out = TileFiles.this.open.remove(file);
+					if (out != null) {
+						out.close();
+					}
+				}
+			};
+		}
+
+		/**
+		 * @return the number of files open
+		 */
+		int openCount() {
+			return this.open.size();
+		}
+
+		private Writer open(Path file) throws IOException {
+			Writer out = this.open.get(file);
+			if (out != null) {
+				return out;
+			}
+			if (this.open.size() >= this.maxOpen) {
+				Iterator<Writer> eldest = this.open.values().iterator();
+				Writer closed = eldest.next();
+				eldest.remove();
+				closed.close();
+			}
+			out = this.created.add(file) ? Files.newBufferedWriter(file, StandardCharsets.UTF_8)
+					: Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			this.open.put(file, out);
+			return out;
+		}
+
+		/**
+		 * Closes the files left open.
+		 *
+		 * @throws IOException if a file cannot be written, the other files are still closed
+		 */
+		@Override
+		public void close() throws IOException {
+			IOException failure = null;
+			for (Writer out : this.open.values()) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			this.open.clear();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+}
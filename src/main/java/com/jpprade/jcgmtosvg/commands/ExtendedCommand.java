@@ -2,13 +2,15 @@ package com.jpprade.jcgmtosvg.commands;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
-import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
+import com.jpprade.jcgmtosvg.extension.HatchGraphics;
+import com.jpprade.jcgmtosvg.extension.HatchPaint;
 
 import net.sf.jcgm.core.HatchIndex.HatchType;
 
@@ -17,7 +19,12 @@ public class ExtendedCommand {
 	private static final double STEP_X = 1.41;
 	private static final double STEP_Y = 1.41;
 	
-	public void drawHatch(Shape s, SVGGraphics2DHS g2d, Color fillColor, HatchType hatchType) {
+	public void drawHatch(Shape s, Graphics2D g2d, Color fillColor, HatchType hatchType) {
+		if (g2d instanceof HatchGraphics hatchGraphics && hatchGraphics.isHatchPatterns()) {
+			fillHatch(s, g2d, fillColor, hatchType);
+			return;
+		}
+		
 		// remember the clip and the stroke since we're overwriting them here
 		Shape previousClippingArea = g2d.getClip();
 		Stroke previousStroke = g2d.getStroke();
@@ -53,19 +60,31 @@ public class ExtendedCommand {
 	}
 	
 	
-	private void drawVerticalLines(Rectangle2D bounds, final double stepX, SVGGraphics2DHS g2d) {
+	/**
+	 * Fills the shape with a hatch pattern instead of clipping and drawing every line.
+	 */
+	private void fillHatch(Shape s, Graphics2D g2d, Color fillColor, HatchType hatchType) {
+		if (HatchPaint.isSupported(hatchType)) {
+			g2d.setPaint(new HatchPaint(hatchType, fillColor, STEP_X));
+			g2d.fill(s);
+		}
+		// the lines leave the fill colour as the current colour
+		g2d.setColor(fillColor);
+	}
+	
+	private void drawVerticalLines(Rectangle2D bounds, final double stepX, Graphics2D g2d) {
 		for (double x = bounds.getX(); x < bounds.getX() + bounds.getWidth(); x += stepX) {
 			g2d.draw(new Line2D.Double(x, bounds.getY(), x, bounds.getY() + bounds.getHeight()));
 		}
 	}
 	
-	private void drawHorizontalLines(Rectangle2D bounds, final double stepY, SVGGraphics2DHS g2d) {
+	private void drawHorizontalLines(Rectangle2D bounds, final double stepY, Graphics2D g2d) {
 		for (double y = bounds.getY(); y < bounds.getY() + bounds.getHeight(); y += stepY) {
 			g2d.draw(new Line2D.Double(bounds.getX(), y, bounds.getX() + bounds.getWidth(), y));
 		}
 	}
 	
-	private void drawPositiveSlopeLines(Rectangle2D bounds, final double slopeStep, SVGGraphics2DHS g2d) {
+	private void drawPositiveSlopeLines(Rectangle2D bounds, final double slopeStep, Graphics2D g2d) {
 		Point2D.Double currentBegin = new Point2D.Double(bounds.getX(), bounds.getY() + bounds.getHeight());
 		Point2D.Double currentEnd = currentBegin;
 		
@@ -97,7 +116,7 @@ public class ExtendedCommand {
 		}
 	}
 	
-	private void drawNegativeSlopeLines(Rectangle2D bounds, final double slopeStep, SVGGraphics2DHS g2d) {
+	private void drawNegativeSlopeLines(Rectangle2D bounds, final double slopeStep, Graphics2D g2d) {
 		Point2D.Double currentBegin = new Point2D.Double(bounds.getX(), bounds.getY());
 		Point2D.Double currentEnd = currentBegin;
 		
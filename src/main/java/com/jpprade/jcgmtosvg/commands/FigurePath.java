@@ -0,0 +1,170 @@
+package com.jpprade.jcgmtosvg.commands;
+
+import net.sf.jcgm.core.CGMDisplay;
+import net.sf.jcgm.core.EdgeColour;
+import net.sf.jcgm.core.EdgeWidth;
+import net.sf.jcgm.core.FillColour;
+import net.sf.jcgm.core.InteriorStyle;
+import net.sf.jcgm.core.InteriorStyle.Style;
+import net.sf.jcgm.core.PolyBezier;
+import net.sf.jcgm.core.workaround.Graphics2DDecorator;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * The closed path of a figure, accumulated from its poly-beziers between BEGIN FIGURE and END FIGURE.
+ * <p>
+ * The segments are appended to a growable coordinate buffer, so accumulating a figure is linear in its number of
+ * segments, and the {@link GeneralPath} is built once when the figure is painted.
+ */
+public class FigurePath extends ExtendedCommand {
+
+	private static final int INITIAL_SEGMENTS = 16;
+
+	/**
+	 * The start point then the two control points and the end point of every cubic segment.
+	 */
+	private double[] coords = new double[2 + 6 * INITIAL_SEGMENTS];
+
+	private int segments = 0;
+
+	/**
+	 * Appends the segments of a poly-bezier, the start point of the figure is the first point of the first one.
+	 */
+	public void append(PolyBezier polyBezier) {
+		append(polyBezier.getP1(), polyBezier.getP2(), polyBezier.getP3(), polyBezier.getP4());
+	}
+
+	void append(Point2D.Double[] p1, Point2D.Double[] p2, Point2D.Double[] p3, Point2D.Double[] p4) {
+		append(PolyBezierV2.pack(p1, p2, p3, p4));
+	}
+
+	/**
+	 * @param curves the start point, the two control points and the end point of every curve, as packed by
+	 *               {@link PolyBezierV2}
+	 */
+	void append(double[] curves) {
+		int n = curves.length / 8;
+		if (n == 0) {
+			return;
+		}
+		int needed = 2 + 6 * (this.segments + n);
+		if (needed > this.coords.length) {
+			this.coords = Arrays.copyOf(this.coords, Math.max(needed, 2 * this.coords.length));
+		}
+		if (this.segments == 0) {
+			this.coords[0] = curves[0];
+			this.coords[1] = curves[1];
+		}
+		int pos = 2 + 6 * this.segments;
+		for (int i = 0; i < curves.length; i += 8) {
+			System.arraycopy(curves, i + 2, this.coords, pos, 6);
+			pos += 6;
+		}
+		this.segments += n;
+	}
+
+	public boolean isEmpty() {
+		return this.segments == 0;
+	}
+
+	/**
+	 * @return the number of cubic segments of the figure
+	 */
+	public int getSegmentCount() {
+		return this.segments;
+	}
+
+	/**
+	 * @return the closed path through all the segments
+	 */
+	public GeneralPath toPath() {
+		return toPath(this.coords, this.segments);
+	}
+
+	/**
+	 * Builds the closed path of packed coordinates.
+	 *
+	 * @param coords   the start point then the two control points and the end point of every segment, x and y
+	 *                 interleaved
+	 * @param segments the number of segments to read
+	 * @return the closed path through the segments, empty if there is none
+	 */
+	public static GeneralPath toPath(double[] coords, int segments) {
+		// one type and up to 3 points per segment, sized up front so that the path never grows
+		GeneralPath gp = new GeneralPath(Path2D.WIND_NON_ZERO, 3 * segments + 2);
+		if (segments == 0) {
+			return gp;
+		}
+		gp.moveTo(coords[0], coords[1]);
+		for (int pos = 2; pos < 2 + 6 * segments; pos += 6) {
+			gp.curveTo(coords[pos], coords[pos + 1], coords[pos + 2], coords[pos + 3], coords[pos + 4], coords[pos + 5]);
+		}
+		gp.closePath();
+		return gp;
+	}
+
+	public void paint(CGMDisplay d, FillColour currentFC, EdgeColour currentEC, EdgeWidth currentEW) {
+		Graphics2D g2d;
+		if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
+			g2d = decorator.getDelegate();
+		} else {
+			g2d = d.getGraphics2D();
+		}
+		if (currentEC != null || currentEW != null) {
+			g2d.setStroke(d.getEdgeStroke());
+			g2d.setColor(d.getEdgeColor());
+		} else {
+			g2d.setStroke(d.getLineStroke());
+			g2d.setColor(d.getLineColor());
+		}
+
+		GeneralPath gp = toPath();
+
+		Style s = d.getInteriorStyle();
+		if (currentFC != null) {
+			if (InteriorStyle.Style.HATCH.equals(s)) {
+				drawHatch(gp, g2d, d.getFillColor(), d.getHatchType());
+				drawCustom(g2d, gp);
+			} else if (InteriorStyle.Style.EMPTY.equals(s)) {
+				drawCustom(g2d, gp);
+			} else {
+				Color fColor = d.getFillColor();
+				g2d.setPaint(fColor);
+				g2d.fill(gp);
+				if (d.drawEdge()) {
+					g2d.setColor(d.getEdgeColor());
+					g2d.setStroke(d.getEdgeStroke());
+					drawCustom(g2d, gp);
+				}
+			}
+
+		} else {
+			if (InteriorStyle.Style.SOLID.equals(s)) {
+				Color fColor = d.getFillColor();
+				g2d.setPaint(fColor);
+				g2d.fill(gp);
+				g2d.setStroke(d.getLineStroke());
+				g2d.setColor(d.getLineColor());
+				if (d.drawEdge()) {
+					g2d.setColor(d.getEdgeColor());
+					g2d.setStroke(d.getEdgeStroke());
+					drawCustom(g2d, gp);
+				}
+			} else {
+				drawCustom(g2d, gp);
+			}
+		}
+	}
+
+	private void drawCustom(Graphics2D g2d, Shape gp) {
+		g2d.draw(gp);
+	}
+
+}
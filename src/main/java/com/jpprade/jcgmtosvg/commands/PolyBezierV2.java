@@ -1,50 +1,73 @@
 package com.jpprade.jcgmtosvg.commands;
 
-import com.jpprade.jcgmtosvg.extension.SVGGraphics2DHS;
 import net.sf.jcgm.core.BeginFigure;
 import net.sf.jcgm.core.CGMDisplay;
 import net.sf.jcgm.core.EdgeColour;
 import net.sf.jcgm.core.EdgeWidth;
 import net.sf.jcgm.core.FillColour;
-import net.sf.jcgm.core.InteriorStyle;
-import net.sf.jcgm.core.InteriorStyle.Style;
 import net.sf.jcgm.core.PolyBezier;
 import net.sf.jcgm.core.workaround.Graphics2DDecorator;
 
 import java.awt.*;
-import java.awt.geom.CubicCurve2D;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
-import java.awt.geom.Point2D.Double;
+import java.util.Arrays;
 
 public class PolyBezierV2 extends ExtendedCommand {
 	
 	/**
-	 * The scales curves to draw
+	 * The start point, the two control points and the end point of every curve, x and y interleaved
 	 */
-	private CubicCurve2D.Double[] curves;
-	
-	private Point2D.Double[] p1;
-	private Point2D.Double[] p2;
-	private Point2D.Double[] p3;
-	private Point2D.Double[] p4;
+	private double[] coords;
 	
 	public PolyBezierV2(PolyBezier polyBezier) {
-		this.p1 = polyBezier.getP1();
-		this.p2 = polyBezier.getP2();
-		this.p3 = polyBezier.getP3();
-		this.p4 = polyBezier.getP4();
+		this.coords = pack(polyBezier.getP1(), polyBezier.getP2(), polyBezier.getP3(), polyBezier.getP4());
+	}
+	
+	static double[] pack(Point2D.Double[] p1, Point2D.Double[] p2, Point2D.Double[] p3, Point2D.Double[] p4) {
+		double[] coords = new double[8 * p1.length];
+		int pos = 0;
+		for (int i = 0; i < p1.length; i++) {
+			coords[pos++] = p1[i].x;
+			coords[pos++] = p1[i].y;
+			coords[pos++] = p2[i].x;
+			coords[pos++] = p2[i].y;
+			coords[pos++] = p3[i].x;
+			coords[pos++] = p3[i].y;
+			coords[pos++] = p4[i].x;
+			coords[pos++] = p4[i].y;
+		}
+		return coords;
+	}
+	
+	/**
+	 * @return the number of curves
+	 */
+	public int getCurveCount() {
+		return this.coords.length / 8;
 	}
 	
-	public void initCurves() {
-		this.curves = new CubicCurve2D.Double[this.p1.length];
-		
-		for (int i = 0; i < this.p1.length; i++) {
-			CubicCurve2D.Double c = new CubicCurve2D.Double();
-			c.setCurve(this.p1[i].x, this.p1[i].y,
-					this.p2[i].x, this.p2[i].y, this.p3[i].x, this.p3[i].y, this.p4[i].x, this.p4[i].y);
-			this.curves[i] = c;
+	/**
+	 * Builds the open path through the curves. Like appending the curves one by one with
+	 * {@link Path2D#append(Shape, boolean) connect}, a curve that does not start where the previous one ends is joined
+	 * to it with a line.
+	 */
+	public GeneralPath toPath() {
+		int n = getCurveCount();
+		GeneralPath gp = new GeneralPath(Path2D.WIND_NON_ZERO, 2 * n);
+		for (int pos = 0; pos < this.coords.length; pos += 8) {
+			if (pos == 0) {
+				gp.moveTo(this.coords[0], this.coords[1]);
+			} else if ((float) this.coords[pos] != (float) this.coords[pos - 2]
+					|| (float) this.coords[pos + 1] != (float) this.coords[pos - 1]) {
+				// compared as stored by the path, a GeneralPath holds floats
+				gp.lineTo(this.coords[pos], this.coords[pos + 1]);
+			}
+			gp.curveTo(this.coords[pos + 2], this.coords[pos + 3], this.coords[pos + 4], this.coords[pos + 5],
+					this.coords[pos + 6], this.coords[pos + 7]);
 		}
+		return gp;
 	}
 	
 	public void paint(CGMDisplay d, BeginFigure figure) {
@@ -54,130 +77,63 @@ public class PolyBezierV2 extends ExtendedCommand {
 	public void paint(CGMDisplay d, BeginFigure figure, FillColour currentFC, EdgeColour currentEC, EdgeWidth currentEW) {
 		int mode = figure == null ? 0 : 1;
 		if (mode == 0) {
-			if (this.curves == null) {
-				initCurves();
-			}
-
-			SVGGraphics2DHS g2d;
+			Graphics2D g2d;
 			if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-				g2d = (SVGGraphics2DHS) decorator.getDelegate();
+				g2d = decorator.getDelegate();
 			} else {
-				g2d = (SVGGraphics2DHS) d.getGraphics2D();
+				g2d = d.getGraphics2D();
 			}
 			g2d.setStroke(d.getLineStroke());
 			g2d.setColor(d.getLineColor());
 			
-			GeneralPath gp = new GeneralPath();
-			for (Shape curve : this.curves) {
-				gp.append(curve, true);
-			}
+			GeneralPath gp = toPath();
 			
 			drawCustom(g2d, gp);
 		} else {
-			SVGGraphics2DHS g2d;
-			if (d.getGraphics2D() instanceof Graphics2DDecorator decorator) {
-				g2d = (SVGGraphics2DHS) decorator.getDelegate();
-			} else {
-				g2d = (SVGGraphics2DHS) d.getGraphics2D();
-			}
-			if (currentEC != null || currentEW != null) {
-				g2d.setStroke(d.getEdgeStroke());
-				g2d.setColor(d.getEdgeColor());
-			} else {
-				g2d.setStroke(d.getLineStroke());
-				g2d.setColor(d.getLineColor());
-			}
-			
-			GeneralPath gp = new GeneralPath();
-			
-			for (int i = 0; i < this.p1.length; i++) {
-				if (i == 0) {
-					gp.moveTo(this.p1[i].x, this.p1[i].y);
-				}
-				
-				gp.curveTo(this.p2[i].x, this.p2[i].y, this.p3[i].x, this.p3[i].y, this.p4[i].x, this.p4[i].y);
-				
-				if (i == this.p1.length - 1) {
-					gp.closePath();
-				}
-			}
-			
-			Style s = d.getInteriorStyle();
-			if (currentFC != null) {
-				if (InteriorStyle.Style.HATCH.equals(s)) {
-					drawHatch(gp, g2d, d.getFillColor(), d.getHatchType());
-					drawCustom(g2d, gp);
-				} else if (InteriorStyle.Style.EMPTY.equals(s)) {
-					drawCustom(g2d, gp);
-				} else {
-					Color fColor = d.getFillColor();
-					g2d.setPaint(fColor);
-					g2d.fill(gp);
-					if (d.drawEdge()) {
-						g2d.setColor(d.getEdgeColor());
-						g2d.setStroke(d.getEdgeStroke());
-						drawCustom(g2d, gp);
-					}
-				}
-				
-			} else {
-				if (InteriorStyle.Style.SOLID.equals(s)) {
-					Color fColor = d.getFillColor();
-					g2d.setPaint(fColor);
-					g2d.fill(gp);
-					g2d.setStroke(d.getLineStroke());
-					g2d.setColor(d.getLineColor());
-					if (d.drawEdge()) {
-						g2d.setColor(d.getEdgeColor());
-						g2d.setStroke(d.getEdgeStroke());
-						drawCustom(g2d, gp);
-					}
-				} else {
-					drawCustom(g2d, gp);
-				}
-			}
+			FigurePath path = new FigurePath();
+			path.append(this.coords);
+			path.paint(d, currentFC, currentEC, currentEW);
 		}
 	}
 	
-	private void drawCustom(SVGGraphics2DHS g2d, Shape gp) {
+	private void drawCustom(Graphics2D g2d, Shape gp) {
 		g2d.draw(gp);
 	}
 	
 	public Point2D.Double[] getP1() {
-		return this.p1.clone();
+		return points(0);
 	}
 	
 	public Point2D.Double[] getP2() {
-		return this.p2.clone();
+		return points(2);
 	}
 	
 	public Point2D.Double[] getP3() {
-		return this.p3.clone();
+		return points(4);
 	}
 	
 	public Point2D.Double[] getP4() {
-		return this.p4.clone();
+		return points(6);
 	}
 	
-	private Point2D.Double[] concatArray(Point2D.Double[] a1, Point2D.Double[] a2) {
-		Point2D.Double[] ret = new Point2D.Double[a1.length + a2.length];
-		int index = 0;
-		for (Double aDouble : a1) {
-			ret[index] = aDouble;
-			index++;
+	private Point2D.Double[] points(int offset) {
+		Point2D.Double[] points = new Point2D.Double[getCurveCount()];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Point2D.Double(this.coords[8 * i + offset], this.coords[8 * i + offset + 1]);
 		}
-		for (Double aDouble : a2) {
-			ret[index] = aDouble;
-			index++;
-		}
-		return ret;
+		return points;
 	}
 	
+	/**
+	 * Appends the curves of another poly-bezier, every call copies all the points merged so far.
+	 *
+	 * @deprecated accumulate the poly-beziers of a figure in a {@link FigurePath} instead, which is linear
+	 */
+	@Deprecated
 	public void mergeShape(PolyBezierV2 polyBezierV2) {
-		this.p1 = concatArray(this.p1, polyBezierV2.getP1());
-		this.p2 = concatArray(this.p2, polyBezierV2.getP2());
-		this.p3 = concatArray(this.p3, polyBezierV2.getP3());
-		this.p4 = concatArray(this.p3, polyBezierV2.getP4());
+		double[] merged = Arrays.copyOf(this.coords, this.coords.length + polyBezierV2.coords.length);
+		System.arraycopy(polyBezierV2.coords, 0, merged, this.coords.length, polyBezierV2.coords.length);
+		this.coords = merged;
 	}
 	
 }
@@ -0,0 +1,51 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGShape;
+import org.apache.batik.util.SVGConstants;
+import org.w3c.dom.Element;
+
+import java.awt.Polygon;
+import java.awt.Shape;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+
+/**
+ * Batik shape converter writing the paths with {@link PathData}, the other shapes are converted by Batik.
+ */
+class CompactSVGShape extends SVGShape {
+
+	private PathData pathData;
+
+	CompactSVGShape(SVGGeneratorContext generatorContext) {
+		super(generatorContext);
+	}
+
+	@Override
+	public Element toSVG(Shape shape) {
+		if (shape instanceof Polygon || shape instanceof Rectangle2D || shape instanceof RoundRectangle2D
+				|| shape instanceof Ellipse2D || shape instanceof Line2D || shape instanceof Arc2D) {
+			return super.toSVG(shape);
+		}
+		// the precision of the context may change between two shapes
+		int precision = this.generatorContext.getPrecision();
+		if (this.pathData == null || this.pathData.getPrecision() != precision) {
+			this.pathData = new PathData(precision);
+		}
+		String d = this.pathData.encode(shape, null);
+		if (d.isEmpty()) {
+			return null;
+		}
+		Element path = this.generatorContext.getDOMFactory().createElementNS(SVGConstants.SVG_NAMESPACE_URI,
+				SVGConstants.SVG_PATH_TAG);
+		path.setAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE, d);
+		if (shape.getPathIterator(null).getWindingRule() == PathIterator.WIND_EVEN_ODD) {
+			path.setAttributeNS(null, SVGConstants.SVG_FILL_RULE_ATTRIBUTE, SVGConstants.SVG_EVEN_ODD_VALUE);
+		}
+		return path;
+	}
+}
@@ -0,0 +1,12 @@
+package com.jpprade.jcgmtosvg.extension;
+
+/**
+ * Graphics2D back end that can fill shapes with a {@link HatchPaint}.
+ */
+public interface HatchGraphics {
+
+	/**
+	 * @return true if the hatched shapes are filled with a {@link HatchPaint} instead of drawing every hatch line
+	 */
+	boolean isHatchPatterns();
+}
@@ -0,0 +1,154 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import net.sf.jcgm.core.HatchIndex.HatchType;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.PaintContext;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.TexturePaint;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.util.Objects;
+
+/**
+ * Hatch fill painted with a repeating tile, written as a single SVG {@code <pattern>} by the SVG back ends.
+ * <p>
+ * Two hatch paints are equal when they have the same hatch type, colour and step, so the back ends write the
+ * pattern once per document and every hatched shape refers to it. The lines have the same spacing and width as
+ * the ones drawn by {@code ExtendedCommand.drawHatch}, in the user space of the filled shape.
+ */
+public final class HatchPaint implements Paint {
+
+	/**
+	 * Width of the hatch lines in user space.
+	 */
+	public static final float LINE_WIDTH = 0.2f;
+
+	private final HatchType hatchType;
+
+	private final Color color;
+
+	private final double step;
+
+	/**
+	 * @param hatchType the hatch type, one of the line or crosshatch types
+	 * @param color     the colour of the lines
+	 * @param step      the distance between two horizontal or vertical lines in user space, slope lines are
+	 *                  1.41 times further apart along the axes
+	 */
+	public HatchPaint(HatchType hatchType, Color color, double step) {
+		this.hatchType = Objects.requireNonNull(hatchType);
+		this.color = Objects.requireNonNull(color);
+		this.step = step;
+	}
+
+	/**
+	 * @return true if the hatch type is drawn with lines, the other ones have no tile
+	 */
+	public static boolean isSupported(HatchType hatchType) {
+		return HatchType.HORIZONTAL_LINES.equals(hatchType) || HatchType.VERTICAL_LINES.equals(hatchType)
+				|| HatchType.POSITIVE_SLOPE_LINES.equals(hatchType) || HatchType.NEGATIVE_SLOPE_LINES.equals(hatchType)
+				|| HatchType.HORIZONTAL_VERTICAL_CROSSHATCH.equals(hatchType)
+				|| HatchType.POSITIVE_NEGATIVE_CROSSHATCH.equals(hatchType);
+	}
+
+	public HatchType getHatchType() {
+		return this.hatchType;
+	}
+
+	public Color getColor() {
+		return this.color;
+	}
+
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * @return the width and height of the square tile in user space
+	 */
+	public double getTileSize() {
+		return isSlope() ? this.step * 1.41 : this.step;
+	}
+
+	private boolean isSlope() {
+		return HatchType.POSITIVE_SLOPE_LINES.equals(this.hatchType) || HatchType.NEGATIVE_SLOPE_LINES.equals(this.hatchType)
+				|| HatchType.POSITIVE_NEGATIVE_CROSSHATCH.equals(this.hatchType);
+	}
+
+	/**
+	 * @return the lines of the tile, from (0, 0) to ({@link #getTileSize()}, {@link #getTileSize()}); the slope
+	 * lines overflow at the corners so that the tiles join without gaps
+	 */
+	public Shape getTile() {
+		double size = getTileSize();
+		double half = size / 2;
+		double quarter = size / 4;
+		Path2D.Double tile = new Path2D.Double();
+		if (HatchType.HORIZONTAL_LINES.equals(this.hatchType) || HatchType.HORIZONTAL_VERTICAL_CROSSHATCH.equals(this.hatchType)) {
+			line(tile, 0, half, size, half);
+		}
+		if (HatchType.VERTICAL_LINES.equals(this.hatchType) || HatchType.HORIZONTAL_VERTICAL_CROSSHATCH.equals(this.hatchType)) {
+			line(tile, half, 0, half, size);
+		}
+		if (HatchType.POSITIVE_SLOPE_LINES.equals(this.hatchType) || HatchType.POSITIVE_NEGATIVE_CROSSHATCH.equals(this.hatchType)) {
+			line(tile, -quarter, size - quarter, quarter, size + quarter);
+			line(tile, 0, 0, size, size);
+			line(tile, size - quarter, -quarter, size + quarter, quarter);
+		}
+		if (HatchType.NEGATIVE_SLOPE_LINES.equals(this.hatchType) || HatchType.POSITIVE_NEGATIVE_CROSSHATCH.equals(this.hatchType)) {
+			line(tile, -quarter, quarter, quarter, -quarter);
+			line(tile, 0, size, size, 0);
+			line(tile, size - quarter, size + quarter, size + quarter, size - quarter);
+		}
+		return tile;
+	}
+
+	private static void line(Path2D.Double path, double x1, double y1, double x2, double y2) {
+		path.moveTo(x1, y1);
+		path.lineTo(x2, y2);
+	}
+
+	@Override
+	public PaintContext createContext(ColorModel cm, Rectangle deviceBounds, Rectangle2D userBounds,
+	                                  AffineTransform xform, RenderingHints hints) {
+		// raster back ends: the tile is rendered at the device resolution and repeated
+		double size = getTileSize();
+		double scale = Math.max(1, Math.sqrt(Math.abs(xform.getDeterminant())));
+		int pixels = Math.max(1, (int) Math.ceil(size * scale));
+		BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.scale(pixels / size, pixels / size);
+		g.setColor(this.color);
+		g.setStroke(new BasicStroke(LINE_WIDTH));
+		g.draw(getTile());
+		g.dispose();
+		return new TexturePaint(image, new Rectangle2D.Double(0, 0, size, size))
+				.createContext(cm, deviceBounds, userBounds, xform, hints);
+	}
+
+	@Override
+	public int getTransparency() {
+		return TRANSLUCENT;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof HatchPaint other && this.hatchType.equals(other.hatchType) && this.color.equals(other.color)
+				&& Double.compare(this.step, other.step) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.hatchType, this.color, this.step);
+	}
+}
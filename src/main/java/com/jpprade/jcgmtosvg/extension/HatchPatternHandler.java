@@ -0,0 +1,53 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.svggen.DefaultExtensionHandler;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGPaintDescriptor;
+import org.apache.batik.svggen.SVGPath;
+import org.apache.batik.svggen.SVGSyntax;
+import org.apache.batik.util.SVGConstants;
+import org.w3c.dom.Element;
+
+import java.awt.Color;
+import java.awt.Paint;
+
+/**
+ * Batik extension writing a {@link HatchPaint} as a {@code <pattern>} definition.
+ * <p>
+ * Batik caches the descriptor of every paint it converted, so each distinct hatch paint is defined once per
+ * document and the hatched shapes are filled with {@code url(#hatch...)}.
+ */
+public class HatchPatternHandler extends DefaultExtensionHandler {
+
+	@Override
+	public SVGPaintDescriptor handlePaint(Paint paint, SVGGeneratorContext generatorContext) {
+		if (!(paint instanceof HatchPaint hatch)) {
+			return super.handlePaint(paint, generatorContext);
+		}
+		String size = generatorContext.doubleString(hatch.getTileSize());
+		Element pattern = generatorContext.getDOMFactory().createElementNS(SVGConstants.SVG_NAMESPACE_URI,
+				SVGConstants.SVG_PATTERN_TAG);
+		String id = generatorContext.getIDGenerator().generateID("hatch");
+		pattern.setAttributeNS(null, SVGConstants.SVG_ID_ATTRIBUTE, id);
+		pattern.setAttributeNS(null, SVGConstants.SVG_PATTERN_UNITS_ATTRIBUTE, SVGConstants.SVG_USER_SPACE_ON_USE_VALUE);
+		pattern.setAttributeNS(null, SVGConstants.SVG_WIDTH_ATTRIBUTE, size);
+		pattern.setAttributeNS(null, SVGConstants.SVG_HEIGHT_ATTRIBUTE, size);
+
+		Element lines = generatorContext.getDOMFactory().createElementNS(SVGConstants.SVG_NAMESPACE_URI,
+				SVGConstants.SVG_PATH_TAG);
+		lines.setAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE, SVGPath.toSVGPathData(hatch.getTile(), generatorContext));
+		Color color = hatch.getColor();
+		lines.setAttributeNS(null, SVGConstants.SVG_FILL_ATTRIBUTE, SVGConstants.SVG_NONE_VALUE);
+		lines.setAttributeNS(null, SVGConstants.SVG_STROKE_ATTRIBUTE,
+				"rgb(" + color.getRed() + "," + color.getGreen() + "," + color.getBlue() + ")");
+		lines.setAttributeNS(null, SVGConstants.SVG_STROKE_WIDTH_ATTRIBUTE, generatorContext.doubleString(HatchPaint.LINE_WIDTH));
+		if (color.getAlpha() < 255) {
+			lines.setAttributeNS(null, SVGConstants.SVG_STROKE_OPACITY_ATTRIBUTE,
+					generatorContext.doubleString(color.getAlpha() / 255d));
+		}
+		pattern.appendChild(lines);
+
+		return new SVGPaintDescriptor(SVGSyntax.URL_PREFIX + SVGSyntax.SIGN_POUND + id + SVGSyntax.URL_SUFFIX,
+				SVGConstants.SVG_OPAQUE_VALUE, pattern);
+	}
+}
@@ -0,0 +1,20 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A hotspot or TDET of a CGM, with the attributes the SVG back ends write on its element.
+ *
+ * @param type    whether it is a hotspot or a TDET
+ * @param id      the element id, empty for a TDET
+ * @param apsId   the identifier of the application structure
+ * @param apsName the name of the application structure, the text of a restricted text hotspot
+ * @param bounds  the bounds in device space, the {@code rect} of the hotspot link
+ */
+public record HotSpot(Type type, String id, String apsId, String apsName, Rectangle2D bounds) {
+
+	public enum Type {
+		HOTSPOT,
+		TDET
+	}
+}
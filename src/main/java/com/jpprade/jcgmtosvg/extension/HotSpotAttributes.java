@@ -0,0 +1,68 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the attributes of hotspot and TDET elements so that every graphics back end emits the same markup.
+ */
+final class HotSpotAttributes {
+
+	private static final String HOTSPOT_COLOR = "transparent";
+	private static final Pattern SANITIZER = Pattern.compile("[^a-zA-Z0-9-_.:,/() ]");
+
+	private HotSpotAttributes() {
+	}
+
+	/**
+	 * @param rect the hotspot bounds in device space
+	 */
+	static Map<String, String> hotSpot(Rectangle2D rect, String id, String apsId, String apsName, String link, String color) {
+		id = sanitize(id);
+		apsName = sanitize(apsName);
+		apsId = sanitize(apsId);
+		link = sanitize(link);
+
+		String hotSpotRectangle = rect.getX()+","+rect.getY()+","+rect.getWidth()+","+rect.getHeight();
+		String hotSpotLink = (link != null) ? "window.location.href='"+link+"?id="+apsId+"&name="+apsName+"&rect=["+hotSpotRectangle+"]'" : "";
+		// validated once by the options, the attribute value is escaped by the writers
+		String hotSpotColor = (color != null) ? color : HOTSPOT_COLOR;
+
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put("id", id);
+		attributes.put("apsname", apsName);
+		attributes.put("apsid", apsId);
+		attributes.put("fill-rule", "evenodd");
+		attributes.put("fill", hotSpotColor);
+		attributes.put("class", "hotspot");
+		attributes.put("onclick", "clickHS('" + id + "');"+hotSpotLink);
+		attributes.put("stroke", "none");
+		return attributes;
+	}
+
+	static Map<String, String> tdet(String apsId, String apsName) {
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put("apsname", sanitize(apsName));
+		attributes.put("apsid", sanitize(apsId));
+		attributes.put("class", "tdet");
+		return attributes;
+	}
+
+	/**
+	 * @param rect the bounds in device space
+	 * @return the hotspot or TDET with the attributes sanitized like on the SVG element
+	 */
+	static HotSpot record(HotSpot.Type type, Rectangle2D rect, String id, String apsId, String apsName) {
+		return new HotSpot(type, type == HotSpot.Type.TDET ? "" : sanitize(id), sanitize(apsId), sanitize(apsName), rect);
+	}
+
+	static String sanitize(String hotSpotAttribute) {
+		if(hotSpotAttribute == null) {
+			return "";
+		}
+		return SANITIZER.matcher(hotSpotAttribute).replaceAll("");
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.ext.awt.g2d.AbstractGraphics2D;
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Graphics2D back end that only collects the hotspots and TDETs, everything else is discarded.
+ * <p>
+ * The graphic context is tracked like in {@link SVGGraphics2DHS} so that the bounds are the ones written by
+ * {@code enrichHS}, but no SVG element is created. It is meant for the indexing pipelines that need the hotspots
+ * without the drawing.
+ */
+public class HotSpotCollector extends AbstractGraphics2D implements HotSpotGraphics {
+
+	private static final Graphics2D fmg = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+	private final List<HotSpot> hotSpots;
+
+	private List<HotSpot> sink;
+
+	public HotSpotCollector() {
+		super(false);
+		this.hotSpots = new ArrayList<>();
+		this.gc = new GraphicContext(new AffineTransform());
+	}
+
+	private HotSpotCollector(HotSpotCollector g) {
+		super(g);
+		this.hotSpots = g.hotSpots;
+		this.sink = g.sink;
+	}
+
+	/**
+	 * @return the hotspots and TDETs collected so far, in painting order
+	 */
+	public List<HotSpot> getHotSpots() {
+		return Collections.unmodifiableList(this.hotSpots);
+	}
+
+	@Override
+	public int getHotSpotCount() {
+		return (int) this.hotSpots.stream().filter(h -> h.type() == HotSpot.Type.HOTSPOT).count();
+	}
+
+	@Override
+	public void recordHotSpots(List<HotSpot> sink) {
+		this.sink = sink;
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsName) {
+		drawHotSpot(s, id, id, apsName, null, null);
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsId, String apsName, String link, String color) {
+		// the other back ends fill the stroked outline instead of emitting a hotspot
+		if (this.gc.getStroke() instanceof BasicStroke) {
+			add(HotSpotAttributes.record(HotSpot.Type.HOTSPOT, bounds(s), id, apsId, apsName));
+		}
+	}
+
+	@Override
+	public void drawTDET(Shape s, String apsId, String apsName) {
+		if (this.gc.getStroke() instanceof BasicStroke) {
+			add(HotSpotAttributes.record(HotSpot.Type.TDET, bounds(s), null, apsId, apsName));
+		}
+	}
+
+	private void add(HotSpot hotSpot) {
+		this.hotSpots.add(hotSpot);
+		if (this.sink != null) {
+			this.sink.add(hotSpot);
+		}
+	}
+
+	private Rectangle2D bounds(Shape s) {
+		return getTransform().createTransformedShape(s).getBounds2D();
+	}
+
+	@Override
+	public void draw(Shape s) {
+		// only the hotspots are collected
+	}
+
+	@Override
+	public void fill(Shape s) {
+		// only the hotspots are collected
+	}
+
+	@Override
+	public void drawString(String str, float x, float y) {
+		// only the hotspots are collected
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+		// only the hotspots are collected
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+		// only the hotspots are collected
+	}
+
+	@Override
+	public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+		// only the hotspots are collected
+	}
+
+	@Override
+	public Graphics create() {
+		return new HotSpotCollector(this);
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration() {
+		return null;
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		return fmg.getFontMetrics(f);
+	}
+
+	@Override
+	public void setXORMode(Color c1) {
+		// nothing is drawn
+	}
+
+	@Override
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+		// nothing is drawn
+	}
+
+	@Override
+	public void dispose() {
+		// the hotspots are shared with the parent graphics
+	}
+}
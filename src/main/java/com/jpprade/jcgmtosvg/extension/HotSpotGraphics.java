@@ -0,0 +1,35 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.Shape;
+import java.util.List;
+
+/**
+ * Graphics back ends able to render the hotspot and TDET extensions.
+ * Implemented by {@link SVGGraphics2DHS} (Batik DOM) and {@link StreamingSVGGraphics2D} (direct writer).
+ */
+public interface HotSpotGraphics {
+
+	void drawHotSpot(Shape s, String id, String apsName);
+
+	/**
+	 * @param color the fill of the hotspot as written on the element, see
+	 *              {@link com.jpprade.jcgmtosvg.ConversionOptions#getHotSpotColor()}, null for a transparent fill
+	 */
+	void drawHotSpot(Shape s, String id, String apsId, String apsName, String link, String color);
+
+	void drawTDET(Shape s, String apsId, String apsName);
+
+	/**
+	 * @return the number of hotspots drawn so far
+	 */
+	int getHotSpotCount();
+
+	/**
+	 * Records the hotspots and TDETs drawn from now on with their bounds in device space, e.g. to build a
+	 * spatial index of the drawing.
+	 *
+	 * @param sink the list receiving the hotspots, null to stop recording
+	 */
+	void recordHotSpots(List<HotSpot> sink);
+
+}
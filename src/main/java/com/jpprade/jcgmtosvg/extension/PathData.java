@@ -0,0 +1,408 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the {@code d} attribute of SVG paths.
+ * <p>
+ * The parser accepts the whole path grammar and returns the segments with absolute coordinates. The encoder writes
+ * each segment with absolute or relative coordinates, whichever is shorter, and leaves out what the grammar allows:
+ * repeated command letters, the separators before a sign or a second decimal point, and the leading zeros. The
+ * coordinates are rounded once to the precision in absolute terms, the relative ones are the differences of the
+ * rounded values, so they do not drift along the path.
+ * <p>
+ * An encoder reuses its buffers and is not thread safe.
+ */
+public final class PathData {
+
+	private static final int MAX_PRECISION = 12;
+
+	/**
+	 * Path segment with absolute coordinates.
+	 *
+	 * @param command one of {@code M L Q C A Z}; the arcs have the radii, the rotation, the two flags and the end
+	 *                point, the other commands their points
+	 */
+	public record Segment(char command, double[] values) {
+	}
+
+	private final int precision;
+
+	private final long unit;
+
+	private final StringBuilder candidate = new StringBuilder(64);
+
+	private final StringBuilder best = new StringBuilder(64);
+
+	private final long[] units = new long[7];
+
+	/**
+	 * @param precision number of decimals of the written values, at most 12
+	 */
+	public PathData(int precision) {
+		this.precision = Math.max(0, Math.min(precision, MAX_PRECISION));
+		long u = 1;
+		for (int i = 0; i < this.precision; i++) {
+			u *= 10;
+		}
+		this.unit = u;
+	}
+
+	public int getPrecision() {
+		return this.precision;
+	}
+
+	/**
+	 * @return the compact path data of the shape, empty if it has no segment
+	 */
+	public String encode(Shape shape, AffineTransform at) {
+		Encoder encoder = new Encoder();
+		double[] c = new double[6];
+		for (PathIterator it = shape.getPathIterator(at); !it.isDone(); it.next()) {
+			switch (it.currentSegment(c)) {
+				case PathIterator.SEG_MOVETO -> encoder.segment('M', c, 2);
+				case PathIterator.SEG_LINETO -> encoder.segment('L', c, 2);
+				case PathIterator.SEG_QUADTO -> encoder.segment('Q', c, 4);
+				case PathIterator.SEG_CUBICTO -> encoder.segment('C', c, 6);
+				default -> encoder.close();
+			}
+		}
+		return encoder.d.toString();
+	}
+
+	/**
+	 * @param segments absolute segments, as returned by {@link #parse(String)}
+	 * @return the compact path data of the segments
+	 */
+	public String encode(List<Segment> segments) {
+		Encoder encoder = new Encoder();
+		for (Segment segment : segments) {
+			if (segment.command() == 'Z') {
+				encoder.close();
+			} else {
+				encoder.segment(segment.command(), segment.values(), segment.values().length);
+			}
+		}
+		return encoder.d.toString();
+	}
+
+	/**
+	 * Writes the segments one after the other, the state is the current point, the start of the subpath and the
+	 * last command letter.
+	 */
+	private final class Encoder {
+
+		private final StringBuilder d = new StringBuilder(64);
+
+		private long x;
+		private long y;
+		private long startX;
+		private long startY;
+
+		private char last;
+
+		void segment(char command, double[] values, int count) {
+			long[] u = PathData.this.units;
+			for (int i = 0; i < count; i++) {
+				u[i] = Math.round(values[i] * PathData.this.unit);
+			}
+			// the arcs only have their end point relative to the current point
+			int first = command == 'A' ? 5 : 0;
+			long endX = u[count - 2];
+			long endY = u[count - 1];
+
+			StringBuilder shortest = PathData.this.best;
+			shortest.setLength(0);
+			write(shortest, command, u, first, count, 0, 0);
+			if (command != 'M' || this.last != 0) {
+				tryCandidate(Character.toLowerCase(command), u, first, count, this.x, this.y);
+			}
+			if (command == 'L' && endY == this.y) {
+				tryCandidate('H', new long[]{endX}, 0, 1, 0, 0);
+				tryCandidate('h', new long[]{endX - this.x}, 0, 1, 0, 0);
+			} else if (command == 'L' && endX == this.x) {
+				tryCandidate('V', new long[]{endY}, 0, 1, 0, 0);
+				tryCandidate('v', new long[]{endY - this.y}, 0, 1, 0, 0);
+			}
+			this.d.append(shortest);
+			if (Character.isLetter(shortest.charAt(0))) {
+				this.last = shortest.charAt(0);
+			}
+			this.x = endX;
+			this.y = endY;
+			if (command == 'M') {
+				this.startX = endX;
+				this.startY = endY;
+			}
+		}
+
+		void close() {
+			this.d.append('Z');
+			this.last = 'Z';
+			this.x = this.startX;
+			this.y = this.startY;
+		}
+
+		private void tryCandidate(char command, long[] u, int first, int count, long dx, long dy) {
+			StringBuilder text = PathData.this.candidate;
+			text.setLength(0);
+			write(text, command, u, first, count, dx, dy);
+			if (text.length() < PathData.this.best.length()) {
+				PathData.this.best.setLength(0);
+				PathData.this.best.append(text);
+			}
+		}
+
+		private void write(StringBuilder text, char command, long[] u, int first, int count, long dx, long dy) {
+			boolean implicit = command == this.last && command != 'M' && command != 'm'
+					|| command == 'L' && this.last == 'M' || command == 'l' && this.last == 'm';
+			boolean afterNumber;
+			boolean afterDot;
+			if (implicit) {
+				afterNumber = true;
+				afterDot = lastNumberHasDot(this.d);
+			} else {
+				text.append(command);
+				afterNumber = false;
+				afterDot = false;
+			}
+			for (int i = 0; i < count; i++) {
+				long value = i < first ? u[i] : u[i] - ((i - first) % 2 == 0 ? dx : dy);
+				boolean leadingDot = value != 0 && Math.abs(value) < PathData.this.unit;
+				if (afterNumber && value >= 0 && !(leadingDot && afterDot)) {
+					text.append(' ');
+				}
+				appendUnits(text, value);
+				afterNumber = true;
+				afterDot = value % PathData.this.unit != 0;
+			}
+		}
+	}
+
+	private static boolean lastNumberHasDot(CharSequence d) {
+		for (int i = d.length() - 1; i >= 0; i--) {
+			char c = d.charAt(i);
+			if (c == '.') {
+				return true;
+			} else if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the value without trailing zeros, nor the leading zero of the values between -1 and 1.
+	 */
+	private void appendUnits(StringBuilder text, long value) {
+		if (value < 0) {
+			text.append('-');
+			value = -value;
+		}
+		long integer = value / this.unit;
+		long fraction = value % this.unit;
+		if (integer != 0 || fraction == 0) {
+			text.append(integer);
+		}
+		if (fraction != 0) {
+			text.append('.');
+			long digit = this.unit / 10;
+			while (fraction != 0) {
+				text.append((char) ('0' + fraction / digit));
+				fraction %= digit;
+				digit /= 10;
+			}
+		}
+	}
+
+	/**
+	 * Parses path data: relative commands are made absolute, {@code H} and {@code V} become {@code L}, the smooth
+	 * curves {@code S} and {@code T} become {@code C} and {@code Q} with their reflected control point.
+	 *
+	 * @throws IllegalArgumentException if the path data is malformed
+	 */
+	public static List<Segment> parse(String d) {
+		return new Parser(d).parse();
+	}
+
+	private static final class Parser {
+
+		private final String d;
+
+		private int pos;
+
+		private final List<Segment> segments = new ArrayList<>();
+
+		private double x;
+		private double y;
+		private double startX;
+		private double startY;
+		// control point reflected by the smooth curves
+		private double controlX;
+		private double controlY;
+
+		Parser(String d) {
+			this.d = d;
+		}
+
+		List<Segment> parse() {
+			char command = 0;
+			char previous = 0;
+			while (skipSeparators()) {
+				char c = this.d.charAt(this.pos);
+				if (Character.isLetter(c) && c != 'e' && c != 'E') {
+					command = c;
+					this.pos++;
+				} else if (command == 0 || command == 'Z' || command == 'z') {
+					throw new IllegalArgumentException("Invalid path data at " + this.pos + ": " + this.d);
+				} else if (command == 'M') {
+					// the coordinate pairs after a moveto are linetos
+					command = 'L';
+				} else if (command == 'm') {
+					command = 'l';
+				}
+				segment(command, previous);
+				previous = Character.toUpperCase(command);
+			}
+			return this.segments;
+		}
+
+		private void segment(char command, char previous) {
+			boolean relative = Character.isLowerCase(command);
+			double ox = relative ? this.x : 0;
+			double oy = relative ? this.y : 0;
+			switch (Character.toUpperCase(command)) {
+				case 'M' -> {
+					point('M', ox, oy);
+					this.startX = this.x;
+					this.startY = this.y;
+				}
+				case 'L' -> point('L', ox, oy);
+				case 'H' -> lineTo(number() + ox, this.y);
+				case 'V' -> lineTo(this.x, number() + oy);
+				case 'C' -> {
+					double x1 = number() + ox;
+					double y1 = number() + oy;
+					curveTo(x1, y1, ox, oy);
+				}
+				case 'S' -> {
+					boolean smooth = previous == 'C' || previous == 'S';
+					curveTo(smooth ? 2 * this.x - this.controlX : this.x, smooth ? 2 * this.y - this.controlY : this.y, ox, oy);
+				}
+				case 'Q' -> {
+					double x1 = number() + ox;
+					double y1 = number() + oy;
+					quadTo(x1, y1, number() + ox, number() + oy);
+				}
+				case 'T' -> {
+					boolean smooth = previous == 'Q' || previous == 'T';
+					quadTo(smooth ? 2 * this.x - this.controlX : this.x, smooth ? 2 * this.y - this.controlY : this.y,
+							number() + ox, number() + oy);
+				}
+				case 'A' -> {
+					double[] values = {number(), number(), number(), flag(), flag(), number() + ox, number() + oy};
+					add('A', values);
+				}
+				case 'Z' -> {
+					this.segments.add(new Segment('Z', new double[0]));
+					this.x = this.startX;
+					this.y = this.startY;
+				}
+				default -> throw new IllegalArgumentException("Invalid path command " + command + ": " + this.d);
+			}
+		}
+
+		private void point(char command, double ox, double oy) {
+			double px = number() + ox;
+			add(command, new double[]{px, number() + oy});
+		}
+
+		private void lineTo(double px, double py) {
+			add('L', new double[]{px, py});
+		}
+
+		private void curveTo(double x1, double y1, double ox, double oy) {
+			double x2 = number() + ox;
+			double y2 = number() + oy;
+			double px = number() + ox;
+			add('C', new double[]{x1, y1, x2, y2, px, number() + oy});
+			this.controlX = x2;
+			this.controlY = y2;
+		}
+
+		private void quadTo(double x1, double y1, double px, double py) {
+			add('Q', new double[]{x1, y1, px, py});
+			this.controlX = x1;
+			this.controlY = y1;
+		}
+
+		private void add(char command, double[] values) {
+			this.segments.add(new Segment(command, values));
+			this.x = values[values.length - 2];
+			this.y = values[values.length - 1];
+		}
+
+		/**
+		 * @return false at the end of the path data
+		 */
+		private boolean skipSeparators() {
+			while (this.pos < this.d.length()) {
+				char c = this.d.charAt(this.pos);
+				if (c != ' ' && c != ',' && c != '\t' && c != '\n' && c != '\r') {
+					return true;
+				}
+				this.pos++;
+			}
+			return false;
+		}
+
+		private double flag() {
+			if (!skipSeparators() || this.d.charAt(this.pos) != '0' && this.d.charAt(this.pos) != '1') {
+				throw new IllegalArgumentException("Invalid arc flag at " + this.pos + ": " + this.d);
+			}
+			return this.d.charAt(this.pos++) - '0';
+		}
+
+		private double number() {
+			if (!skipSeparators()) {
+				throw new IllegalArgumentException("Missing coordinate at the end of: " + this.d);
+			}
+			int start = this.pos;
+			int end = start;
+			if (end < this.d.length() && (this.d.charAt(end) == '-' || this.d.charAt(end) == '+')) {
+				end++;
+			}
+			end = digits(end);
+			if (end < this.d.length() && this.d.charAt(end) == '.') {
+				end = digits(end + 1);
+			}
+			if (end < this.d.length() && (this.d.charAt(end) == 'e' || this.d.charAt(end) == 'E')) {
+				int exponent = end + 1;
+				if (exponent < this.d.length() && (this.d.charAt(exponent) == '-' || this.d.charAt(exponent) == '+')) {
+					exponent++;
+				}
+				int exponentEnd = digits(exponent);
+				if (exponentEnd > exponent) {
+					end = exponentEnd;
+				}
+			}
+			this.pos = end;
+			try {
+				return Double.parseDouble(this.d.substring(start, end));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid coordinate at " + start + ": " + this.d, e);
+			}
+		}
+
+		private int digits(int from) {
+			while (from < this.d.length() && this.d.charAt(from) >= '0' && this.d.charAt(from) <= '9') {
+				from++;
+			}
+			return from;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Simplifies the paths drawn by the SVG back ends within a tolerance in device units.
+ * <p>
+ * The tolerance is shared between the two steps, so that their errors add up to at most the tolerance. A quadratic
+ * or cubic segment whose control points are all within half the tolerance of its chord is drawn as a line, the curve
+ * lies in the convex hull of its control points so it never moves further than half the tolerance. Consecutive lines
+ * are then simplified with the Douglas-Peucker algorithm within the other half, which merges the collinear points and
+ * drops the segments shorter than half the tolerance. The first and last points of every run of lines are kept, so
+ * subpaths stay connected and closed the same way.
+ * <p>
+ * Only {@link Path2D} shapes are simplified, the other shapes (rectangles, ellipses, lines) have a compact SVG element
+ * of their own.
+ */
+public final class PathSimplifier {
+
+	private final double tolerance;
+
+	/**
+	 * @param tolerance the maximal distance between the original and the simplified path, in device units
+	 */
+	public PathSimplifier(double tolerance) {
+		if (!(tolerance >= 0) || Double.isInfinite(tolerance)) {
+			throw new IllegalArgumentException("Invalid tolerance: " + tolerance);
+		}
+		this.tolerance = tolerance;
+	}
+
+	public double getTolerance() {
+		return this.tolerance;
+	}
+
+	/**
+	 * @param s         the shape to draw, in user space
+	 * @param transform the transform from user space to device space
+	 * @return the simplified path, or the shape itself when it is not a path or nothing could be simplified
+	 */
+	public Shape simplify(Shape s, AffineTransform transform) {
+		if (!(s instanceof Path2D path) || this.tolerance == 0) {
+			return s;
+		}
+		double scale = Math.sqrt(Math.abs(transform.getDeterminant()));
+		if (scale == 0 || Double.isNaN(scale)) {
+			return s;
+		}
+		// half for the flattening of the curves, half for the merging of the lines
+		Builder builder = new Builder(path.getWindingRule(), this.tolerance / 2 / scale);
+		double[] coords = new double[6];
+		for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+			switch (it.currentSegment(coords)) {
+				case PathIterator.SEG_MOVETO -> builder.moveTo(coords[0], coords[1]);
+				case PathIterator.SEG_LINETO -> builder.lineTo(coords[0], coords[1]);
+				case PathIterator.SEG_QUADTO -> builder.quadTo(coords[0], coords[1], coords[2], coords[3]);
+				case PathIterator.SEG_CUBICTO ->
+						builder.curveTo(coords[0], coords[1], coords[2], coords[3], coords[4], coords[5]);
+				case PathIterator.SEG_CLOSE -> builder.closePath();
+				default -> throw new IllegalStateException("Unknown path segment");
+			}
+		}
+		return builder.build(s);
+	}
+
+	/**
+	 * Squared distance from a point to the segment [a, b], to a itself when the segment is degenerate.
+	 */
+	static double distanceSq(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double lengthSq = dx * dx + dy * dy;
+		double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSq));
+		double ex = px - (ax + t * dx);
+		double ey = py - (ay + t * dy);
+		return ex * ex + ey * ey;
+	}
+
+	private static final class Builder {
+
+		private final Path2D.Double path;
+
+		private final double toleranceSq;
+
+		/**
+		 * The current run of lines: its start point then the end point of every line, x and y interleaved.
+		 */
+		private double[] run = new double[32];
+
+		private int runPoints = 0;
+
+		private double startX;
+
+		private double startY;
+
+		private boolean changed = false;
+
+		private Builder(int windingRule, double tolerance) {
+			this.path = new Path2D.Double(windingRule);
+			this.toleranceSq = tolerance * tolerance;
+		}
+
+		private void moveTo(double x, double y) {
+			flush();
+			this.path.moveTo(x, y);
+			this.startX = x;
+			this.startY = y;
+			startRun(x, y);
+		}
+
+		private void lineTo(double x, double y) {
+			if (2 * this.runPoints + 2 > this.run.length) {
+				this.run = Arrays.copyOf(this.run, 2 * this.run.length);
+			}
+			this.run[2 * this.runPoints] = x;
+			this.run[2 * this.runPoints + 1] = y;
+			this.runPoints++;
+		}
+
+		private void quadTo(double x1, double y1, double x2, double y2) {
+			if (isFlat(x1, y1, x2, y2)) {
+				this.changed = true;
+				lineTo(x2, y2);
+				return;
+			}
+			flush();
+			this.path.quadTo(x1, y1, x2, y2);
+			startRun(x2, y2);
+		}
+
+		private void curveTo(double x1, double y1, double x2, double y2, double x3, double y3) {
+			if (isFlat(x1, y1, x3, y3) && isFlat(x2, y2, x3, y3)) {
+				this.changed = true;
+				lineTo(x3, y3);
+				return;
+			}
+			flush();
+			this.path.curveTo(x1, y1, x2, y2, x3, y3);
+			startRun(x3, y3);
+		}
+
+		private void closePath() {
+			flush();
+			this.path.closePath();
+			startRun(this.startX, this.startY);
+		}
+
+		/**
+		 * @return true if the control point is within the tolerance of the chord from the current point
+		 */
+		private boolean isFlat(double cx, double cy, double x, double y) {
+			int last = 2 * (this.runPoints - 1);
+			return distanceSq(cx, cy, this.run[last], this.run[last + 1], x, y) <= this.toleranceSq;
+		}
+
+		private void startRun(double x, double y) {
+			this.run[0] = x;
+			this.run[1] = y;
+			this.runPoints = 1;
+		}
+
+		/**
+		 * Emits the lines of the current run simplified, the current point becomes the start of a new run.
+		 */
+		private void flush() {
+			int n = this.runPoints;
+			if (n < 2) {
+				return;
+			}
+			boolean[] keep = new boolean[n];
+			keep[0] = true;
+			keep[n - 1] = true;
+			int[] stack = new int[2 * n];
+			int size = 0;
+			stack[size++] = 0;
+			stack[size++] = n - 1;
+			while (size > 0) {
+				int last = stack[--size];
+				int first = stack[--size];
+				double maxSq = -1;
+				int farthest = -1;
+				for (int i = first + 1; i < last; i++) {
+					double dSq = distanceSq(this.run[2 * i], this.run[2 * i + 1], this.run[2 * first],
+							this.run[2 * first + 1], this.run[2 * last], this.run[2 * last + 1]);
+					if (dSq > maxSq) {
+						maxSq = dSq;
+						farthest = i;
+					}
+				}
+				if (farthest >= 0 && maxSq > this.toleranceSq) {
+					keep[farthest] = true;
+					stack[size++] = first;
+					stack[size++] = farthest;
+					stack[size++] = farthest;
+					stack[size++] = last;
+				}
+			}
+			for (int i = 1; i < n; i++) {
+				if (keep[i]) {
+					this.path.lineTo(this.run[2 * i], this.run[2 * i + 1]);
+				} else {
+					this.changed = true;
+				}
+			}
+			startRun(this.run[2 * (n - 1)], this.run[2 * (n - 1) + 1]);
+		}
+
+		private Shape build(Shape original) {
+			flush();
+			return this.changed ? this.path : original;
+		}
+	}
+}
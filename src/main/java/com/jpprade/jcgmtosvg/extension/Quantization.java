@@ -0,0 +1,113 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.function.Consumer;
+
+/**
+ * Draws the shapes with their coordinates rounded to integers in device space.
+ * <p>
+ * The shape is transformed to device space and painted with an identity transform, so the SVG element has integer
+ * coordinates and no matrix. The stroke and the clip are converted with it. This is only done when the current
+ * transform is a uniform scale, possibly mirrored, so the stroke width stays exact. The device space is expected to
+ * be fine enough for the rounding to be invisible, see {@code ConversionOptions.isQuantizedCoordinates}.
+ */
+final class Quantization {
+
+	private Quantization() {
+	}
+
+	/**
+	 * @return true if the shapes painted with the current transform and paint can be quantized; hatch patterns are
+	 * defined in the user space of the filled shape and keep it
+	 */
+	static boolean applies(Graphics2D g) {
+		return isUniform(g.getTransform()) && !(g.getPaint() instanceof HatchPaint);
+	}
+
+	/**
+	 * @return true if the transform has no shear or rotation and the same scale on both axes
+	 */
+	static boolean isUniform(AffineTransform transform) {
+		double sx = Math.abs(transform.getScaleX());
+		double sy = Math.abs(transform.getScaleY());
+		return transform.getShearX() == 0 && transform.getShearY() == 0 && sx > 0
+				&& Math.abs(sx - sy) <= 1e-9 * sx;
+	}
+
+	/**
+	 * Paints the shape rounded in device space with an identity transform, then restores the graphic context.
+	 *
+	 * @param painter draws or fills the quantized shape in the back end
+	 */
+	static void paint(Graphics2D g, Shape s, Consumer<Shape> painter) {
+		AffineTransform transform = g.getTransform();
+		Stroke stroke = g.getStroke();
+		Shape clip = g.getClip();
+		Shape device = quantize(s, transform);
+		g.setTransform(new AffineTransform());
+		g.setClip(clip == null ? null : transform.createTransformedShape(clip));
+		if (stroke instanceof BasicStroke basicStroke) {
+			g.setStroke(scale(basicStroke, Math.abs(transform.getScaleX())));
+		}
+		painter.accept(device);
+		g.setTransform(transform);
+		g.setClip(clip);
+		g.setStroke(stroke);
+	}
+
+	/**
+	 * @return the shape in device space with integer coordinates, rectangles, ellipses and lines keep their type
+	 */
+	static Shape quantize(Shape s, AffineTransform transform) {
+		if (s instanceof Rectangle2D || s instanceof Ellipse2D) {
+			// a uniform transform keeps them axis aligned
+			Rectangle2D bounds = transform.createTransformedShape(s.getBounds2D()).getBounds2D();
+			double x = Math.rint(bounds.getMinX());
+			double y = Math.rint(bounds.getMinY());
+			double width = Math.rint(bounds.getMaxX()) - x;
+			double height = Math.rint(bounds.getMaxY()) - y;
+			return s instanceof Rectangle2D ? new Rectangle2D.Double(x, y, width, height)
+					: new Ellipse2D.Double(x, y, width, height);
+		}
+		if (s instanceof Line2D line) {
+			double[] points = {line.getX1(), line.getY1(), line.getX2(), line.getY2()};
+			transform.transform(points, 0, points, 0, 2);
+			return new Line2D.Double(Math.rint(points[0]), Math.rint(points[1]), Math.rint(points[2]), Math.rint(points[3]));
+		}
+		PathIterator it = s.getPathIterator(transform);
+		Path2D.Double path = new Path2D.Double(it.getWindingRule());
+		double[] c = new double[6];
+		for (; !it.isDone(); it.next()) {
+			switch (it.currentSegment(c)) {
+				case PathIterator.SEG_MOVETO -> path.moveTo(Math.rint(c[0]), Math.rint(c[1]));
+				case PathIterator.SEG_LINETO -> path.lineTo(Math.rint(c[0]), Math.rint(c[1]));
+				case PathIterator.SEG_QUADTO -> path.quadTo(Math.rint(c[0]), Math.rint(c[1]), Math.rint(c[2]), Math.rint(c[3]));
+				case PathIterator.SEG_CUBICTO -> path.curveTo(Math.rint(c[0]), Math.rint(c[1]), Math.rint(c[2]),
+						Math.rint(c[3]), Math.rint(c[4]), Math.rint(c[5]));
+				default -> path.closePath();
+			}
+		}
+		return path;
+	}
+
+	static BasicStroke scale(BasicStroke stroke, double scale) {
+		float[] dash = stroke.getDashArray();
+		if (dash != null) {
+			dash = dash.clone();
+			for (int i = 0; i < dash.length; i++) {
+				dash[i] *= (float) scale;
+			}
+		}
+		return new BasicStroke((float) (stroke.getLineWidth() * scale), stroke.getEndCap(), stroke.getLineJoin(),
+				stroke.getMiterLimit(), dash, (float) (stroke.getDashPhase() * scale));
+	}
+}
@@ -4,26 +4,97 @@ import java.awt.BasicStroke;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.batik.svggen.DOMGroupManager;
 import org.apache.batik.svggen.SVGGeneratorContext;
 import org.apache.batik.svggen.SVGGraphics2D;
+import org.apache.batik.svggen.SVGShape;
 import org.w3c.dom.Element;
 
-public class SVGGraphics2DHS extends SVGGraphics2D {
-
-	private static final String HOTSPOT_COLOR = "transparent";
-	private static final String SANITIZER_REGEX = "[^a-zA-Z0-9-_.:,/() ]";
+public class SVGGraphics2DHS extends SVGGraphics2D implements HotSpotGraphics, HatchGraphics {
+	
+	private int hotSpotCount = 0;
+	
+	private List<HotSpot> hotSpotSink;
+	
+	private PathSimplifier pathSimplifier;
+	
+	private boolean hatchPatterns;
+	
+	private boolean quantizedCoordinates;
 	
 	public SVGGraphics2DHS(SVGGeneratorContext generatorCtx,
 	                       boolean textAsShapes) {
 		super(generatorCtx, textAsShapes);
 	}
+	
+	/**
+	 * @param pathSimplifier simplifies the paths before they are converted, null to keep them as drawn
+	 */
+	public void setPathSimplifier(PathSimplifier pathSimplifier) {
+		this.pathSimplifier = pathSimplifier;
+	}
+	
+	/**
+	 * Fills the hatched shapes with a {@link HatchPaint}, the generator context must have a
+	 * {@link HatchPatternHandler} to write it.
+	 */
+	public void setHatchPatterns(boolean hatchPatterns) {
+		this.hatchPatterns = hatchPatterns;
+	}
+	
+	@Override
+	public boolean isHatchPatterns() {
+		return this.hatchPatterns;
+	}
+	
+	/**
+	 * Rounds the coordinates of the shapes drawn with a uniform transform to integers in device space.
+	 */
+	public void setQuantizedCoordinates(boolean quantizedCoordinates) {
+		this.quantizedCoordinates = quantizedCoordinates;
+	}
+	
+	/**
+	 * Writes the path data with {@link PathData}: relative or absolute coordinates, whichever is shorter, and no
+	 * redundant command letter nor separator.
+	 */
+	public void setCompactPathData(boolean compactPathData) {
+		this.shapeConverter = compactPathData ? new CompactSVGShape(getGeneratorContext()) : new SVGShape(getGeneratorContext());
+	}
+	
+	@Override
+	public void draw(Shape s) {
+		s = simplify(s);
+		if (this.quantizedCoordinates && getStroke() instanceof BasicStroke && Quantization.applies(this)) {
+			Quantization.paint(this, s, super::draw);
+		} else {
+			super.draw(s);
+		}
+	}
+	
+	@Override
+	public void fill(Shape s) {
+		s = simplify(s);
+		if (this.quantizedCoordinates && Quantization.applies(this)) {
+			Quantization.paint(this, s, super::fill);
+		} else {
+			super.fill(s);
+		}
+	}
+	
+	private Shape simplify(Shape s) {
+		return this.pathSimplifier == null ? s : this.pathSimplifier.simplify(s, this.getTransform());
+	}
 
+	@Override
 	public void drawHotSpot(Shape s, String id, String apsName) {
 		drawHotSpot(s, id, id, apsName, null, null);
 	}
 	
+	@Override
 	public void drawHotSpot(Shape s, String id, String apsId, String apsName, String link, String color) {
 		// Only BasicStroke can be converted to an SVG attribute equivalent.
 		// If the GraphicContext's Stroke is not an instance of BasicStroke,
@@ -32,8 +103,12 @@ public class SVGGraphics2DHS extends SVGGraphics2D {
 		if (stroke instanceof BasicStroke) {
 			Element svgShape = this.shapeConverter.toSVG(s);
 			if (svgShape != null) {
-				enrichHS(s, svgShape, id, apsId, apsName, link, color);
+				Rectangle2D rect = enrichHS(s, svgShape, id, apsId, apsName, link, color);
 				this.domGroupManager.addElement(svgShape, DOMGroupManager.DRAW);
+				this.hotSpotCount++;
+				if (this.hotSpotSink != null) {
+					this.hotSpotSink.add(HotSpotAttributes.record(HotSpot.Type.HOTSPOT, rect, id, apsId, apsName));
+				}
 			}
 		} else {
 			Shape strokedShape = stroke.createStrokedShape(s);
@@ -41,6 +116,7 @@ public class SVGGraphics2DHS extends SVGGraphics2D {
 		}
 	}
 	
+	@Override
 	public void drawTDET(Shape s, String apsId, String apsName) {
 		// Only BasicStroke can be converted to an SVG attribute equivalent.
 		// If the GraphicContext's Stroke is not an instance of BasicStroke,
@@ -51,6 +127,10 @@ public class SVGGraphics2DHS extends SVGGraphics2D {
 			if (svgShape != null) {
 				enrichTDET(svgShape, apsId, apsName);
 				this.domGroupManager.addElement(svgShape, DOMGroupManager.DRAW);
+				if (this.hotSpotSink != null) {
+					Rectangle2D rect = this.getTransform().createTransformedShape(s).getBounds2D();
+					this.hotSpotSink.add(HotSpotAttributes.record(HotSpot.Type.TDET, rect, null, apsId, apsName));
+				}
 			}
 		} else {
 			Shape strokedShape = stroke.createStrokedShape(s);
@@ -58,50 +138,36 @@ public class SVGGraphics2DHS extends SVGGraphics2D {
 		}
 	}
 	
-	private void enrichHS(Shape s, Element svgShape, String id, String apsId, String apsName, String link, String color) {
-
-		id = hotSpotAttributeSanitizer(id);
-		apsName = hotSpotAttributeSanitizer(apsName);
-		apsId = hotSpotAttributeSanitizer(apsId);
-		link = hotSpotAttributeSanitizer(link);
-
+	@Override
+	public int getHotSpotCount() {
+		return this.hotSpotCount;
+	}
+	
+	@Override
+	public void recordHotSpots(List<HotSpot> sink) {
+		this.hotSpotSink = sink;
+	}
+	
+	/**
+	 * @return the hotspot bounds in device space
+	 */
+	private Rectangle2D enrichHS(Shape s, Element svgShape, String id, String apsId, String apsName, String link, String color) {
 		Shape transformedShape = this.getTransform().createTransformedShape(s);
 
 		Rectangle2D rect = transformedShape.getBounds2D();
 
-		String hotSpotRectangle = rect.getX()+","+rect.getY()+","+rect.getWidth()+","+rect.getHeight();
-		String hotSpotLink = (link != null) ? "window.location.href='"+link+"?id="+apsId+"&name="+apsName+"&rect=["+hotSpotRectangle+"]'" : "";
-		String hotSpotColor = (color != null) ? color : HOTSPOT_COLOR;
-		
-		hotSpotRectangle = hotSpotAttributeSanitizer(hotSpotRectangle);
-		hotSpotColor = hotSpotAttributeSanitizer(hotSpotColor);		
-
-		svgShape.setAttributeNS(null, "id", id);
-		svgShape.setAttributeNS(null, "apsname", apsName);
-		svgShape.setAttributeNS(null, "apsid", apsId);
-		svgShape.setAttributeNS(null, "fill-rule", "evenodd");
-		svgShape.setAttributeNS(null, "fill", hotSpotColor);
-		svgShape.setAttributeNS(null, "class", "hotspot");
-		svgShape.setAttributeNS(null, "onclick", "clickHS('" + id + "');"+hotSpotLink);
-		svgShape.setAttributeNS(null, "stroke", "none");
+		setAttributes(svgShape, HotSpotAttributes.hotSpot(rect, id, apsId, apsName, link, color));
+		return rect;
 	}
 	
 	private void enrichTDET(Element svgShape, String apsId, String apsName) {
-
-		apsName = hotSpotAttributeSanitizer(apsName);
-		apsId = hotSpotAttributeSanitizer(apsId);
-
-		svgShape.setAttributeNS(null, "apsname", apsName);
-		svgShape.setAttributeNS(null, "apsid", apsId);
-		svgShape.setAttributeNS(null, "class", "tdet");
+		setAttributes(svgShape, HotSpotAttributes.tdet(apsId, apsName));
 	}
 
-	private String hotSpotAttributeSanitizer(String hotSpotAttribute) {
-		if(hotSpotAttribute == null) {
-			return "";
+	private void setAttributes(Element svgShape, Map<String, String> attributes) {
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			svgShape.setAttributeNS(null, attribute.getKey(), attribute.getValue());
 		}
-		return hotSpotAttribute.replaceAll(SANITIZER_REGEX, "");
-		
 	}
 	
 }
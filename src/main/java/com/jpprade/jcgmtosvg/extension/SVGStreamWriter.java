@@ -0,0 +1,261 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.Shape;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Low level SVG writer shared by a {@link StreamingSVGGraphics2D} and the graphics created from it.
+ * <p>
+ * Only the currently open style group is kept in memory: elements are written as soon as they are painted,
+ * following the same {@code svg > g > g > element} layout as Batik's {@code DOMGroupManager}.
+ */
+class SVGStreamWriter {
+
+	private final Writer out;
+
+	private final DecimalFormat decimalFormat;
+
+	private String openGroup = null;
+
+	private String lastClipPathData = null;
+	private String lastClipId = null;
+
+	private int clipCounter = 0;
+
+	private final Map<HatchPaint, String> patternIds = new HashMap<>();
+
+	private StyleClasses styleClasses;
+
+	private PathData compactPathData;
+
+	private long elementCount = 0;
+
+	private int hotSpotCount = 0;
+
+	SVGStreamWriter(Writer out, int precision) {
+		this.out = out;
+		StringBuilder format = new StringBuilder("#");
+		if (precision > 0) {
+			format.append('.');
+			format.append("#".repeat(Math.min(precision, 12)));
+		}
+		this.decimalFormat = new DecimalFormat(format.toString(), new DecimalFormatSymbols(Locale.US));
+	}
+
+	/**
+	 * Same rounding rules as {@code SVGGeneratorContext.doubleString} so that both back ends agree.
+	 */
+	String doubleString(double value) {
+		double absvalue = Math.abs(value);
+		if (absvalue >= 10e7 || (int) value == value) {
+			return Integer.toString((int) value);
+		}
+		return this.decimalFormat.format(value);
+	}
+
+	String pathData(Shape shape, AffineTransform at) {
+		if (this.compactPathData != null) {
+			return this.compactPathData.encode(shape, at);
+		}
+		StringBuilder d = new StringBuilder(40);
+		PathIterator pi = shape.getPathIterator(at);
+		double[] seg = new double[6];
+		while (!pi.isDone()) {
+			switch (pi.currentSegment(seg)) {
+				case PathIterator.SEG_MOVETO -> appendPoints(d.append('M'), seg, 1);
+				case PathIterator.SEG_LINETO -> appendPoints(d.append('L'), seg, 1);
+				case PathIterator.SEG_QUADTO -> appendPoints(d.append('Q'), seg, 2);
+				case PathIterator.SEG_CUBICTO -> appendPoints(d.append('C'), seg, 3);
+				default -> d.append('Z');
+			}
+			pi.next();
+		}
+		return d.toString().trim();
+	}
+
+	private void appendPoints(StringBuilder d, double[] seg, int points) {
+		for (int i = 0; i < points * 2; i += 2) {
+			d.append(doubleString(seg[i])).append(' ').append(doubleString(seg[i + 1])).append(' ');
+		}
+	}
+
+	String matrix(AffineTransform t) {
+		return "matrix(" + doubleString(t.getScaleX()) + "," + doubleString(t.getShearY()) + ","
+				+ doubleString(t.getShearX()) + "," + doubleString(t.getScaleY()) + ","
+				+ doubleString(t.getTranslateX()) + "," + doubleString(t.getTranslateY()) + ")";
+	}
+
+	/**
+	 * Returns the id of a clip path for the given user space clip, writing its definition when it differs from the
+	 * previous one.
+	 */
+	String clipPath(Shape userClip) {
+		String d = pathData(userClip, null);
+		if (d.equals(this.lastClipPathData)) {
+			return this.lastClipId;
+		}
+		closeGroup();
+		this.clipCounter++;
+		String id = "clipPath" + this.clipCounter;
+		write("<defs id=\"defs" + this.clipCounter + "\"><clipPath clipPathUnits=\"userSpaceOnUse\" id=\"" + id
+				+ "\"><path d=\"" + d + "\"/></clipPath></defs>");
+		this.lastClipPathData = d;
+		this.lastClipId = id;
+		return id;
+	}
+
+	/**
+	 * Returns the id of the pattern of a hatch paint, writing its definition the first time it is used.
+	 */
+	String pattern(HatchPaint hatch) {
+		String id = this.patternIds.get(hatch);
+		if (id != null) {
+			return id;
+		}
+		closeGroup();
+		id = "hatch" + (this.patternIds.size() + 1);
+		Color color = hatch.getColor();
+		String size = doubleString(hatch.getTileSize());
+		StringBuilder style = new StringBuilder("fill:none; stroke:rgb(").append(color.getRed()).append(',')
+				.append(color.getGreen()).append(',').append(color.getBlue()).append("); stroke-width:")
+				.append(doubleString(HatchPaint.LINE_WIDTH)).append(';');
+		if (color.getAlpha() < 255) {
+			style.append(" stroke-opacity:").append(doubleString(color.getAlpha() / 255d)).append(';');
+		}
+		write("<defs><pattern patternUnits=\"userSpaceOnUse\" id=\"" + id + "\" width=\"" + size + "\" height=\""
+				+ size + "\"><path d=\"" + pathData(hatch.getTile(), null) + "\" style=\"" + style + "\"/></pattern></defs>");
+		this.patternIds.put(hatch, id);
+		return id;
+	}
+
+	void setCompactPathData(boolean compactPathData) {
+		this.compactPathData = compactPathData ? new PathData(this.decimalFormat.getMaximumFractionDigits()) : null;
+	}
+
+	void setStyleClasses(StyleClasses styleClasses) {
+		this.styleClasses = styleClasses;
+	}
+
+	/**
+	 * @return the style or class attribute of a style, with its leading space
+	 */
+	String styleAttribute(String style) {
+		if (this.styleClasses == null) {
+			return " style=\"" + style + "\"";
+		}
+		return " class=\"" + this.styleClasses.classOf(style) + "\"";
+	}
+
+	/**
+	 * Writes the rules of the style classes used so far, the style sheet applies to the whole document wherever
+	 * it is.
+	 */
+	void styleSheet() {
+		if (this.styleClasses != null && this.styleClasses.size() > 0) {
+			write("<style type=\"text/css\"><![CDATA[" + this.styleClasses.getStyleSheet() + "]]></style>");
+			this.elementCount++;
+		}
+	}
+
+	/**
+	 * Makes sure a group with the given attributes is open, closing the previous one if it differs.
+	 */
+	void group(String groupAttributes) {
+		if (groupAttributes.equals(this.openGroup)) {
+			return;
+		}
+		closeGroup();
+		write("<g" + groupAttributes + ">");
+		this.openGroup = groupAttributes;
+		this.elementCount++;
+	}
+
+	void closeGroup() {
+		if (this.openGroup != null) {
+			write("</g>");
+			this.openGroup = null;
+		}
+	}
+
+	void element(String name, Map<String, String> attributes, String text) {
+		StringBuilder sb = new StringBuilder(64).append('<').append(name);
+		boolean styleClass = this.styleClasses != null && !attributes.containsKey("class");
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			if (styleClass && attribute.getKey().equals("style")) {
+				sb.append(styleAttribute(attribute.getValue()));
+				continue;
+			}
+			sb.append(' ').append(attribute.getKey()).append("=\"").append(escape(attribute.getValue())).append('"');
+		}
+		if (text == null) {
+			sb.append("/>");
+		} else {
+			sb.append('>').append(escape(text)).append("</").append(name).append('>');
+		}
+		write(sb.toString());
+		this.elementCount++;
+	}
+
+	long getElementCount() {
+		return this.elementCount;
+	}
+
+	void hotSpotWritten() {
+		this.hotSpotCount++;
+	}
+
+	int getHotSpotCount() {
+		return this.hotSpotCount;
+	}
+
+	void write(String s) {
+		try {
+			this.out.write(s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	void flush() {
+		try {
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static String escape(String s) {
+		StringBuilder sb = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			String replacement = switch (c) {
+				case '<' -> "&lt;";
+				case '>' -> "&gt;";
+				case '&' -> "&amp;";
+				case '"' -> "&quot;";
+				default -> null;
+			};
+			if (replacement != null && sb == null) {
+				sb = new StringBuilder(s.length() + 16).append(s, 0, i);
+			}
+			if (sb != null) {
+				if (replacement != null) {
+					sb.append(replacement);
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb == null ? s : sb.toString();
+	}
+}
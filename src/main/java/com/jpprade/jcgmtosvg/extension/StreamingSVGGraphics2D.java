@@ -0,0 +1,487 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.ext.awt.g2d.AbstractGraphics2D;
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.text.AttributedCharacterIterator;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graphics2D back end writing SVG elements straight to a {@link Writer} while the CGM is painted.
+ * <p>
+ * Unlike {@link SVGGraphics2DHS} no DOM is built: memory is bounded by the open group, not by the document size.
+ * {@link #startDocument(Dimension, String, String)} must be called before painting and {@link #endDocument()} after.
+ */
+public class StreamingSVGGraphics2D extends AbstractGraphics2D implements HotSpotGraphics, HatchGraphics {
+
+	private static final Logger logger = LoggerFactory.getLogger(StreamingSVGGraphics2D.class);
+
+	/**
+	 * Root style equivalent to the default graphic context Batik writes on the root element.
+	 */
+	private static final String ROOT_STYLE = "fill-opacity:1; color-rendering:auto; color-interpolation:auto; text-rendering:auto; stroke:black; stroke-linecap:square; stroke-miterlimit:10; shape-rendering:auto; stroke-opacity:1; fill:black; stroke-dasharray:none; font-weight:normal; stroke-width:1; font-family:'Dialog'; font-style:normal; stroke-linejoin:miter; font-size:12px; stroke-dashoffset:0; image-rendering:auto;";
+
+	private static final Graphics2D fmg = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+	private final SVGStreamWriter out;
+
+	private List<HotSpot> hotSpotSink;
+
+	private PathSimplifier pathSimplifier;
+
+	private boolean hatchPatterns;
+
+	private boolean quantizedCoordinates;
+
+	public StreamingSVGGraphics2D(Writer writer, int precision) {
+		super(false);
+		this.out = new SVGStreamWriter(writer, precision);
+		this.gc = new GraphicContext(new AffineTransform());
+	}
+
+	private StreamingSVGGraphics2D(StreamingSVGGraphics2D g) {
+		super(g);
+		this.out = g.out;
+		this.hotSpotSink = g.hotSpotSink;
+		this.pathSimplifier = g.pathSimplifier;
+		this.hatchPatterns = g.hatchPatterns;
+		this.quantizedCoordinates = g.quantizedCoordinates;
+	}
+
+	/**
+	 * Writes the root element and the generic definitions.
+	 *
+	 * @param canvasSize the SVG width and height
+	 * @param css        content of the style sheet, may be null
+	 * @param script     content of the {@code nativeJSHS} script, may be null
+	 */
+	public void startDocument(Dimension canvasSize, String css, String script) {
+		startDocument(canvasSize, null, css, script);
+	}
+
+	/**
+	 * Writes the root element and the generic definitions.
+	 *
+	 * @param canvasSize the SVG width and height
+	 * @param viewBox    the size of the user space of the root element, null when it is the canvas size
+	 * @param css        content of the style sheet, may be null
+	 * @param script     content of the {@code nativeJSHS} script, may be null
+	 */
+	public void startDocument(Dimension canvasSize, Dimension viewBox, String css, String script) {
+		String box = viewBox == null ? "" : " viewBox=\"0 0 " + viewBox.width + " " + viewBox.height + "\"";
+		this.out.write("<svg xmlns:xlink=\"http://www.w3.org/1999/xlink\" style=\"" + ROOT_STYLE + "\" width=\"" + canvasSize.width
+				+ "\" height=\"" + canvasSize.height + "\"" + box + " xmlns=\"http://www.w3.org/2000/svg\" contentScriptType=\"text/ecmascript\""
+				+ " zoomAndPan=\"magnify\" contentStyleType=\"text/css\" preserveAspectRatio=\"xMidYMid meet\" version=\"1.0\">");
+		this.out.write("<defs id=\"genericDefs\">");
+		if (css != null) {
+			this.out.write("<style type=\"text/css\"><![CDATA[" + css + "]]></style>");
+		}
+		if (script != null) {
+			this.out.write("<script id=\"nativeJSHS\"><![CDATA[" + script + "]]></script>");
+		}
+		this.out.write("</defs><g>");
+	}
+
+	/**
+	 * Closes the open groups and the root element, then flushes the writer.
+	 */
+	public void endDocument() {
+		this.out.closeGroup();
+		this.out.write("</g>");
+		this.out.styleSheet();
+		this.out.write("</svg>");
+		this.out.flush();
+	}
+
+	/**
+	 * @return the number of elements written so far
+	 */
+	public long getElementCount() {
+		return this.out.getElementCount();
+	}
+
+	@Override
+	public int getHotSpotCount() {
+		return this.out.getHotSpotCount();
+	}
+
+	@Override
+	public void recordHotSpots(List<HotSpot> sink) {
+		this.hotSpotSink = sink;
+	}
+
+	/**
+	 * @param pathSimplifier simplifies the paths before they are written, null to keep them as drawn
+	 */
+	public void setPathSimplifier(PathSimplifier pathSimplifier) {
+		this.pathSimplifier = pathSimplifier;
+	}
+
+	/**
+	 * Fills the hatched shapes with a {@link HatchPaint}, written once per document as a pattern.
+	 */
+	public void setHatchPatterns(boolean hatchPatterns) {
+		this.hatchPatterns = hatchPatterns;
+	}
+
+	@Override
+	public boolean isHatchPatterns() {
+		return this.hatchPatterns;
+	}
+
+	/**
+	 * Writes the styles of the groups and elements as classes, the style sheet of the classes is written by
+	 * {@link #endDocument()}. Must be set before painting.
+	 */
+	public void setStyleClasses(StyleClasses styleClasses) {
+		this.out.setStyleClasses(styleClasses);
+	}
+
+	/**
+	 * Writes the path data with {@link PathData}: relative or absolute coordinates, whichever is shorter, and no
+	 * redundant command letter nor separator. Must be set before painting.
+	 */
+	public void setCompactPathData(boolean compactPathData) {
+		this.out.setCompactPathData(compactPathData);
+	}
+
+	/**
+	 * Rounds the coordinates of the shapes drawn with a uniform transform to integers in device space.
+	 */
+	public void setQuantizedCoordinates(boolean quantizedCoordinates) {
+		this.quantizedCoordinates = quantizedCoordinates;
+	}
+
+	@Override
+	public void draw(Shape s) {
+		Stroke stroke = this.gc.getStroke();
+		if (stroke instanceof BasicStroke) {
+			s = simplify(s);
+			if (this.quantizedCoordinates && Quantization.applies(this)) {
+				Quantization.paint(this, s, q -> writeShape(q, "fill:none;", null));
+				return;
+			}
+			writeShape(s, "fill:none;", null);
+		} else {
+			fill(stroke.createStrokedShape(s));
+		}
+	}
+
+	@Override
+	public void fill(Shape s) {
+		s = simplify(s);
+		if (this.quantizedCoordinates && Quantization.applies(this)) {
+			Quantization.paint(this, s, q -> writeShape(q, "stroke:none;", null));
+			return;
+		}
+		writeShape(s, "stroke:none;", null);
+	}
+
+	private Shape simplify(Shape s) {
+		return this.pathSimplifier == null ? s : this.pathSimplifier.simplify(s, this.gc.getTransform());
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsName) {
+		drawHotSpot(s, id, id, apsName, null, null);
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsId, String apsName, String link, String color) {
+		Stroke stroke = this.gc.getStroke();
+		if (stroke instanceof BasicStroke) {
+			Rectangle2D rect = getTransform().createTransformedShape(s).getBounds2D();
+			writeShape(s, null, HotSpotAttributes.hotSpot(rect, id, apsId, apsName, link, color));
+			this.out.hotSpotWritten();
+			if (this.hotSpotSink != null) {
+				this.hotSpotSink.add(HotSpotAttributes.record(HotSpot.Type.HOTSPOT, rect, id, apsId, apsName));
+			}
+		} else {
+			fill(stroke.createStrokedShape(s));
+		}
+	}
+
+	@Override
+	public void drawTDET(Shape s, String apsId, String apsName) {
+		Stroke stroke = this.gc.getStroke();
+		if (stroke instanceof BasicStroke) {
+			writeShape(s, "fill:none;", HotSpotAttributes.tdet(apsId, apsName));
+			if (this.hotSpotSink != null) {
+				Rectangle2D rect = getTransform().createTransformedShape(s).getBounds2D();
+				this.hotSpotSink.add(HotSpotAttributes.record(HotSpot.Type.TDET, rect, null, apsId, apsName));
+			}
+		} else {
+			fill(stroke.createStrokedShape(s));
+		}
+	}
+
+	private void writeShape(Shape s, String style, Map<String, String> extra) {
+		Map<String, String> attributes = new LinkedHashMap<>();
+		String name;
+		if (s instanceof Line2D line) {
+			name = "line";
+			attributes.put("x1", this.out.doubleString(line.getX1()));
+			attributes.put("y1", this.out.doubleString(line.getY1()));
+			attributes.put("x2", this.out.doubleString(line.getX2()));
+			attributes.put("y2", this.out.doubleString(line.getY2()));
+		} else if (s instanceof Rectangle2D rect) {
+			name = "rect";
+			attributes.put("x", this.out.doubleString(rect.getX()));
+			attributes.put("y", this.out.doubleString(rect.getY()));
+			attributes.put("width", this.out.doubleString(rect.getWidth()));
+			attributes.put("height", this.out.doubleString(rect.getHeight()));
+		} else {
+			String d = this.out.pathData(s, null);
+			if (d.isEmpty()) {
+				return;
+			}
+			name = "path";
+			attributes.put("d", d);
+		}
+		if (extra != null) {
+			// hotspot attributes are presentation attributes, written as style like Batik does with useCSS
+			String fill = extra.get("fill");
+			attributes.putAll(extra);
+			if (fill != null) {
+				attributes.remove("fill-rule");
+				attributes.remove("fill");
+				attributes.remove("stroke");
+				style = "fill-rule:evenodd; fill:" + fill + "; stroke:none;";
+			}
+		}
+		if (style != null) {
+			attributes.put("style", style);
+		}
+		openGroup();
+		this.out.element(name, attributes, null);
+	}
+
+	@Override
+	public void drawString(String str, float x, float y) {
+		if (str == null || str.isEmpty()) {
+			return;
+		}
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put("x", this.out.doubleString(x));
+		attributes.put("y", this.out.doubleString(y));
+		attributes.put("xml:space", "preserve");
+		attributes.put("style", "stroke:none;");
+		openGroup();
+		this.out.element("text", attributes, str);
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+		StringBuilder sb = new StringBuilder();
+		for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next()) {
+			sb.append(c);
+		}
+		drawString(sb.toString(), x, y);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+		return drawImage(img, x, y, img.getWidth(observer), img.getHeight(observer), observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+		if (width <= 0 || height <= 0) {
+			return true;
+		}
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put("x", Integer.toString(x));
+		attributes.put("y", Integer.toString(y));
+		attributes.put("width", Integer.toString(width));
+		attributes.put("height", Integer.toString(height));
+		attributes.put("preserveAspectRatio", "none");
+		attributes.put("xlink:href", "data:image/png;base64," + encodePng(img, observer));
+		openGroup();
+		this.out.element("image", attributes, null);
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, AffineTransform xform, ImageObserver observer) {
+		if (xform == null || xform.isIdentity()) {
+			return drawImage(img, 0, 0, observer);
+		}
+		AffineTransform saved = getTransform();
+		transform(xform);
+		boolean result = drawImage(img, 0, 0, observer);
+		setTransform(saved);
+		return result;
+	}
+
+	@Override
+	public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+		if (op != null) {
+			img = op.filter(img, null);
+		}
+		drawImage(img, x, y, null);
+	}
+
+	@Override
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+		BufferedImage image;
+		if (img instanceof BufferedImage bufferedImage) {
+			image = bufferedImage;
+		} else {
+			image = new BufferedImage(img.getColorModel(), img.copyData(null),
+					img.getColorModel().isAlphaPremultiplied(), null);
+		}
+		drawImage(image, xform, null);
+	}
+
+	@Override
+	public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+		drawRenderedImage(img.createDefaultRendering(), xform);
+	}
+
+	private String encodePng(Image img, ImageObserver observer) {
+		BufferedImage image;
+		if (img instanceof BufferedImage bufferedImage) {
+			image = bufferedImage;
+		} else {
+			image = new BufferedImage(img.getWidth(observer), img.getHeight(observer), BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.drawImage(img, 0, 0, observer);
+			g.dispose();
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(image, "png", bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return Base64.getEncoder().encodeToString(bytes.toByteArray());
+	}
+
+	/**
+	 * Opens (or keeps) the group matching the current graphic context.
+	 */
+	private void openGroup() {
+		StringBuilder style = new StringBuilder(128);
+		Paint paint = this.gc.getPaint();
+		Color color = paint instanceof Color c ? c : this.gc.getColor();
+		String rgb = "rgb(" + color.getRed() + "," + color.getGreen() + "," + color.getBlue() + ")";
+		String fill = paint instanceof HatchPaint hatch ? "url(#" + this.out.pattern(hatch) + ")" : rgb;
+		style.append("fill:").append(fill).append("; stroke:").append(rgb).append(';');
+		if (color.getAlpha() < 255) {
+			String alpha = this.out.doubleString(color.getAlpha() / 255d);
+			style.append(" fill-opacity:").append(alpha).append("; stroke-opacity:").append(alpha).append(';');
+		}
+		Composite composite = this.gc.getComposite();
+		if (composite instanceof AlphaComposite alphaComposite && alphaComposite.getAlpha() < 1f) {
+			style.append(" opacity:").append(this.out.doubleString(alphaComposite.getAlpha())).append(';');
+		}
+		if (this.gc.getStroke() instanceof BasicStroke stroke) {
+			appendStroke(style, stroke);
+		}
+		appendFont(style, this.gc.getFont());
+
+		StringBuilder group = new StringBuilder(style.length() + 64);
+		group.append(this.out.styleAttribute(style.toString()));
+		AffineTransform transform = this.gc.getTransform();
+		if (!transform.isIdentity()) {
+			group.append(" transform=\"").append(this.out.matrix(transform)).append('"');
+		}
+		Shape clip = this.gc.getClip();
+		if (clip != null) {
+			group.append(" clip-path=\"url(#").append(this.out.clipPath(clip)).append(")\"");
+		}
+		this.out.group(group.toString());
+	}
+
+	private void appendStroke(StringBuilder style, BasicStroke stroke) {
+		style.append(" stroke-width:").append(this.out.doubleString(stroke.getLineWidth())).append(';');
+		style.append(" stroke-linecap:").append(switch (stroke.getEndCap()) {
+			case BasicStroke.CAP_BUTT -> "butt";
+			case BasicStroke.CAP_ROUND -> "round";
+			default -> "square";
+		}).append(';');
+		style.append(" stroke-linejoin:").append(switch (stroke.getLineJoin()) {
+			case BasicStroke.JOIN_BEVEL -> "bevel";
+			case BasicStroke.JOIN_ROUND -> "round";
+			default -> "miter";
+		}).append(';');
+		style.append(" stroke-miterlimit:").append(this.out.doubleString(stroke.getMiterLimit())).append(';');
+		float[] dash = stroke.getDashArray();
+		if (dash != null && dash.length > 0) {
+			style.append(" stroke-dasharray:");
+			for (int i = 0; i < dash.length; i++) {
+				style.append(i == 0 ? "" : ",").append(this.out.doubleString(dash[i]));
+			}
+			style.append("; stroke-dashoffset:").append(this.out.doubleString(stroke.getDashPhase())).append(';');
+		}
+	}
+
+	private void appendFont(StringBuilder style, Font font) {
+		style.append(" font-family:'").append(font.getFamily()).append("';");
+		style.append(" font-size:").append(this.out.doubleString(font.getSize2D())).append("px;");
+		style.append(" font-weight:").append(font.isBold() ? "bold" : "normal").append(';');
+		style.append(" font-style:").append(font.isItalic() ? "italic" : "normal").append(';');
+	}
+
+	@Override
+	public Graphics create() {
+		return new StreamingSVGGraphics2D(this);
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration() {
+		return null;
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		return fmg.getFontMetrics(f);
+	}
+
+	@Override
+	public void setXORMode(Color c1) {
+		logger.debug("XOR mode is not supported by the streaming SVG output");
+	}
+
+	@Override
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+		logger.debug("copyArea is not supported by the streaming SVG output");
+	}
+
+	@Override
+	public void dispose() {
+		// the writer is shared with the parent graphics and released by endDocument()
+	}
+}
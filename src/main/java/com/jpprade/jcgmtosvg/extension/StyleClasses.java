@@ -0,0 +1,74 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the inline styles of the SVG elements by CSS classes, one class per distinct style.
+ * <p>
+ * A drawing uses a handful of distinct styles repeated on thousands of groups, so each style is written once in the
+ * style sheet and the elements only refer to it. The elements which already have a class (hotspots and TDETs) keep
+ * their inline style, so the precedence with the rules of the default style sheet is unchanged.
+ */
+public final class StyleClasses {
+
+	private static final String CLASS_PREFIX = "s";
+
+	private final Map<String, String> classes = new LinkedHashMap<>();
+
+	/**
+	 * @return the class of the style, a new one the first time the style is seen
+	 */
+	public String classOf(String style) {
+		String name = this.classes.get(style);
+		if (name == null) {
+			name = CLASS_PREFIX + Integer.toString(this.classes.size(), Character.MAX_RADIX);
+			this.classes.put(style, name);
+		}
+		return name;
+	}
+
+	/**
+	 * Moves the style attributes of the element and its descendants to classes.
+	 */
+	public void apply(Element root) {
+		Deque<Element> pending = new ArrayDeque<>();
+		pending.push(root);
+		while (!pending.isEmpty()) {
+			Element element = pending.pop();
+			String style = element.getAttribute("style");
+			if (!style.isEmpty() && !element.hasAttribute("class")) {
+				element.setAttribute("class", classOf(style));
+				element.removeAttribute("style");
+			}
+			for (Node child = element.getLastChild(); child != null; child = child.getPreviousSibling()) {
+				if (child instanceof Element childElement) {
+					pending.push(childElement);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of distinct styles
+	 */
+	public int size() {
+		return this.classes.size();
+	}
+
+	/**
+	 * @return the CSS rules of the classes, in the order they were created
+	 */
+	public String getStyleSheet() {
+		StringBuilder css = new StringBuilder();
+		for (Map.Entry<String, String> entry : this.classes.entrySet()) {
+			css.append('.').append(entry.getValue()).append(" {").append(entry.getKey()).append('}');
+		}
+		return css.toString();
+	}
+}
@@ -0,0 +1,178 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.util.CSSConstants;
+import org.apache.batik.util.SVGConstants;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the paths repeated at different positions by {@code <use>} elements referring to one {@code <symbol>}.
+ * <p>
+ * The path data is parsed and moved so that it starts at the origin, two paths with the same moved data and the same
+ * attributes are the same geometry. Each geometry found at least twice is written once as a symbol of the defs and
+ * every occurrence becomes a {@code <use>} translated to its position, in the same group, so it keeps the style and
+ * the transform of the group. The paths with other attributes than their data, fill rule, style and class (hotspots
+ * and TDETs) and the short paths, for which a {@code <use>} is not smaller, are left as they are.
+ */
+public final class SymbolInstancing {
+
+	/**
+	 * Shorter path data are not worth a symbol, the {@code <use>} element replacing the path takes about as many
+	 * characters.
+	 */
+	static final int MIN_PATH_DATA_LENGTH = 48;
+
+	/**
+	 * Attributes which are part of the geometry, besides the path data.
+	 */
+	private static final List<String> KEY_ATTRIBUTES = List.of(SVGConstants.SVG_FILL_RULE_ATTRIBUTE,
+			SVGConstants.SVG_STYLE_ATTRIBUTE, SVGConstants.SVG_CLASS_ATTRIBUTE);
+
+	private final SVGGeneratorContext generatorContext;
+
+	private final PathData pathData;
+
+	private final Map<String, List<Occurrence>> geometries = new LinkedHashMap<>();
+
+	private record Occurrence(Element path, double x, double y) {
+	}
+
+	public SymbolInstancing(SVGGeneratorContext generatorContext) {
+		this.generatorContext = generatorContext;
+		this.pathData = new PathData(generatorContext.getPrecision());
+	}
+
+	/**
+	 * Instantiates the repeated paths of the element and its descendants, the definitions in {@code defs} are skipped.
+	 *
+	 * @param defs the element the symbols are added to
+	 * @return the number of symbols added
+	 */
+	public int apply(Element root, Element defs) {
+		Deque<Element> pending = new ArrayDeque<>();
+		pending.push(root);
+		while (!pending.isEmpty()) {
+			Element element = pending.pop();
+			if (SVGConstants.SVG_PATH_TAG.equals(element.getLocalName())) {
+				record(element);
+			}
+			for (Node child = element.getLastChild(); child != null; child = child.getPreviousSibling()) {
+				if (child instanceof Element childElement && child != defs && !isDefinition(childElement)) {
+					pending.push(childElement);
+				}
+			}
+		}
+
+		int symbols = 0;
+		for (Map.Entry<String, List<Occurrence>> geometry : this.geometries.entrySet()) {
+			List<Occurrence> occurrences = geometry.getValue();
+			if (occurrences.size() < 2) {
+				continue;
+			}
+			String id = this.generatorContext.getIDGenerator().generateID("symbol");
+			defs.appendChild(symbol(id, occurrences.get(0).path(), geometry.getKey()));
+			for (Occurrence occurrence : occurrences) {
+				occurrence.path().getParentNode().replaceChild(use(id, occurrence), occurrence.path());
+			}
+			symbols++;
+		}
+		this.geometries.clear();
+		return symbols;
+	}
+
+	private static boolean isDefinition(Element element) {
+		String name = element.getLocalName();
+		return SVGConstants.SVG_DEFS_TAG.equals(name) || SVGConstants.SVG_CLIP_PATH_TAG.equals(name)
+				|| SVGConstants.SVG_PATTERN_TAG.equals(name) || SVGConstants.SVG_SYMBOL_TAG.equals(name);
+	}
+
+	private void record(Element path) {
+		NamedNodeMap attributes = path.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++) {
+			if (!isInstanceable(((Attr) attributes.item(i)).getName())) {
+				return;
+			}
+		}
+		StringBuilder key = new StringBuilder();
+		for (String name : KEY_ATTRIBUTES) {
+			if (path.hasAttribute(name)) {
+				key.append(name).append('=').append(path.getAttribute(name)).append(';');
+			}
+		}
+		String data = path.getAttribute(SVGConstants.SVG_D_ATTRIBUTE);
+		if (data.length() < MIN_PATH_DATA_LENGTH) {
+			return;
+		}
+		List<PathData.Segment> segments;
+		try {
+			segments = PathData.parse(data);
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		if (segments.isEmpty()) {
+			return;
+		}
+		double[] start = segments.get(0).values();
+		double x = start[0];
+		double y = start[1];
+		String d = this.pathData.encode(translate(segments, -x, -y));
+		// the attributes come first, the path data can not contain a ';'
+		key.append(d);
+		this.geometries.computeIfAbsent(key.toString(), k -> new ArrayList<>()).add(new Occurrence(path, x, y));
+	}
+
+	private static boolean isInstanceable(String attribute) {
+		return SVGConstants.SVG_D_ATTRIBUTE.equals(attribute) || KEY_ATTRIBUTES.contains(attribute);
+	}
+
+	/**
+	 * @return the segments moved by (dx, dy), the arcs keep their radii, rotation and flags
+	 */
+	static List<PathData.Segment> translate(List<PathData.Segment> segments, double dx, double dy) {
+		List<PathData.Segment> translated = new ArrayList<>(segments.size());
+		for (PathData.Segment segment : segments) {
+			double[] values = segment.values().clone();
+			for (int i = segment.command() == 'A' ? 5 : 0; i < values.length; i += 2) {
+				values[i] += dx;
+				values[i + 1] += dy;
+			}
+			translated.add(new PathData.Segment(segment.command(), values));
+		}
+		return translated;
+	}
+
+	private Element symbol(String id, Element path, String key) {
+		Element symbol = this.generatorContext.getDOMFactory().createElementNS(SVGConstants.SVG_NAMESPACE_URI,
+				SVGConstants.SVG_SYMBOL_TAG);
+		symbol.setAttributeNS(null, SVGConstants.SVG_ID_ATTRIBUTE, id);
+		// a symbol is clipped to its viewport by default and the moved geometry may be on the negative side
+		symbol.setAttributeNS(null, CSSConstants.CSS_OVERFLOW_PROPERTY, CSSConstants.CSS_VISIBLE_VALUE);
+		Element geometry = (Element) path.cloneNode(false);
+		geometry.setAttributeNS(null, SVGConstants.SVG_D_ATTRIBUTE, key.substring(key.lastIndexOf(';') + 1));
+		symbol.appendChild(geometry);
+		return symbol;
+	}
+
+	private Element use(String id, Occurrence occurrence) {
+		Element use = this.generatorContext.getDOMFactory().createElementNS(SVGConstants.SVG_NAMESPACE_URI,
+				SVGConstants.SVG_USE_TAG);
+		use.setAttributeNS(SVGConstants.XLINK_NAMESPACE_URI, SVGConstants.XLINK_HREF_QNAME, "#" + id);
+		if (occurrence.x() != 0) {
+			use.setAttributeNS(null, SVGConstants.SVG_X_ATTRIBUTE, this.generatorContext.doubleString(occurrence.x()));
+		}
+		if (occurrence.y() != 0) {
+			use.setAttributeNS(null, SVGConstants.SVG_Y_ATTRIBUTE, this.generatorContext.doubleString(occurrence.y()));
+		}
+		return use;
+	}
+}
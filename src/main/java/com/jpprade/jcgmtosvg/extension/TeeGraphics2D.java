@@ -0,0 +1,205 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.ext.awt.g2d.AbstractGraphics2D;
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Graphics2D painting the same drawing on two back ends in a single pass, e.g. the SVG and a raster thumbnail.
+ * <p>
+ * The graphic context is held by this graphics and copied to a target before each element is painted on it, preceded
+ * by the transform the target had when the tee was created: a raster target scaled to the thumbnail size keeps that
+ * scale. The hotspots and TDETs are only drawn by the primary target, they are not part of the picture.
+ */
+public class TeeGraphics2D extends AbstractGraphics2D implements HotSpotGraphics, HatchGraphics {
+
+	private static final Graphics2D fmg = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+	private final Graphics2D primary;
+
+	private final AffineTransform primaryBase;
+
+	private final Graphics2D secondary;
+
+	private final AffineTransform secondaryBase;
+
+	/**
+	 * @param primary   the main back end, which also receives the hotspots when it is a {@link HotSpotGraphics}
+	 * @param secondary the back end receiving a copy of the drawing
+	 */
+	public TeeGraphics2D(Graphics2D primary, Graphics2D secondary) {
+		super(false);
+		this.primary = primary;
+		this.primaryBase = primary.getTransform();
+		this.secondary = secondary;
+		this.secondaryBase = secondary.getTransform();
+		this.gc = new GraphicContext(new AffineTransform());
+	}
+
+	private TeeGraphics2D(TeeGraphics2D g) {
+		super(g);
+		this.primary = g.primary;
+		this.primaryBase = g.primaryBase;
+		this.secondary = g.secondary;
+		this.secondaryBase = g.secondaryBase;
+	}
+
+	/**
+	 * The hatches are written as patterns when the primary target does it, a pattern is a regular paint for a raster
+	 * target.
+	 */
+	@Override
+	public boolean isHatchPatterns() {
+		return this.primary instanceof HatchGraphics hatchGraphics && hatchGraphics.isHatchPatterns();
+	}
+
+	@Override
+	public int getHotSpotCount() {
+		return this.primary instanceof HotSpotGraphics hotSpotGraphics ? hotSpotGraphics.getHotSpotCount() : 0;
+	}
+
+	@Override
+	public void recordHotSpots(List<HotSpot> sink) {
+		if (this.primary instanceof HotSpotGraphics hotSpotGraphics) {
+			hotSpotGraphics.recordHotSpots(sink);
+		}
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsName) {
+		if (this.primary instanceof HotSpotGraphics hotSpotGraphics) {
+			copyContext(this.primary, this.primaryBase);
+			hotSpotGraphics.drawHotSpot(s, id, apsName);
+		}
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsId, String apsName, String link, String color) {
+		if (this.primary instanceof HotSpotGraphics hotSpotGraphics) {
+			copyContext(this.primary, this.primaryBase);
+			hotSpotGraphics.drawHotSpot(s, id, apsId, apsName, link, color);
+		}
+	}
+
+	@Override
+	public void drawTDET(Shape s, String apsId, String apsName) {
+		if (this.primary instanceof HotSpotGraphics hotSpotGraphics) {
+			copyContext(this.primary, this.primaryBase);
+			hotSpotGraphics.drawTDET(s, apsId, apsName);
+		}
+	}
+
+	@Override
+	public void draw(Shape s) {
+		paint(g -> g.draw(s));
+	}
+
+	@Override
+	public void fill(Shape s) {
+		paint(g -> g.fill(s));
+	}
+
+	@Override
+	public void drawString(String str, float x, float y) {
+		paint(g -> g.drawString(str, x, y));
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+		// the iterator can only be read once
+		StringBuilder sb = new StringBuilder();
+		for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next()) {
+			sb.append(c);
+		}
+		drawString(sb.toString(), x, y);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+		paint(g -> g.drawImage(img, x, y, observer));
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+		paint(g -> g.drawImage(img, x, y, width, height, observer));
+		return true;
+	}
+
+	@Override
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+		paint(g -> g.drawRenderedImage(img, xform));
+	}
+
+	@Override
+	public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+		paint(g -> g.drawRenderableImage(img, xform));
+	}
+
+	private void paint(Consumer<Graphics2D> painter) {
+		copyContext(this.primary, this.primaryBase);
+		painter.accept(this.primary);
+		copyContext(this.secondary, this.secondaryBase);
+		painter.accept(this.secondary);
+	}
+
+	private void copyContext(Graphics2D target, AffineTransform base) {
+		AffineTransform transform = new AffineTransform(base);
+		transform.concatenate(getTransform());
+		target.setTransform(transform);
+		target.setClip(getClip());
+		// the colour first, setting it replaces the paint, the SVG target still needs it for the strokes of the hatches
+		target.setColor(getColor());
+		target.setPaint(getPaint());
+		target.setStroke(getStroke());
+		target.setFont(getFont());
+		target.setComposite(getComposite());
+		target.setBackground(getBackground());
+	}
+
+	@Override
+	public Graphics create() {
+		return new TeeGraphics2D(this);
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration() {
+		return null;
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		return fmg.getFontMetrics(f);
+	}
+
+	@Override
+	public void setXORMode(Color c1) {
+		// not supported by the SVG back ends
+	}
+
+	@Override
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+		// not supported by the SVG back ends
+	}
+
+	@Override
+	public void dispose() {
+		// the targets are owned by the caller
+	}
+}
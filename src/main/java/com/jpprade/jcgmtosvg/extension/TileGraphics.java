@@ -0,0 +1,309 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.ext.awt.g2d.AbstractGraphics2D;
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Graphics2D back end cutting the drawing of one zoom level in a grid of square tiles, each written by its own
+ * {@link StreamingSVGGraphics2D}.
+ * <p>
+ * The device space is the canvas of the drawing. Every shape, text and image is only sent to the tiles its device
+ * bounds intersect, with the graphic context of this graphics preceded by the transform of the tile: the canvas is
+ * scaled to the pixels of the level and moved so that the tile starts at the origin. The shapes smaller than the
+ * minimum size in both directions are dropped. The hotspots and TDETs are not part of the tiles, they are sent to the
+ * overlay when there is one.
+ */
+public class TileGraphics extends AbstractGraphics2D implements HotSpotGraphics, HatchGraphics {
+
+	private static final Graphics2D fmg = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+	/**
+	 * Creates the graphics of a tile the first time something is drawn on it.
+	 */
+	@FunctionalInterface
+	public interface TileFactory {
+
+		StreamingSVGGraphics2D create(int column, int row);
+	}
+
+	private final Grid grid;
+
+	/**
+	 * State shared with the graphics created from this one.
+	 */
+	private static final class Grid {
+
+		private final double tileSize;
+		private final int columns;
+		private final int rows;
+		private final double zoom;
+		private final TileFactory factory;
+		private final StreamingSVGGraphics2D[] tiles;
+		private double minimumSize;
+		private StreamingSVGGraphics2D overlay;
+		private boolean hatchPatterns;
+
+		private Grid(int tilePixels, double tileSize, int columns, int rows, TileFactory factory) {
+			this.tileSize = tileSize;
+			this.columns = columns;
+			this.rows = rows;
+			this.zoom = tilePixels / tileSize;
+			this.factory = factory;
+			this.tiles = new StreamingSVGGraphics2D[columns * rows];
+		}
+	}
+
+	/**
+	 * @param tilePixels width and height of a tile in px
+	 * @param tileSize   width and height of a tile in canvas units
+	 * @param columns    number of tiles along the x axis
+	 * @param rows       number of tiles along the y axis
+	 */
+	public TileGraphics(int tilePixels, double tileSize, int columns, int rows, TileFactory factory) {
+		super(false);
+		this.grid = new Grid(tilePixels, tileSize, columns, rows, factory);
+		this.gc = new GraphicContext(new AffineTransform());
+	}
+
+	private TileGraphics(TileGraphics g) {
+		super(g);
+		this.grid = g.grid;
+	}
+
+	/**
+	 * @param minimumSize the shapes whose width and height are both below this size in canvas units are dropped
+	 */
+	public void setMinimumSize(double minimumSize) {
+		this.grid.minimumSize = minimumSize;
+	}
+
+	/**
+	 * @param overlay receives the hotspots and TDETs, null to drop them
+	 */
+	public void setOverlay(StreamingSVGGraphics2D overlay) {
+		this.grid.overlay = overlay;
+	}
+
+	public void setHatchPatterns(boolean hatchPatterns) {
+		this.grid.hatchPatterns = hatchPatterns;
+	}
+
+	@Override
+	public boolean isHatchPatterns() {
+		return this.grid.hatchPatterns;
+	}
+
+	/**
+	 * @return the transform from the canvas to the pixels of the tile
+	 */
+	public AffineTransform getTileTransform(int column, int row) {
+		AffineTransform transform = AffineTransform.getScaleInstance(this.grid.zoom, this.grid.zoom);
+		transform.translate(-column * this.grid.tileSize, -row * this.grid.tileSize);
+		return transform;
+	}
+
+	@Override
+	public int getHotSpotCount() {
+		return this.grid.overlay == null ? 0 : this.grid.overlay.getHotSpotCount();
+	}
+
+	@Override
+	public void recordHotSpots(List<HotSpot> sink) {
+		if (this.grid.overlay != null) {
+			this.grid.overlay.recordHotSpots(sink);
+		}
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsName) {
+		drawHotSpot(s, id, id, apsName, null, null);
+	}
+
+	@Override
+	public void drawHotSpot(Shape s, String id, String apsId, String apsName, String link, String color) {
+		if (this.grid.overlay != null) {
+			copyContext(this.grid.overlay, new AffineTransform());
+			this.grid.overlay.drawHotSpot(s, id, apsId, apsName, link, color);
+		}
+	}
+
+	@Override
+	public void drawTDET(Shape s, String apsId, String apsName) {
+		if (this.grid.overlay != null) {
+			copyContext(this.grid.overlay, new AffineTransform());
+			this.grid.overlay.drawTDET(s, apsId, apsName);
+		}
+	}
+
+	@Override
+	public void draw(Shape s) {
+		Stroke stroke = this.gc.getStroke();
+		Rectangle2D bounds;
+		if (stroke instanceof BasicStroke basicStroke) {
+			bounds = getTransform().createTransformedShape(s).getBounds2D();
+			// half the line width, the miter joins may go further
+			double width = basicStroke.getLineWidth() / 2 * scale(getTransform());
+			if (basicStroke.getLineJoin() == BasicStroke.JOIN_MITER) {
+				width *= Math.max(1, basicStroke.getMiterLimit());
+			}
+			bounds.setRect(bounds.getX() - width, bounds.getY() - width, bounds.getWidth() + 2 * width, bounds.getHeight() + 2 * width);
+		} else {
+			bounds = getTransform().createTransformedShape(stroke.createStrokedShape(s)).getBounds2D();
+		}
+		if (isVisible(bounds)) {
+			dispatch(bounds, tile -> tile.draw(s));
+		}
+	}
+
+	@Override
+	public void fill(Shape s) {
+		Rectangle2D bounds = getTransform().createTransformedShape(s).getBounds2D();
+		if (isVisible(bounds)) {
+			dispatch(bounds, tile -> tile.fill(s));
+		}
+	}
+
+	@Override
+	public void drawString(String str, float x, float y) {
+		if (str == null || str.isEmpty()) {
+			return;
+		}
+		Rectangle2D text = getFont().getStringBounds(str, getFontRenderContext());
+		text.setRect(text.getX() + x, text.getY() + y, text.getWidth(), text.getHeight());
+		dispatch(getTransform().createTransformedShape(text).getBounds2D(), tile -> tile.drawString(str, x, y));
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+		StringBuilder sb = new StringBuilder();
+		for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next()) {
+			sb.append(c);
+		}
+		drawString(sb.toString(), x, y);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+		return drawImage(img, x, y, img.getWidth(observer), img.getHeight(observer), observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+		if (width > 0 && height > 0) {
+			Rectangle2D bounds = getTransform().createTransformedShape(new Rectangle2D.Double(x, y, width, height)).getBounds2D();
+			dispatch(bounds, tile -> tile.drawImage(img, x, y, width, height, observer));
+		}
+		return true;
+	}
+
+	@Override
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+		AffineTransform transform = getTransform();
+		transform.concatenate(xform);
+		Rectangle2D image = new Rectangle2D.Double(img.getMinX(), img.getMinY(), img.getWidth(), img.getHeight());
+		dispatch(transform.createTransformedShape(image).getBounds2D(), tile -> tile.drawRenderedImage(img, xform));
+	}
+
+	@Override
+	public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+		AffineTransform transform = getTransform();
+		transform.concatenate(xform);
+		Rectangle2D image = new Rectangle2D.Double(img.getMinX(), img.getMinY(), img.getWidth(), img.getHeight());
+		dispatch(transform.createTransformedShape(image).getBounds2D(), tile -> tile.drawRenderableImage(img, xform));
+	}
+
+	private boolean isVisible(Rectangle2D bounds) {
+		return bounds.getWidth() >= this.grid.minimumSize || bounds.getHeight() >= this.grid.minimumSize;
+	}
+
+	private static double scale(AffineTransform transform) {
+		return Math.max(Math.hypot(transform.getScaleX(), transform.getShearY()),
+				Math.hypot(transform.getShearX(), transform.getScaleY()));
+	}
+
+	/**
+	 * Paints on every tile intersecting the device bounds, with the graphic context of this graphics.
+	 */
+	private void dispatch(Rectangle2D bounds, Consumer<StreamingSVGGraphics2D> painter) {
+		Grid g = this.grid;
+		int firstColumn = Math.max(0, (int) Math.floor(bounds.getMinX() / g.tileSize));
+		int lastColumn = Math.min(g.columns - 1, (int) Math.floor(bounds.getMaxX() / g.tileSize));
+		int firstRow = Math.max(0, (int) Math.floor(bounds.getMinY() / g.tileSize));
+		int lastRow = Math.min(g.rows - 1, (int) Math.floor(bounds.getMaxY() / g.tileSize));
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int index = row * g.columns + column;
+				StreamingSVGGraphics2D tile = g.tiles[index];
+				if (tile == null) {
+					tile = g.factory.create(column, row);
+					g.tiles[index] = tile;
+				}
+				copyContext(tile, getTileTransform(column, row));
+				painter.accept(tile);
+			}
+		}
+	}
+
+	private void copyContext(Graphics2D target, AffineTransform base) {
+		base.concatenate(getTransform());
+		target.setTransform(base);
+		target.setClip(getClip());
+		// the colour first, setting it replaces the paint, the tiles still need it for the strokes of the hatches
+		target.setColor(getColor());
+		target.setPaint(getPaint());
+		target.setStroke(getStroke());
+		target.setFont(getFont());
+		target.setComposite(getComposite());
+		target.setBackground(getBackground());
+	}
+
+	@Override
+	public Graphics create() {
+		return new TileGraphics(this);
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration() {
+		return null;
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		return fmg.getFontMetrics(f);
+	}
+
+	@Override
+	public void setXORMode(Color c1) {
+		// not supported by the SVG back ends
+	}
+
+	@Override
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+		// not supported by the SVG back ends
+	}
+
+	@Override
+	public void dispose() {
+		// the tiles are shared with the parent graphics
+	}
+}
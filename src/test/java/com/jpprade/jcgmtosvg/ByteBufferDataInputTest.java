@@ -0,0 +1,64 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufferDataInputTest {
+
+    private static byte[] sample() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(0xF0);
+        out.writeShort(0x8021);
+        out.writeInt(-123456);
+        out.writeDouble(1.5);
+        out.writeUTF("cgm");
+        out.write(new byte[]{1, 2, 3});
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testReadsLikeDataInputStream() throws IOException {
+        byte[] data = sample();
+        DataInputStream expected = new DataInputStream(new ByteArrayInputStream(data));
+        ByteBufferDataInput actual = new ByteBufferDataInput(ByteBuffer.wrap(data));
+
+        assertEquals(expected.readUnsignedByte(), actual.readUnsignedByte());
+        assertEquals(expected.readUnsignedShort(), actual.readUnsignedShort());
+        assertEquals(expected.readInt(), actual.readInt());
+        assertEquals(expected.readDouble(), actual.readDouble());
+        assertEquals(expected.readUTF(), actual.readUTF());
+        byte[] expectedBytes = new byte[3];
+        byte[] actualBytes = new byte[3];
+        expected.readFully(expectedBytes);
+        actual.readFully(actualBytes);
+        assertArrayEquals(expectedBytes, actualBytes);
+        assertThrows(EOFException.class, actual::readUnsignedByte);
+    }
+
+    @Test
+    void testShortReadThrowsEOFException() {
+        ByteBufferDataInput input = new ByteBufferDataInput(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+
+        assertThrows(EOFException.class, input::readInt);
+    }
+
+    @Test
+    void testSourceBufferIsNotModified() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0, 1, 2, 3});
+        buffer.position(2);
+        ByteBufferDataInput input = new ByteBufferDataInput(buffer);
+
+        assertEquals(0x0203, input.readShort());
+        assertEquals(2, buffer.position());
+    }
+}
@@ -50,7 +50,7 @@ class CGM4SVGTest {
         options.put("hotSpotEnabled", true);
         CGM4SVG newCgm4svg;
         newCgm4svg = new CGM4SVG(new ByteArrayInputStream(new byte[0]), mockPainter, options);
-        assertTrue((boolean) newCgm4svg.options.get("hotSpotEnabled"));
+        assertTrue(newCgm4svg.options.isHotSpotEnabled());
    }
 
    @Test
@@ -81,13 +81,15 @@ class CGM4SVGTest {
         Mockito.when(mockDisplay.getGraphics2D()).thenReturn(mockGraphics);
         Mockito.when(mockGraphics.getTransform()).thenReturn(mockTransform);
 
+        // options are parsed once, when the CGM is created
         options.put("hotSpotPadding", 10.0);
+        CGM4SVG paddedCgm4svg = new CGM4SVG(new ByteArrayInputStream(new byte[0]), mockPainter, options);
         Rectangle2D.Double shape = new Rectangle2D.Double(10, 20, 30, 40);
 
         Method method = CGM4SVG.class.getDeclaredMethod("addPadding", CGMDisplay.class, Rectangle2D.Double.class);
         method.setAccessible(true);
         
-        Rectangle2D.Double result = (Rectangle2D.Double) method.invoke(cgm4svg, mockDisplay, shape);
+        Rectangle2D.Double result = (Rectangle2D.Double) method.invoke(paddedCgm4svg, mockDisplay, shape);
 
         assertEquals(5, result.x);
         assertEquals(15, result.y);
@@ -0,0 +1,95 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CgmPicturesTest {
+
+    /**
+     * @return the command with a short or long form header and its padding
+     */
+    private static byte[] command(int elementClass, int elementId, byte[] parameters) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int header = elementClass << 12 | elementId << 5;
+        if (parameters.length < 31) {
+            header |= parameters.length;
+            out.write(header >> 8);
+            out.write(header & 0xFF);
+        } else {
+            header |= 31;
+            out.write(header >> 8);
+            out.write(header & 0xFF);
+            out.write(parameters.length >> 8);
+            out.write(parameters.length & 0xFF);
+        }
+        out.writeBytes(parameters);
+        if (parameters.length % 2 == 1) {
+            out.write(0);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static final byte[] HEADER = concat(command(0, 1, new byte[]{3, 'a', 'b', 'c'}), command(1, 1, new byte[]{0, 4}));
+
+    private static final byte[] END_METAFILE = command(0, 2, new byte[0]);
+
+    private static byte[] picture(byte name, byte[] body) {
+        return concat(command(0, 3, new byte[]{1, name}), command(0, 4, new byte[0]), body, command(0, 5, new byte[0]));
+    }
+
+    @Test
+    void testEveryPictureKeepsTheHeader() {
+        byte[] first = picture((byte) '1', command(4, 1, new byte[]{0, 1, 0, 2}));
+        // a long form parameter list holding the bytes of a BEGIN PICTURE header
+        byte[] parameters = new byte[40];
+        parameters[10] = 0x00;
+        parameters[11] = 0x60;
+        byte[] second = picture((byte) '2', command(4, 1, parameters));
+
+        List<ByteBuffer> pictures = CgmPictures.split(ByteBuffer.wrap(concat(HEADER, first, second, END_METAFILE)));
+
+        assertEquals(2, pictures.size());
+        assertArrayEquals(concat(HEADER, first, END_METAFILE), bytes(pictures.get(0)));
+        assertArrayEquals(concat(HEADER, second, END_METAFILE), bytes(pictures.get(1)));
+    }
+
+    @Test
+    void testSinglePictureIsNotCopied() {
+        ByteBuffer cgm = ByteBuffer.wrap(concat(HEADER, picture((byte) '1', new byte[0]), END_METAFILE));
+
+        List<ByteBuffer> pictures = CgmPictures.split(cgm);
+
+        assertEquals(1, pictures.size());
+        assertSame(cgm, pictures.get(0));
+    }
+
+    @Test
+    void testTruncatedCommandFails() {
+        byte[] cgm = concat(HEADER, picture((byte) '1', new byte[0]), picture((byte) '2', new byte[0]));
+        byte[] truncated = Arrays.copyOf(cgm, cgm.length + 2);
+        truncated[cgm.length] = 0x40;
+        truncated[cgm.length + 1] = 0x04;
+
+        assertThrows(JcgmToSvgException.class, () -> CgmPictures.split(ByteBuffer.wrap(truncated)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class ConversionCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private JcgmToSvgConverter converter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        converter = Mockito.mock(JcgmToSvgConverter.class);
+        Mockito.when(converter.getOptions()).thenReturn(ConversionOptions.DEFAULT);
+        // the "SVG" is the CGM bytes repeated twice
+        Mockito.doAnswer(invocation -> {
+            ByteBuffer cgm = invocation.getArgument(0);
+            OutputStream os = invocation.getArgument(1);
+            byte[] bytes = new byte[cgm.remaining()];
+            cgm.duplicate().get(bytes);
+            os.write(bytes);
+            os.write(bytes);
+            return null;
+        }).when(converter).convert(any(ByteBuffer.class), any(OutputStream.class));
+    }
+
+    private static String convert(ConversionCache cache, String cgm) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        cache.convert(new ByteArrayInputStream(cgm.getBytes(StandardCharsets.UTF_8)), os);
+        return os.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testRepeatedConversionIsServedFromTheCache() throws IOException {
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+
+        assertEquals("abab", convert(cache, "ab"));
+        assertEquals("abab", convert(cache, "ab"));
+        assertEquals("cdcd", convert(cache, "cd"));
+
+        Mockito.verify(converter, Mockito.times(2)).convert(any(ByteBuffer.class), any(OutputStream.class));
+        ConversionCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(2, stats.entries());
+        assertEquals(8, stats.size());
+    }
+
+    @Test
+    void testOptionsArePartOfTheKey() throws IOException {
+        convert(new ConversionCache(converter, cacheDir, 1024), "ab");
+        Mockito.when(converter.getOptions()).thenReturn(ConversionOptions.builder().hotSpotEnabled(true).build());
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+
+        convert(cache, "ab");
+
+        assertEquals(0, cache.getStats().hits());
+        assertEquals(2, cache.getStats().entries());
+    }
+
+    @Test
+    void testOptionsNotChangingTheSvgAreNotPartOfTheKey() throws IOException {
+        convert(new ConversionCache(converter, cacheDir, 1024), "ab");
+        Mockito.when(converter.getOptions()).thenReturn(ConversionOptions.builder().memoryMappedInput(true).thumbnailSize(64).build());
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+
+        assertEquals("abab", convert(cache, "ab"));
+
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(1, cache.getStats().entries());
+    }
+
+    @Test
+    void testEntriesOfAnotherConverterVersionAreNotServed() throws IOException {
+        ByteBuffer cgm = ByteBuffer.wrap("ab".getBytes(StandardCharsets.UTF_8));
+        String staleKey = Digests.sha256(cgm, ConversionCache.converterKey("0.9", ConversionOptions.DEFAULT));
+        Files.writeString(cacheDir.resolve(staleKey + ".svg"), "stale");
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+
+        assertEquals("abab", convert(cache, "ab"));
+
+        assertEquals(0, cache.getStats().hits());
+        assertEquals(2, cache.getStats().entries());
+    }
+
+    @Test
+    void testDeletedEntryIsConvertedAgainOnce() throws IOException {
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+        convert(cache, "ab");
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+
+        assertEquals("abab", convert(cache, "ab"));
+
+        Mockito.verify(converter, Mockito.times(2)).convert(any(ByteBuffer.class), any(OutputStream.class));
+        ConversionCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.entries());
+        assertEquals(0, stats.hits());
+        assertEquals(2, stats.misses());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() throws IOException {
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 12);
+
+        convert(cache, "aa");
+        convert(cache, "bb");
+        convert(cache, "cc");
+        convert(cache, "aa");
+        convert(cache, "dd");
+
+        ConversionCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.evictions());
+        assertEquals(3, stats.entries());
+        assertEquals(12, stats.size());
+        convert(cache, "aa");
+        assertEquals(2, cache.getStats().hits());
+        convert(cache, "bb");
+        assertEquals(2, cache.getStats().hits());
+    }
+
+    @Test
+    void testEntriesAreReloaded() throws IOException {
+        convert(new ConversionCache(converter, cacheDir, 1024), "ab");
+
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+
+        assertEquals(1, cache.getStats().entries());
+        assertEquals("abab", convert(cache, "ab"));
+        assertEquals(1, cache.getStats().hits());
+    }
+
+    @Test
+    void testFailedConversionIsNotCached() throws IOException {
+        Mockito.doThrow(new JcgmToSvgException("Invalid CGM input stream: "))
+                .when(converter).convert(any(ByteBuffer.class), any(OutputStream.class));
+        ConversionCache cache = new ConversionCache(converter, cacheDir, 1024);
+
+        assertThrows(JcgmToSvgException.class, () -> convert(cache, "ab"));
+
+        assertEquals(0, cache.getStats().entries());
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionListenerTest {
+
+    /**
+     * Records the callbacks in the order they are received.
+     */
+    private static class RecordingListener implements ConversionListener {
+
+        private final List<Object> events = new ArrayList<>();
+
+        private ConversionMetrics metrics;
+
+        @Override
+        public void phaseCompleted(Phase phase, Duration duration) {
+            assertFalse(duration.isNegative());
+            events.add(phase);
+        }
+
+        @Override
+        public void conversionCompleted(ConversionMetrics metrics) {
+            this.metrics = metrics;
+            events.add(metrics);
+        }
+    }
+
+    /**
+     * @return a reader of an empty CGM of 200x100
+     */
+    private static JcgmToSvgConverter.CgmReader emptyCgm(ConversionOptions options) {
+        return painter -> {
+            CGM4SVG cgm = Mockito.spy(new CGM4SVG(new ByteArrayInputStream(new byte[0]), painter, options));
+            Mockito.doReturn(new Dimension(200, 100)).when(cgm).getSize();
+            return cgm;
+        };
+    }
+
+    @Test
+    void testPhasesThenMetricsOfTheDomOutput() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        JcgmToSvgConverter converter = new JcgmToSvgConverter(ConversionOptions.DEFAULT, listener);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        converter.convert(emptyCgm(ConversionOptions.DEFAULT), os);
+
+        assertEquals(List.of(ConversionListener.Phase.PARSE, ConversionListener.Phase.PAINT, ConversionListener.Phase.CANVAS,
+                ConversionListener.Phase.SERIALIZE, listener.metrics), listener.events);
+        assertEquals(List.of(ConversionListener.Phase.PARSE, ConversionListener.Phase.PAINT, ConversionListener.Phase.CANVAS,
+                ConversionListener.Phase.SERIALIZE), List.copyOf(listener.metrics.phaseDurations().keySet()));
+        assertEquals(os.size(), listener.metrics.outputBytes());
+        assertEquals(0, listener.metrics.hotSpotCount());
+        assertTrue(listener.metrics.commandCounts().isEmpty());
+        // svg, defs, style, script and the top level group
+        assertEquals(5, listener.metrics.elementCount());
+    }
+
+    @Test
+    void testPhasesThenMetricsOfTheStreamingOutput() throws Exception {
+        ConversionOptions options = ConversionOptions.builder().streamingOutput(true).build();
+        RecordingListener listener = new RecordingListener();
+        JcgmToSvgConverter converter = new JcgmToSvgConverter(options, listener);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        converter.convert(emptyCgm(options), os);
+
+        assertEquals(List.of(ConversionListener.Phase.PARSE, ConversionListener.Phase.PAINT,
+                ConversionListener.Phase.SERIALIZE, listener.metrics), listener.events);
+        assertEquals(os.size(), listener.metrics.outputBytes());
+        assertEquals(5, listener.metrics.elementCount());
+    }
+
+    @Test
+    void testFailedConversionIsNotCompleted() {
+        RecordingListener listener = new RecordingListener();
+        JcgmToSvgConverter converter = new JcgmToSvgConverter(ConversionOptions.DEFAULT, listener);
+
+        assertThrows(JcgmToSvgException.class,
+                () -> converter.convert(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream()));
+
+        assertNull(listener.metrics);
+        assertFalse(listener.events.contains(ConversionListener.Phase.SERIALIZE));
+    }
+
+    @Test
+    void testFailingListenerDoesNotFailTheConversion() throws Exception {
+        List<ConversionMetrics> completed = new ArrayList<>();
+        ConversionListener listener = new ConversionListener() {
+            @Override
+            public void phaseCompleted(Phase phase, Duration duration) {
+                throw new IllegalStateException("listener failure");
+            }
+
+            @Override
+            public void conversionCompleted(ConversionMetrics metrics) {
+                completed.add(metrics);
+            }
+        };
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        new JcgmToSvgConverter(ConversionOptions.DEFAULT, listener).convert(emptyCgm(ConversionOptions.DEFAULT), os);
+
+        assertTrue(os.size() > 0);
+        assertEquals(1, completed.size());
+        assertEquals(4, completed.get(0).phaseDurations().size());
+    }
+}
@@ -0,0 +1,54 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ConversionManifest.Entry entry(String input) {
+        return new ConversionManifest.Entry(input, 3, 1000, "abc", "def", "1.0", input + ".svg", 42);
+    }
+
+    @Test
+    void testEntriesAreReadBack() throws IOException {
+        Path file = tempDir.resolve("manifest");
+        try (ConversionManifest manifest = ConversionManifest.open(file)) {
+            manifest.put(entry("a.cgm"));
+            manifest.put(entry("tab\tin name.cgm"));
+            manifest.put(entry("b.cgm"));
+            manifest.remove("b.cgm");
+        }
+
+        try (ConversionManifest manifest = ConversionManifest.open(file)) {
+            assertEquals(Set.of("a.cgm", "tab\tin name.cgm"), manifest.inputs());
+            assertEquals(entry("tab\tin name.cgm"), manifest.get("tab\tin name.cgm"));
+        }
+    }
+
+    @Test
+    void testInterruptedRunKeepsTheCompletedEntries() throws IOException {
+        Path file = tempDir.resolve("manifest");
+        ConversionManifest interrupted = ConversionManifest.open(file);
+        interrupted.put(entry("a.cgm"));
+        // the process is killed while appending the next entry, close() is never called
+        Files.writeString(file, "b.cgm\t3\t10", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (ConversionManifest manifest = ConversionManifest.open(file)) {
+            assertEquals(Set.of("a.cgm"), manifest.inputs());
+            assertEquals(entry("a.cgm"), manifest.get("a.cgm"));
+        }
+        assertFalse(Files.readString(file).contains("b.cgm"));
+    }
+}
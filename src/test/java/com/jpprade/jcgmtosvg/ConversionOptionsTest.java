@@ -0,0 +1,120 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionOptionsTest {
+
+    @Test
+    void testFromMap() {
+        Map<String, Object> options = new HashMap<>();
+        options.put(ConversionOptions.OPTION_HOTSPOT_ENABLED, true);
+        options.put(ConversionOptions.OPTION_HOTSPOT_IN_APPLICATION_STRUCTURE_ONLY, "true");
+        options.put(ConversionOptions.OPTION_HOTSPOT_PADDING, 2);
+        options.put(ConversionOptions.OPTION_HOTSPOT_REGEX, "A[0-9]+");
+        options.put(ConversionOptions.OPTION_HOTSPOT_COLOR, "rgba(255, 0, 0, 0.5)");
+        options.put(ConversionOptions.OPTION_COMPRESSED_OUTPUT, true);
+        options.put(ConversionOptions.OPTION_COMPRESSION_LEVEL, "9");
+        options.put(ConversionOptions.OPTION_SIMPLIFICATION_TOLERANCE, 0.25);
+        options.put(ConversionOptions.OPTION_HATCH_PATTERNS, "true");
+        options.put(ConversionOptions.OPTION_STYLE_CLASSES, true);
+        options.put(ConversionOptions.OPTION_DISPLAY_RESOLUTION, "4096");
+        options.put(ConversionOptions.OPTION_QUANTIZED_COORDINATES, true);
+        options.put(ConversionOptions.OPTION_COMPACT_PATH_DATA, "true");
+        options.put(ConversionOptions.OPTION_SYMBOL_INSTANCING, true);
+        options.put(ConversionOptions.OPTION_TILE_SIZE, 256);
+        options.put(ConversionOptions.OPTION_TILE_LEVELS, "3");
+        options.put(ConversionOptions.OPTION_THUMBNAIL_SIZE, 128);
+        options.put(ConversionOptions.OPTION_HOTSPOTS_ON_TOP, true);
+        options.put(ConversionOptions.OPTION_FLATTEN_TRANSFORMS, "true");
+        options.put(ConversionOptions.OPTION_MEMORY_MAPPED_INPUT, true);
+
+        ConversionOptions parsed = ConversionOptions.fromMap(options);
+
+        assertTrue(parsed.isHotSpotEnabled());
+        assertTrue(parsed.isHotSpotInApplicationStructureOnly());
+        assertEquals(2.0, parsed.getHotSpotPadding());
+        assertTrue(parsed.getHotSpotRegex().matcher("A12").matches());
+        assertFalse(parsed.getHotSpotRegex().matcher("A12B").matches());
+        assertNull(parsed.getHotSpotLink());
+        assertEquals("rgba(255, 0, 0, 0.5)", parsed.getHotSpotColor());
+        assertFalse(parsed.isStreamingOutput());
+        assertTrue(parsed.isCompressedOutput());
+        assertEquals(9, parsed.getCompressionLevel());
+        assertEquals(0.25, parsed.getSimplificationTolerance());
+        assertTrue(parsed.isHatchPatterns());
+        assertTrue(parsed.isStyleClasses());
+        assertEquals(4096, parsed.getDisplayResolution());
+        assertTrue(parsed.isQuantizedCoordinates());
+        assertTrue(parsed.isCompactPathData());
+        assertTrue(parsed.isSymbolInstancing());
+        assertEquals(256, parsed.getTileSize());
+        assertEquals(3, parsed.getTileLevels());
+        assertEquals(128, parsed.getThumbnailSize());
+        assertTrue(parsed.isHotSpotsOnTop());
+        assertTrue(parsed.isFlattenTransforms());
+        assertTrue(parsed.isMemoryMappedInput());
+    }
+
+    @Test
+    void testFromNullMapIsDefault() {
+        ConversionOptions parsed = ConversionOptions.fromMap(null);
+
+        assertFalse(parsed.isHotSpotEnabled());
+        assertNull(parsed.getHotSpotPadding());
+        assertNull(parsed.getHotSpotRegex());
+        assertEquals(512, parsed.getTileSize());
+        assertNull(parsed.getTileLevels());
+        assertFalse(parsed.isMemoryMappedInput());
+    }
+
+    @Test
+    void testInvalidOptionsFailWhenBuilt() {
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.fromMap(Map.of(ConversionOptions.OPTION_HOTSPOT_ENABLED, 1)));
+        assertThrows(PatternSyntaxException.class,
+                () -> ConversionOptions.builder().hotSpotRegex("[").build());
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.builder().compressionLevel(10).build());
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.builder().simplificationTolerance(-1.0).build());
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.builder().displayResolution(0).build());
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.builder().tileSize(0).build());
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.builder().tileLevels(0).build());
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.builder().thumbnailSize(-1).build());
+    }
+
+    @Test
+    void testOutputKeyOnlyDependsOnTheOptionsChangingTheSvg() {
+        String key = ConversionOptions.DEFAULT.outputKey();
+
+        assertEquals(key, ConversionOptions.builder().memoryMappedInput(true).thumbnailSize(64)
+                .tileSize(256).tileLevels(3).build().outputKey());
+        assertNotEquals(key, ConversionOptions.builder().streamingOutput(true).build().outputKey());
+        assertNotEquals(key, ConversionOptions.builder().simplificationTolerance(0.5).build().outputKey());
+    }
+
+    @Test
+    void testHotSpotColorIsValidatedWhenSet() {
+        assertEquals("#00ff0080", ConversionOptions.builder().hotSpotColor(" #00ff0080 ").build().getHotSpotColor());
+        assertEquals("red", ConversionOptions.builder().hotSpotColor("red").build().getHotSpotColor());
+        assertEquals("hsla(120, 100%, 50%, 0.3)",
+                ConversionOptions.builder().hotSpotColor("hsla(120, 100%, 50%, 0.3)").build().getHotSpotColor());
+
+        ConversionOptions.Builder builder = ConversionOptions.builder();
+        assertThrows(JcgmToSvgException.class, () -> builder.hotSpotColor("red;stroke:blue"));
+        assertThrows(JcgmToSvgException.class, () -> builder.hotSpotColor("#12345"));
+        assertThrows(JcgmToSvgException.class, () -> builder.hotSpotColor("rgba(0,0,0,1)'"));
+        assertThrows(JcgmToSvgException.class,
+                () -> ConversionOptions.fromMap(Map.of(ConversionOptions.OPTION_HOTSPOT_COLOR, "url(#a)")));
+    }
+}
@@ -0,0 +1,98 @@
+package com.jpprade.jcgmtosvg;
+
+import com.jpprade.jcgmtosvg.extension.HotSpot;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotSpotIndexTest {
+
+    private static List<HotSpot> randomHotSpots(int count) {
+        Random random = new Random(42);
+        List<HotSpot> hotSpots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Rectangle2D.Double bounds = new Rectangle2D.Double(random.nextDouble() * 1000, random.nextDouble() * 1000,
+                    random.nextDouble() * 20, random.nextDouble() * 20);
+            HotSpot.Type type = i % 5 == 0 ? HotSpot.Type.TDET : HotSpot.Type.HOTSPOT;
+            hotSpots.add(new HotSpot(type, "rt_" + i, "aps" + i, "name " + i, bounds));
+        }
+        return hotSpots;
+    }
+
+    private static double distance(HotSpot hotSpot, double x, double y) {
+        Rectangle2D b = hotSpot.bounds();
+        double dx = Math.max(0, Math.max(b.getMinX() - x, x - b.getMaxX()));
+        double dy = Math.max(0, Math.max(b.getMinY() - y, y - b.getMaxY()));
+        return Math.hypot(dx, dy);
+    }
+
+    @Test
+    void testQueriesMatchALinearScan() {
+        List<HotSpot> hotSpots = randomHotSpots(1000);
+        HotSpotIndex index = HotSpotIndex.build(hotSpots);
+        Random random = new Random(7);
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            Rectangle2D.Double area = new Rectangle2D.Double(x, y, 50, 30);
+
+            assertEquals(new HashSet<>(hotSpots.stream().filter(h -> h.bounds().contains(x, y)).toList()),
+                    new HashSet<>(index.at(x, y)));
+            assertEquals(new HashSet<>(hotSpots.stream().filter(h -> h.bounds().intersects(area)).toList()),
+                    new HashSet<>(index.search(area)));
+
+            List<HotSpot> nearest = index.nearest(x, y, 5);
+            List<Double> expected = hotSpots.stream().map(h -> distance(h, x, y)).sorted().limit(5).toList();
+            assertEquals(expected, nearest.stream().map(h -> distance(h, x, y)).toList());
+        }
+    }
+
+    @Test
+    void testSmallAndEmptyIndexes() {
+        HotSpotIndex empty = HotSpotIndex.build(List.of());
+        assertTrue(empty.at(0, 0).isEmpty());
+        assertTrue(empty.nearest(0, 0, 3).isEmpty());
+
+        HotSpot hotSpot = new HotSpot(HotSpot.Type.HOTSPOT, "rt_0", "A1", "A1", new Rectangle2D.Double(10, 10, 5, 5));
+        HotSpotIndex single = HotSpotIndex.build(List.of(hotSpot));
+        assertEquals(List.of(hotSpot), single.at(15, 15));
+        assertTrue(single.at(16, 15).isEmpty());
+        assertEquals(List.of(hotSpot), single.nearest(0, 0, 3));
+    }
+
+    @Test
+    void testWriteAndRead() throws IOException {
+        List<HotSpot> hotSpots = randomHotSpots(100);
+        HotSpotIndex index = HotSpotIndex.build(hotSpots);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        index.write(bytes);
+        HotSpotIndex read = HotSpotIndex.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(index.size(), read.size());
+        Rectangle2D.Double all = new Rectangle2D.Double(0, 0, 2000, 2000);
+        Comparator<HotSpot> byId = Comparator.comparing(HotSpot::id);
+        assertEquals(hotSpots.stream().sorted(byId).toList(), read.search(all).stream().sorted(byId).toList());
+        assertEquals(index.nearest(500, 500, 10), read.nearest(500, 500, 10));
+        assertThrows(IOException.class, () -> HotSpotIndex.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})));
+    }
+
+    @Test
+    void testSidecar() {
+        assertEquals(Path.of("out", "figure.hsi"), HotSpotIndex.sidecar(Path.of("out", "figure.svgz")));
+        assertEquals(Path.of("figure.hsi"), HotSpotIndex.sidecar(Path.of("figure")));
+    }
+}
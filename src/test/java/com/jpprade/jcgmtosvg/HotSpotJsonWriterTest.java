@@ -0,0 +1,39 @@
+package com.jpprade.jcgmtosvg;
+
+import com.jpprade.jcgmtosvg.extension.HotSpot;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Dimension;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotSpotJsonWriterTest {
+
+    @Test
+    void testHotSpotJson() throws IOException {
+        List<HotSpot> hotSpots = List.of(
+                new HotSpot(HotSpot.Type.HOTSPOT, "rt_0", "A\"1", "A\"1", new Rectangle2D.Double(1.5, 2, 3, 4)),
+                new HotSpot(HotSpot.Type.TDET, "", "B", "name", new Rectangle2D.Double(0, 0, 1, 1)));
+        StringWriter out = new StringWriter();
+
+        HotSpotJsonWriter.write(new Dimension(800, 600), hotSpots, out);
+
+        assertEquals("{\"width\":800,\"height\":600,\"hotspots\":["
+                + "{\"type\":\"hotspot\",\"id\":\"rt_0\",\"apsid\":\"A\\\"1\",\"apsname\":\"A\\\"1\",\"x\":1.5,\"y\":2.0,\"width\":3.0,\"height\":4.0},"
+                + "{\"type\":\"tdet\",\"id\":\"\",\"apsid\":\"B\",\"apsname\":\"name\",\"x\":0.0,\"y\":0.0,\"width\":1.0,\"height\":1.0}]}",
+                out.toString());
+    }
+
+    @Test
+    void testNoHotSpots() throws IOException {
+        StringWriter out = new StringWriter();
+
+        HotSpotJsonWriter.write(new Dimension(10, 20), List.of(), out);
+
+        assertEquals("{\"width\":10,\"height\":20,\"hotspots\":[]}", out.toString());
+    }
+}
@@ -0,0 +1,66 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JcgmToSvgConverterTest {
+
+    /**
+     * @return a reader of an empty CGM of 200x100
+     */
+    private static JcgmToSvgConverter.CgmReader emptyCgm(ConversionOptions options) {
+        return painter -> {
+            CGM4SVG cgm = Mockito.spy(new CGM4SVG(new ByteArrayInputStream(new byte[0]), painter, options));
+            Mockito.doReturn(new Dimension(200, 100)).when(cgm).getSize();
+            return cgm;
+        };
+    }
+
+    private static Document gunzip(byte[] svgz) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(svgz))) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            // the DOM output has the SVG 1.0 doctype
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            return factory.newDocumentBuilder().parse(in);
+        }
+    }
+
+    @Test
+    void testCompressedOutputIsAGzippedSvg() throws Exception {
+        ConversionOptions options = ConversionOptions.builder().compressedOutput(true).compressionLevel(9).build();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        new JcgmToSvgConverter(options).convert(emptyCgm(options), os);
+
+        Document svg = gunzip(os.toByteArray());
+        assertEquals("svg", svg.getDocumentElement().getLocalName());
+        assertEquals("200", svg.getDocumentElement().getAttribute("width"));
+    }
+
+    @Test
+    void testCompressedStreamingOutputIsAGzippedSvg() throws Exception {
+        ConversionOptions options = ConversionOptions.builder().compressedOutput(true).streamingOutput(true).build();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        new JcgmToSvgConverter(options).convert(emptyCgm(options), os);
+
+        Document svg = gunzip(os.toByteArray());
+        assertEquals("svg", svg.getDocumentElement().getLocalName());
+    }
+
+    @Test
+    void testOutputExtension() {
+        assertEquals(".svg", new JcgmToSvgConverter().outputExtension());
+        assertEquals(".svgz", new JcgmToSvgConverter(ConversionOptions.builder().compressedOutput(true).build()).outputExtension());
+    }
+}
@@ -4,7 +4,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,4 +34,70 @@ class JcgmToSvgTest {
         
         assertThrows(JcgmToSvgException.class, () -> JcgmToSvg.convert(inputFile.getAbsolutePath(), outputDir.getAbsolutePath()));
     }
+
+    @Test
+    void testConvertFileReportsMissingInput(@TempDir Path tempDir) {
+        File inputFile = new File(tempDir.toFile(), "missing.cgm");
+
+        assertThrows(NoSuchFileException.class, () -> JcgmToSvg.convert(inputFile.getAbsolutePath(), tempDir.toString()));
+    }
+
+    @Test
+    void testConvertAllReportsFailuresWithoutStopping(@TempDir Path tempDir) throws IOException {
+        Path inputDir = Files.createDirectory(tempDir.resolve("cgm"));
+        Path outputDir = Files.createDirectory(tempDir.resolve("svg"));
+        Files.write(inputDir.resolve("a.cgm"), new byte[]{0x00, 0x01, 0x02});
+        Files.write(inputDir.resolve("b.CGM"), new byte[]{0x00, 0x01, 0x02});
+        Files.write(inputDir.resolve("notes.txt"), new byte[]{0x00});
+
+        List<ConversionResult> results = JcgmToSvg.convertAll(inputDir, outputDir, new HashMap<>(), 2);
+
+        assertEquals(2, results.size());
+        assertEquals(inputDir.resolve("a.cgm"), results.get(0).input());
+        for (ConversionResult result : results) {
+            assertEquals(ConversionResult.Status.FAILED, result.status());
+            assertNotNull(result.error());
+        }
+        try (Stream<Path> outputs = Files.list(outputDir)) {
+            assertEquals(0, outputs.count());
+        }
+    }
+
+    @Test
+    void testExtractHotSpotsWithInvalidInputStream() {
+        InputStream invalidStream = new ByteArrayInputStream(new byte[]{});
+        assertThrows(JcgmToSvgException.class, () -> JcgmToSvg.extractHotSpots(invalidStream, new HashMap<>()));
+    }
+
+    @Test
+    void testConvertIncrementalSkipsUpToDateAndDeletesRemoved(@TempDir Path tempDir) throws IOException {
+        Path inputDir = Files.createDirectory(tempDir.resolve("cgm"));
+        Path outputDir = Files.createDirectory(tempDir.resolve("svg"));
+        Path manifestFile = tempDir.resolve("manifest");
+        Path input = Files.write(inputDir.resolve("a.cgm"), new byte[]{0x00, 0x01, 0x02});
+        Files.writeString(outputDir.resolve("a.svg"), "<svg/>");
+        Files.writeString(outputDir.resolve("removed.svg"), "<svg/>");
+        String optionsHash = Digests.sha256(ConversionOptions.DEFAULT.outputKey());
+        try (ConversionManifest manifest = ConversionManifest.open(manifestFile)) {
+            manifest.put(new ConversionManifest.Entry("a.cgm", 0, 0, Digests.sha256(input), optionsHash,
+                    JcgmToSvgConverter.VERSION, "a.svg", 6));
+            manifest.put(new ConversionManifest.Entry("removed.cgm", 3, 0, "0", optionsHash,
+                    JcgmToSvgConverter.VERSION, "removed.svg", 6));
+        }
+
+        // reading the CGMs differently does not change the SVGs
+        HashMap<String, Object> options = new HashMap<>();
+        options.put(ConversionOptions.OPTION_MEMORY_MAPPED_INPUT, true);
+        List<ConversionResult> results = JcgmToSvg.convertIncremental(inputDir, outputDir, manifestFile, options, 2);
+
+        assertEquals(1, results.size());
+        assertEquals(ConversionResult.Status.SKIPPED, results.get(0).status());
+        assertTrue(Files.exists(outputDir.resolve("a.svg")));
+        assertFalse(Files.exists(outputDir.resolve("removed.svg")));
+        try (ConversionManifest manifest = ConversionManifest.open(manifestFile)) {
+            assertEquals(Set.of("a.cgm"), manifest.inputs());
+            // the size and modification time are recorded, the CGM is not hashed again by the next run
+            assertEquals(3, manifest.get("a.cgm").inputSize());
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SVGUtilsTest {
+
+    private static final String SVG = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"100\" height=\"100\">"
+            + "<g style=\"stroke-width:1\" transform=\"matrix(2,0,0,2,10,0)\">"
+            + "<path d=\"M0 0 L1 1 Z\" style=\"stroke-width:0.5\"/>"
+            + "<rect x=\"1\" y=\"1\" width=\"2\" height=\"3\"/>"
+            + "<circle cx=\"1\" cy=\"2\" r=\"1\"/>"
+            + "<text x=\"1\" y=\"1\" style=\"font-size:4\">a &amp; b</text>"
+            + "</g>"
+            + "<rect x=\"1\" y=\"1\" width=\"2\" height=\"3\"/>"
+            + "</svg>";
+
+    private static Document parse(String svg) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(svg)));
+    }
+
+    private static final String NESTED = "<svg xmlns=\"http://www.w3.org/2000/svg\"><g transform=\"translate(10,0)\">"
+            + "<g transform=\"scale(2,2)\"><rect x=\"1\" y=\"1\" width=\"2\" height=\"2\"/></g>"
+            + "<rect x=\"1\" y=\"1\" width=\"2\" height=\"2\"/><path d=\"M0 0 L1 1\"/></g></svg>";
+
+    private static String streaming(String svg) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SVGUtils().applyTransformation(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the SVG with its transforms applied by the DOM version, after checking the streaming version gives the
+     * same coordinates and styles
+     */
+    private static Document assertStreamingMatchesTheDomVersion(Path directory, String svg) throws Exception {
+        Path source = directory.resolve("source.svg");
+        Path destination = directory.resolve("destination.svg");
+        Files.writeString(source, svg);
+        new SVGUtils().applyTransformation(source.toFile(), destination.toFile());
+
+        Document expected = parse(Files.readString(destination));
+        Document actual = parse(streaming(svg));
+
+        for (String tag : new String[]{"g", "path", "rect", "circle", "text"}) {
+            assertEquals(expected.getElementsByTagName(tag).getLength(), actual.getElementsByTagName(tag).getLength(), tag);
+            for (int i = 0; i < expected.getElementsByTagName(tag).getLength(); i++) {
+                Element expectedElement = (Element) expected.getElementsByTagName(tag).item(i);
+                Element actualElement = (Element) actual.getElementsByTagName(tag).item(i);
+                for (String attribute : new String[]{"d", "x", "y", "width", "height", "cx", "cy", "r", "style", "transform"}) {
+                    assertEquals(expectedElement.getAttribute(attribute), actualElement.getAttribute(attribute), tag + " " + i + " " + attribute);
+                }
+            }
+        }
+        return actual;
+    }
+
+    @Test
+    void testStreamingMatchesTheDomVersion(@TempDir Path directory) throws Exception {
+        Document actual = assertStreamingMatchesTheDomVersion(directory, SVG);
+
+        assertEquals("M10.0000 0.0000 L12.0000 2.0000 Z", ((Element) actual.getElementsByTagName("path").item(0)).getAttribute("d"));
+        assertEquals("a & b", actual.getElementsByTagName("text").item(0).getTextContent());
+        Element g = (Element) actual.getElementsByTagName("g").item(0);
+        assertFalse(g.hasAttribute("transform"));
+        assertEquals("stroke-width:2.0000", g.getAttribute("style"));
+
+        Document nested = assertStreamingMatchesTheDomVersion(directory, NESTED);
+
+        assertEquals("12.0000", ((Element) nested.getElementsByTagName("rect").item(0)).getAttribute("x"));
+        assertEquals("11.0000", ((Element) nested.getElementsByTagName("rect").item(1)).getAttribute("x"));
+        assertEquals("M10.0000 0.0000 L11.0000 1.0000", ((Element) nested.getElementsByTagName("path").item(0)).getAttribute("d"));
+    }
+
+    @Test
+    void testTransformOnlyAppliesToTheDescendants() throws Exception {
+        Document actual = parse(streaming(SVG));
+
+        Element outside = (Element) actual.getElementsByTagName("rect").item(1);
+        assertEquals("1", outside.getAttribute("x"));
+        assertEquals("3", outside.getAttribute("height"));
+    }
+
+    @Test
+    void testDoctypeIsKeptWithoutLoadingTheDtd() throws Exception {
+        String svg = "<!DOCTYPE svg PUBLIC '-//W3C//DTD SVG 1.0//EN' 'http://invalid.example/svg10.dtd'>" + SVG.substring(SVG.indexOf("<svg"));
+
+        String actual = streaming(svg);
+
+        assertTrue(actual.contains("<!DOCTYPE svg"), actual);
+        assertTrue(actual.contains("M10.0000 0.0000"), actual);
+    }
+
+    @Test
+    void testHotspotsAreMovedToTheLastGroupWithTheSameTransform() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(
+                "<svg xmlns=\"http://www.w3.org/2000/svg\"><g>"
+                        + "<g transform=\"scale(2,2)\"><rect class=\"hotspot\"/><path/></g>"
+                        + "<g transform=\"scale(3,3)\"><path/></g>"
+                        + "<g transform=\"scale(2,2)\"><path/></g>"
+                        + "</g></svg>")));
+        Element root = doc.getDocumentElement();
+
+        assertEquals(1, new SVGUtils().moveHotspotToRightLayer(root));
+
+        Element hotspot = (Element) doc.getElementsByTagNameNS("*", "rect").item(0);
+        Element last = (Element) root.getFirstChild().getLastChild();
+        assertSame(last, hotspot.getParentNode());
+        assertSame(hotspot, last.getLastChild());
+    }
+
+    @Test
+    void testHotspotTransformsAreMatchedIgnoringCase() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(
+                "<svg xmlns=\"http://www.w3.org/2000/svg\"><g>"
+                        + "<g transform=\"matrix(1,0,0,1,0,0)\"><rect class=\"hotspot\" id=\"a\"/></g>"
+                        + "<g transform=\"MATRIX(1,0,0,1,0,0)\"><path/></g>"
+                        + "<g transform=\"scale(2,2)\"><rect class=\"hotspot\" id=\"b\"/></g>"
+                        + "<g transform=\"scale(3,3)\"><path/></g>"
+                        + "</g></svg>")));
+        Element root = doc.getDocumentElement();
+
+        assertEquals(2, new SVGUtils().moveHotspotToRightLayer(root));
+
+        Element groups = (Element) root.getFirstChild();
+        Element a = (Element) doc.getElementsByTagNameNS("*", "rect").item(0);
+        Element b = (Element) doc.getElementsByTagNameNS("*", "rect").item(1);
+        assertSame(groups.getChildNodes().item(1), a.getParentNode());
+        assertSame(groups.getChildNodes().item(2), b.getParentNode());
+    }
+
+    @Test
+    void testNestedTransformsAreMultiplied() throws Exception {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><g transform=\"translate(10,0)\">"
+                + "<g transform=\"scale(2,2)\"><rect x=\"1\" y=\"1\" width=\"2\" height=\"2\"/></g>"
+                + "<rect x=\"1\" y=\"1\" width=\"2\" height=\"2\"/></g></svg>";
+
+        Document actual = parse(streaming(svg));
+
+        Element scaled = (Element) actual.getElementsByTagName("rect").item(0);
+        assertEquals("12.0000", scaled.getAttribute("x"));
+        assertEquals("4.0000", scaled.getAttribute("width"));
+        Element translated = (Element) actual.getElementsByTagName("rect").item(1);
+        assertEquals("11.0000", translated.getAttribute("x"));
+        assertEquals("2.0000", translated.getAttribute("width"));
+    }
+}
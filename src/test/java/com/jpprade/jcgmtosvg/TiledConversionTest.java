@@ -0,0 +1,59 @@
+package com.jpprade.jcgmtosvg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiledConversionTest {
+
+    @Test
+    void testTileFilesAreClosedBeyondTheLimitAndAppendedWhenReopened(@TempDir Path directory) throws IOException {
+        Path a = directory.resolve("0_0.svg");
+        Path b = directory.resolve("1_0.svg");
+        Path c = directory.resolve("0_1.svg");
+        // left by a previous run
+        Files.writeString(a, "old");
+
+        try (TiledConversion.TileFiles files = new TiledConversion.TileFiles(2)) {
+            Writer tileA = files.writer(a);
+            Writer tileB = files.writer(b);
+            Writer tileC = files.writer(c);
+            assertEquals(0, files.openCount());
+
+            tileA.write("a1");
+            tileB.write("b1");
+            tileC.write("c1");
+            assertEquals(2, files.openCount());
+            // the least recently written tile was closed
+            assertEquals("a1", Files.readString(a));
+
+            tileA.write("a2");
+            tileB.write("b2");
+            tileC.flush();
+            assertEquals(2, files.openCount());
+        }
+
+        assertEquals("a1a2", Files.readString(a));
+        assertEquals("b1b2", Files.readString(b));
+        assertEquals("c1", Files.readString(c));
+    }
+
+    @Test
+    void testClosedTileIsNoLongerOpen(@TempDir Path directory) throws IOException {
+        try (TiledConversion.TileFiles files = new TiledConversion.TileFiles(1)) {
+            Writer tile = files.writer(directory.resolve("0_0.svg"));
+            tile.write("<svg/>");
+            tile.close();
+
+            assertEquals(0, files.openCount());
+        }
+        assertEquals("<svg/>", Files.readString(directory.resolve("0_0.svg")));
+        assertThrows(JcgmToSvgException.class, () -> new TiledConversion.TileFiles(0));
+    }
+}
@@ -0,0 +1,64 @@
+package com.jpprade.jcgmtosvg.commands;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FigurePathTest {
+
+    private static Point2D.Double[][] bezier(int segments, double offset) {
+        Point2D.Double[][] points = new Point2D.Double[4][segments];
+        for (int i = 0; i < segments; i++) {
+            double x = offset + 3 * i;
+            points[0][i] = new Point2D.Double(x, 0);
+            points[1][i] = new Point2D.Double(x + 1, 1);
+            points[2][i] = new Point2D.Double(x + 2, 1);
+            points[3][i] = new Point2D.Double(x + 3, 0);
+        }
+        return points;
+    }
+
+    private static List<String> segments(GeneralPath path) {
+        List<String> segments = new ArrayList<>();
+        double[] coords = new double[6];
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            segments.add(type + ":" + coords[0] + "," + coords[1] + "," + coords[4] + "," + coords[5]);
+        }
+        return segments;
+    }
+
+    @Test
+    void testPathOfSeveralPolyBeziers() {
+        FigurePath path = new FigurePath();
+        // more segments than the initial buffer
+        for (int i = 0; i < 10; i++) {
+            Point2D.Double[][] points = bezier(5, 15 * i);
+            path.append(points[0], points[1], points[2], points[3]);
+        }
+
+        assertEquals(50, path.getSegmentCount());
+        List<String> segments = segments(path.toPath());
+        assertEquals(52, segments.size());
+        assertEquals(PathIterator.SEG_MOVETO + ":0.0,0.0,0.0,0.0", segments.getFirst());
+        assertEquals(PathIterator.SEG_CUBICTO + ":1.0,1.0,3.0,0.0", segments.get(1));
+        assertEquals(PathIterator.SEG_CUBICTO + ":148.0,1.0,150.0,0.0", segments.get(50));
+        assertTrue(segments.getLast().startsWith(PathIterator.SEG_CLOSE + ":"));
+    }
+
+    @Test
+    void testEmptyPath() {
+        FigurePath path = new FigurePath();
+        Point2D.Double[][] points = bezier(0, 0);
+        path.append(points[0], points[1], points[2], points[3]);
+
+        assertTrue(path.isEmpty());
+        assertTrue(segments(path.toPath()).isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package com.jpprade.jcgmtosvg.commands;
+
+import net.sf.jcgm.core.PolyBezier;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PolyBezierV2Test {
+
+    private static Point2D.Double[] points(double... coords) {
+        Point2D.Double[] points = new Point2D.Double[coords.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D.Double(coords[2 * i], coords[2 * i + 1]);
+        }
+        return points;
+    }
+
+    private static List<String> segments(GeneralPath path) {
+        List<String> segments = new ArrayList<>();
+        float[] coords = new float[6];
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            StringBuilder segment = new StringBuilder().append(type);
+            for (float coord : coords) {
+                segment.append(',').append(coord);
+            }
+            segments.add(segment.toString());
+        }
+        return segments;
+    }
+
+    @Test
+    void testPathIsTheAppendedCurves() {
+        // the second curve is continuous, the third one starts elsewhere
+        Point2D.Double[] p1 = points(0, 0, 3, 0, 10, 10);
+        Point2D.Double[] p2 = points(1, 1, 4, 1, 11, 11);
+        Point2D.Double[] p3 = points(2, 1, 5, 1, 12, 11);
+        Point2D.Double[] p4 = points(3, 0, 6, 0, 13, 10);
+        PolyBezier polyBezier = mock(PolyBezier.class);
+        when(polyBezier.getP1()).thenReturn(p1);
+        when(polyBezier.getP2()).thenReturn(p2);
+        when(polyBezier.getP3()).thenReturn(p3);
+        when(polyBezier.getP4()).thenReturn(p4);
+
+        PolyBezierV2 polyBezierV2 = new PolyBezierV2(polyBezier);
+
+        GeneralPath expected = new GeneralPath();
+        for (int i = 0; i < p1.length; i++) {
+            expected.append(new CubicCurve2D.Double(p1[i].x, p1[i].y, p2[i].x, p2[i].y, p3[i].x, p3[i].y,
+                    p4[i].x, p4[i].y), true);
+        }
+        assertEquals(3, polyBezierV2.getCurveCount());
+        assertEquals(segments(expected), segments(polyBezierV2.toPath()));
+        assertArrayEquals(p1, polyBezierV2.getP1());
+        assertArrayEquals(p4, polyBezierV2.getP4());
+    }
+}
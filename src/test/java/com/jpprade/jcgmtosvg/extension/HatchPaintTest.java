@@ -0,0 +1,90 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import com.jpprade.jcgmtosvg.commands.ExtendedCommand;
+import net.sf.jcgm.core.HatchIndex.HatchType;
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HatchPaintTest {
+
+    private final ExtendedCommand command = new ExtendedCommand();
+
+    @Test
+    void testPatternsAreSharedInTheDocument() {
+        Document document = SVGDOMImplementation.getDOMImplementation()
+                .createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+        SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+        ctx.setExtensionHandler(new HatchPatternHandler());
+        SVGGraphics2DHS svgGraphics = new SVGGraphics2DHS(ctx, false);
+        svgGraphics.setHatchPatterns(true);
+
+        command.drawHatch(new Ellipse2D.Double(0, 0, 500, 500), svgGraphics, Color.BLACK, HatchType.HORIZONTAL_LINES);
+        command.drawHatch(new Rectangle2D.Double(600, 0, 100, 100), svgGraphics, Color.BLACK, HatchType.HORIZONTAL_LINES);
+        command.drawHatch(new Rectangle2D.Double(800, 0, 100, 100), svgGraphics, Color.RED, HatchType.HORIZONTAL_LINES);
+
+        Element root = svgGraphics.getRoot();
+        assertEquals(2, root.getElementsByTagName("pattern").getLength());
+        assertEquals(0, root.getElementsByTagName("line").getLength());
+        assertEquals(0, root.getElementsByTagName("clipPath").getLength());
+        assertEquals(Color.RED, svgGraphics.getColor());
+        Element pattern = (Element) root.getElementsByTagName("pattern").item(0);
+        assertEquals("userSpaceOnUse", pattern.getAttribute("patternUnits"));
+        assertEquals("1.41", pattern.getAttribute("width"));
+    }
+
+    @Test
+    void testStreamingPatternsAreWrittenOnce() {
+        StringWriter writer = new StringWriter();
+        StreamingSVGGraphics2D svgGraphics = new StreamingSVGGraphics2D(writer, 4);
+        svgGraphics.setHatchPatterns(true);
+        svgGraphics.startDocument(new Dimension(100, 100), null, null);
+
+        command.drawHatch(new Ellipse2D.Double(0, 0, 50, 50), svgGraphics, Color.BLUE, HatchType.POSITIVE_NEGATIVE_CROSSHATCH);
+        command.drawHatch(new Ellipse2D.Double(50, 50, 50, 50), svgGraphics, Color.BLUE, HatchType.POSITIVE_NEGATIVE_CROSSHATCH);
+        svgGraphics.endDocument();
+
+        String svg = writer.toString();
+        assertEquals(1, svg.split("<pattern ", -1).length - 1);
+        // the lines of the pattern and the two hatched shapes
+        assertEquals(3, svg.split("<path ", -1).length - 1);
+        assertTrue(svg.contains("fill:url(#hatch1);"));
+        assertFalse(svg.contains("clipPath"));
+    }
+
+    @Test
+    void testRasterFill() {
+        BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new HatchPaint(HatchType.HORIZONTAL_LINES, Color.BLACK, 10));
+        g.fill(new Rectangle2D.Double(0, 0, 20, 20));
+        g.dispose();
+
+        // the lines are in the middle of the tiles
+        assertNotEquals(0, image.getRGB(3, 5) >>> 24);
+        assertEquals(0, image.getRGB(3, 0) >>> 24);
+    }
+
+    @Test
+    void testEquality() {
+        assertEquals(new HatchPaint(HatchType.VERTICAL_LINES, Color.RED, 1.41),
+                new HatchPaint(HatchType.VERTICAL_LINES, new Color(255, 0, 0), 1.41));
+        assertEquals(new HatchPaint(HatchType.VERTICAL_LINES, Color.RED, 1.41).hashCode(),
+                new HatchPaint(HatchType.VERTICAL_LINES, new Color(255, 0, 0), 1.41).hashCode());
+        assertNotEquals(new HatchPaint(HatchType.VERTICAL_LINES, Color.RED, 1.41),
+                new HatchPaint(HatchType.HORIZONTAL_LINES, Color.RED, 1.41));
+        assertEquals(1.41 * 1.41, new HatchPaint(HatchType.NEGATIVE_SLOPE_LINES, Color.RED, 1.41).getTileSize());
+    }
+}
@@ -0,0 +1,72 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class HotSpotCollectorTest {
+
+    @Test
+    void testBoundsAreInDeviceSpace() {
+        HotSpotCollector collector = new HotSpotCollector();
+        collector.translate(0, 100);
+        collector.scale(2, -2);
+
+        collector.drawHotSpot(new Rectangle(10, 10, 5, 5), "rt_0", "aps<1>", "Text", "amos://link", "red");
+        collector.drawTDET(new Rectangle(0, 0, 10, 10), "aps2", "name");
+
+        List<HotSpot> hotSpots = collector.getHotSpots();
+        assertEquals(2, hotSpots.size());
+        assertEquals(new HotSpot(HotSpot.Type.HOTSPOT, "rt_0", "aps1", "Text", new Rectangle2D.Double(20, 70, 10, 10)), hotSpots.get(0));
+        assertEquals(HotSpot.Type.TDET, hotSpots.get(1).type());
+        assertEquals(new Rectangle2D.Double(0, 80, 20, 20), hotSpots.get(1).bounds());
+        assertEquals(1, collector.getHotSpotCount());
+    }
+
+    @Test
+    void testBoundsMatchTheStreamingOutput() {
+        HotSpotCollector collector = new HotSpotCollector();
+        collector.rotate(0.5);
+        Shape shape = new Line2D.Double(1, 2, 30, 40);
+
+        collector.drawHotSpot(shape, "hs", "Test Hotspot");
+
+        Rectangle2D expected = collector.getTransform().createTransformedShape(shape).getBounds2D();
+        assertEquals(expected, collector.getHotSpots().getFirst().bounds());
+    }
+
+    @Test
+    void testDrawingIsDiscardedAndChildrenShareTheHotSpots() {
+        HotSpotCollector collector = new HotSpotCollector();
+        collector.draw(new Rectangle(0, 0, 1, 1));
+        collector.drawString("text", 0f, 0f);
+
+        Graphics2D child = (Graphics2D) collector.create();
+        child.translate(5, 5);
+        ((HotSpotGraphics) child).drawHotSpot(new Rectangle(0, 0, 1, 1), "hs", "name");
+        child.dispose();
+        collector.setStroke(new Stroke());
+        collector.drawHotSpot(new Rectangle(0, 0, 1, 1), "ignored", "name");
+
+        assertEquals(1, collector.getHotSpots().size());
+        assertEquals(new Rectangle2D.Double(5, 5, 1, 1), collector.getHotSpots().getFirst().bounds());
+    }
+
+    /**
+     * A stroke that is not a {@link BasicStroke}, the other back ends fill its outline instead of a hotspot.
+     */
+    private static final class Stroke implements java.awt.Stroke {
+        @Override
+        public Shape createStrokedShape(Shape p) {
+            return new BasicStroke().createStrokedShape(p);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PathDataTest {
+
+    @Test
+    void testEncodeShortestForm() {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(10, 20);
+        path.lineTo(10.5, 20);
+        path.lineTo(10.5, 25.25);
+        path.lineTo(1000.5, 1000.25);
+        path.lineTo(1000.25, 1000.5);
+        path.lineTo(0.5, 0.5);
+        path.closePath();
+
+        assertEquals("M10 20h.5v5.25l990 975-.25.25L.5.5Z", new PathData(4).encode(path, null));
+    }
+
+    @Test
+    void testImplicitCommandsAndSeparators() {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(0, 0);
+        path.lineTo(0.5, 0.5);
+        path.lineTo(-1, 2);
+        path.curveTo(1, 1, 2, 2, 3, 3);
+        path.curveTo(4, 4, 5, 5, 6, 6);
+
+        assertEquals("M0 0 .5.5-1 2C1 1 2 2 3 3 4 4 5 5 6 6", new PathData(4).encode(path, null));
+    }
+
+    @Test
+    void testRelativeCoordinatesDoNotDrift() {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(100.04, 100.04);
+        for (int i = 1; i <= 10; i++) {
+            path.lineTo(100.04 + i * 0.33, 100.04 + i * 1.01);
+        }
+
+        List<PathData.Segment> segments = PathData.parse(new PathData(1).encode(path, null));
+
+        assertEquals(11, segments.size());
+        assertArrayEquals(new double[]{103.3, 110.1}, segments.get(10).values(), 1e-9);
+    }
+
+    @Test
+    void testParseWholeGrammar() {
+        List<PathData.Segment> segments = PathData.parse("m1,1 2 0h1v-1.5e1s1 1 2 0q1 1 2 0t2 0a1 1 0 012 0z l1-1");
+
+        assertEquals("MLLLCQQAZL", segments.stream().map(s -> String.valueOf(s.command())).reduce("", String::concat));
+        assertArrayEquals(new double[]{3, 1}, segments.get(1).values());
+        assertArrayEquals(new double[]{4, -14}, segments.get(3).values());
+        // the first control point of the smooth curve is the current point
+        assertArrayEquals(new double[]{4, -14, 5, -13, 6, -14}, segments.get(4).values());
+        // reflected control point of the smooth quadratic curve
+        assertArrayEquals(new double[]{9, -15, 10, -14}, segments.get(6).values());
+        assertArrayEquals(new double[]{1, 1, 0, 0, 1, 12, -14}, segments.get(7).values());
+        // after the close path the current point is the start of the subpath
+        assertArrayEquals(new double[]{2, 0}, segments.get(9).values());
+    }
+
+    @Test
+    void testRoundTrip() {
+        String d = "M12.5 -3.25 L15 -3.25 Q16 0 17.125 4 C1 2 3 4 5 6 Z M0 0 L-0.5 0.75";
+
+        List<PathData.Segment> segments = PathData.parse(d);
+        List<PathData.Segment> encoded = PathData.parse(new PathData(4).encode(segments));
+
+        assertEquals(segments.size(), encoded.size());
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(segments.get(i).command(), encoded.get(i).command());
+            assertArrayEquals(segments.get(i).values(), encoded.get(i).values(), 1e-9);
+        }
+    }
+
+    @Test
+    void testMalformedPathData() {
+        assertThrows(IllegalArgumentException.class, () -> PathData.parse("1 2"));
+        assertThrows(IllegalArgumentException.class, () -> PathData.parse("M1"));
+        assertThrows(IllegalArgumentException.class, () -> PathData.parse("M1 2 A1 1 0 2 0 3 3"));
+    }
+}
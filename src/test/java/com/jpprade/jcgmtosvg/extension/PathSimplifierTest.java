@@ -0,0 +1,107 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathSimplifierTest {
+
+    private static List<String> segments(Shape shape) {
+        List<String> segments = new ArrayList<>();
+        double[] coords = new double[6];
+        for (PathIterator it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(coords);
+            switch (type) {
+                case PathIterator.SEG_MOVETO -> segments.add("M" + coords[0] + "," + coords[1]);
+                case PathIterator.SEG_LINETO -> segments.add("L" + coords[0] + "," + coords[1]);
+                case PathIterator.SEG_CUBICTO -> segments.add("C" + coords[4] + "," + coords[5]);
+                case PathIterator.SEG_CLOSE -> segments.add("Z");
+                default -> segments.add("?" + type);
+            }
+        }
+        return segments;
+    }
+
+    @Test
+    void testStraightCurvesAndCollinearPointsBecomeOneLine() {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.curveTo(10, 0.1, 20, -0.1, 30, 0);
+        path.lineTo(40, 0);
+        path.lineTo(40.2, 0.2);
+        path.lineTo(50, 0);
+
+        Shape simplified = new PathSimplifier(0.5).simplify(path, new AffineTransform());
+
+        assertEquals(List.of("M0.0,0.0", "L50.0,0.0"), segments(simplified));
+    }
+
+    @Test
+    void testCurvesAndCornersAreKept() {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(10, 0);
+        path.lineTo(20, 0);
+        path.lineTo(20, 10);
+        path.curveTo(20, 20, 10, 30, 0, 30);
+        path.lineTo(0, 20);
+        path.closePath();
+        path.moveTo(100, 100);
+        path.lineTo(110, 100);
+
+        Shape simplified = new PathSimplifier(0.5).simplify(path, new AffineTransform());
+
+        assertEquals(List.of("M0.0,0.0", "L20.0,0.0", "L20.0,10.0", "C0.0,30.0", "L0.0,20.0", "Z",
+                "M100.0,100.0", "L110.0,100.0"), segments(simplified));
+    }
+
+    @Test
+    void testFlatteningAndMergingShareTheTolerance() {
+        PathSimplifier simplifier = new PathSimplifier(1);
+        // a curve flattened within the whole tolerance could then be merged with another whole tolerance
+        GeneralPath curve = new GeneralPath();
+        curve.moveTo(0, 0);
+        curve.quadTo(10, 0.8, 20, 0);
+
+        assertSame(curve, simplifier.simplify(curve, new AffineTransform()));
+
+        GeneralPath near = new GeneralPath();
+        near.moveTo(0, 0);
+        near.lineTo(10, 0.4);
+        near.lineTo(20, 0);
+        GeneralPath far = new GeneralPath();
+        far.moveTo(0, 0);
+        far.lineTo(10, 0.6);
+        far.lineTo(20, 0);
+
+        assertEquals(List.of("M0.0,0.0", "L20.0,0.0"), segments(simplifier.simplify(near, new AffineTransform())));
+        assertSame(far, simplifier.simplify(far, new AffineTransform()));
+    }
+
+    @Test
+    void testToleranceIsInDeviceUnits() {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(5, 0.1);
+        path.lineTo(10, 0);
+        PathSimplifier simplifier = new PathSimplifier(0.5);
+
+        assertSame(path, simplifier.simplify(path, AffineTransform.getScaleInstance(10, 10)));
+        assertEquals(List.of("M0.0,0.0", "L10.0,0.0"), segments(simplifier.simplify(path, new AffineTransform())));
+    }
+
+    @Test
+    void testOtherShapesAreUnchanged() {
+        Rectangle2D.Double rectangle = new Rectangle2D.Double(0, 0, 0.1, 0.1);
+        assertSame(rectangle, new PathSimplifier(1).simplify(rectangle, new AffineTransform()));
+        assertThrows(IllegalArgumentException.class, () -> new PathSimplifier(-1));
+    }
+}
@@ -0,0 +1,68 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.jupiter.api.Test;
+
+class QuantizationTest {
+
+    @Test
+    void testUniformTransforms() {
+        assertTrue(Quantization.isUniform(AffineTransform.getScaleInstance(3, -3)));
+        assertFalse(Quantization.isUniform(AffineTransform.getScaleInstance(3, 2)));
+        assertFalse(Quantization.isUniform(AffineTransform.getRotateInstance(0.1)));
+        assertFalse(Quantization.isUniform(AffineTransform.getScaleInstance(0, 0)));
+    }
+
+    @Test
+    void testRectangleKeepsItsType() {
+        AffineTransform transform = AffineTransform.getScaleInstance(10, -10);
+
+        Shape rectangle = Quantization.quantize(new Rectangle2D.Double(0.04, 0.04, 1.02, 1.02), transform);
+        Shape ellipse = Quantization.quantize(new Ellipse2D.Double(0.04, 0.04, 1.02, 1.02), transform);
+
+        assertEquals(new Rectangle2D.Double(0, -11, 11, 11), rectangle);
+        assertEquals(new Rectangle2D.Double(0, -11, 11, 11), ellipse.getBounds2D());
+        assertInstanceOf(Ellipse2D.class, ellipse);
+    }
+
+    @Test
+    void testPathCoordinatesAreRounded() {
+        GeneralPath path = new GeneralPath(PathIterator.WIND_EVEN_ODD);
+        path.moveTo(0.12, 0.34);
+        path.curveTo(1.01, 0.56, 2.049, 0.78, 3.09, 0.9);
+        path.closePath();
+
+        Shape quantized = Quantization.quantize(path, AffineTransform.getScaleInstance(10, 10));
+
+        PathIterator it = quantized.getPathIterator(null);
+        assertEquals(PathIterator.WIND_EVEN_ODD, it.getWindingRule());
+        double[] c = new double[6];
+        assertEquals(PathIterator.SEG_MOVETO, it.currentSegment(c));
+        assertArrayEquals(new double[]{1, 3}, new double[]{c[0], c[1]});
+        it.next();
+        assertEquals(PathIterator.SEG_CUBICTO, it.currentSegment(c));
+        assertArrayEquals(new double[]{10, 6, 20, 8, 31, 9}, c);
+        it.next();
+        assertEquals(PathIterator.SEG_CLOSE, it.currentSegment(c));
+    }
+
+    @Test
+    void testStrokeIsScaled() {
+        BasicStroke stroke = Quantization.scale(new BasicStroke(0.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL,
+                10f, new float[]{1f, 2f}, 0.5f), 10);
+
+        assertEquals(5f, stroke.getLineWidth());
+        assertArrayEquals(new float[]{10f, 20f}, stroke.getDashArray());
+        assertEquals(5f, stroke.getDashPhase());
+        assertEquals(BasicStroke.CAP_ROUND, stroke.getEndCap());
+    }
+}
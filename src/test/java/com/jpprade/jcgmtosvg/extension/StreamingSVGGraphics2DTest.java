@@ -0,0 +1,174 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+class StreamingSVGGraphics2DTest {
+
+    private StringWriter writer;
+    private StreamingSVGGraphics2D svgGraphics;
+
+    @BeforeEach
+    void setUp() {
+        writer = new StringWriter();
+        svgGraphics = new StreamingSVGGraphics2D(writer, 4);
+        svgGraphics.startDocument(new Dimension(200, 100), ".hotspot {}", "function clickHS(id){}");
+    }
+
+    private Document parse() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(writer.toString())));
+    }
+
+    @Test
+    void testDocumentIsWellFormed() throws Exception {
+        svgGraphics.scale(2, -2);
+        svgGraphics.setColor(Color.RED);
+        svgGraphics.draw(new Line2D.Double(0, 0, 10, 10));
+        svgGraphics.setClip(new Rectangle(0, 0, 5, 5));
+        svgGraphics.fill(new Rectangle(1, 1, 2, 2));
+        svgGraphics.drawString("a < b & c", 1f, 1f);
+        svgGraphics.endDocument();
+
+        Document doc = parse();
+        Element root = doc.getDocumentElement();
+        assertEquals("svg", root.getTagName());
+        assertEquals("200", root.getAttribute("width"));
+        assertEquals(1, doc.getElementsByTagName("clipPath").getLength());
+        assertEquals("a < b & c", doc.getElementsByTagName("text").item(0).getTextContent());
+        assertEquals("matrix(2,0,0,-2,0,0)", ((Element) doc.getElementsByTagName("line").item(0).getParentNode()).getAttribute("transform"));
+    }
+
+    @Test
+    void testDrawHotSpot() throws Exception {
+        svgGraphics.drawHotSpot(new Rectangle(10, 10, 50, 50), "hotspot1", "aps1", "Test Hotspot", null, "red");
+        svgGraphics.endDocument();
+        assertEquals(1, svgGraphics.getHotSpotCount());
+
+        Element hotspot = (Element) parse().getElementsByTagName("rect").item(0);
+        assertEquals("hotspot1", hotspot.getAttribute("id"));
+        assertEquals("aps1", hotspot.getAttribute("apsid"));
+        assertEquals("hotspot", hotspot.getAttribute("class"));
+        assertTrue(hotspot.getAttribute("style").contains("fill:red"));
+    }
+
+    @Test
+    void testDrawTDET() throws Exception {
+        svgGraphics.drawTDET(new Rectangle(10, 10, 50, 50), "aps3", "Test TDET");
+        svgGraphics.endDocument();
+
+        Element tdet = (Element) parse().getElementsByTagName("rect").item(0);
+        assertEquals("Test TDET", tdet.getAttribute("apsname"));
+        assertEquals("tdet", tdet.getAttribute("class"));
+    }
+
+    @Test
+    void testRecordHotSpots() {
+        List<HotSpot> hotSpots = new ArrayList<>();
+        svgGraphics.recordHotSpots(hotSpots);
+        svgGraphics.scale(2, 2);
+
+        svgGraphics.drawHotSpot(new Rectangle(10, 10, 50, 50), "hotspot1", "aps1", "Test Hotspot", null, "red");
+        svgGraphics.drawTDET(new Rectangle(0, 0, 5, 5), "aps3", "Test TDET");
+        svgGraphics.endDocument();
+
+        assertEquals(List.of(
+                new HotSpot(HotSpot.Type.HOTSPOT, "hotspot1", "aps1", "Test Hotspot", new Rectangle2D.Double(20, 20, 100, 100)),
+                new HotSpot(HotSpot.Type.TDET, "", "aps3", "Test TDET", new Rectangle2D.Double(0, 0, 10, 10))), hotSpots);
+    }
+
+    @Test
+    void testStyleClasses() throws Exception {
+        svgGraphics.setStyleClasses(new StyleClasses());
+        svgGraphics.setColor(Color.RED);
+        svgGraphics.draw(new Line2D.Double(0, 0, 10, 10));
+        svgGraphics.setColor(Color.BLUE);
+        svgGraphics.draw(new Line2D.Double(0, 0, 10, 10));
+        svgGraphics.setColor(Color.RED);
+        svgGraphics.draw(new Line2D.Double(0, 0, 10, 10));
+        svgGraphics.drawHotSpot(new Rectangle(10, 10, 50, 50), "hotspot1", "Test Hotspot");
+        svgGraphics.endDocument();
+
+        Document doc = parse();
+        assertEquals(2, doc.getElementsByTagName("style").getLength());
+        String css = doc.getElementsByTagName("style").item(1).getTextContent();
+        assertTrue(css.startsWith(".s0 {fill:rgb(255,0,0); stroke:rgb(255,0,0);"), css);
+        assertEquals("s0", ((Element) doc.getElementsByTagName("line").item(0).getParentNode()).getAttribute("class"));
+        assertEquals("s0", ((Element) doc.getElementsByTagName("line").item(2).getParentNode()).getAttribute("class"));
+        assertEquals("s1", ((Element) doc.getElementsByTagName("line").item(0)).getAttribute("class"));
+        Element hotspot = (Element) doc.getElementsByTagName("rect").item(0);
+        assertEquals("hotspot", hotspot.getAttribute("class"));
+        assertFalse(hotspot.getAttribute("style").isEmpty());
+    }
+
+    @Test
+    void testPathSimplifier() throws Exception {
+        svgGraphics.setPathSimplifier(new PathSimplifier(0.5));
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.curveTo(10, 0.1, 20, 0.1, 30, 0);
+        path.lineTo(60, 0);
+
+        svgGraphics.draw(path);
+        svgGraphics.endDocument();
+
+        assertEquals("M0 0 L60 0", ((Element) parse().getElementsByTagName("path").item(0)).getAttribute("d"));
+    }
+
+    @Test
+    void testCompactPathData() throws Exception {
+        svgGraphics.setCompactPathData(true);
+        GeneralPath path = new GeneralPath();
+        path.moveTo(10, 20);
+        path.lineTo(10.5, 20);
+        path.lineTo(10.5, 25.25);
+        path.closePath();
+
+        svgGraphics.fill(path);
+        svgGraphics.endDocument();
+
+        assertEquals("M10 20h.5v5.25Z", ((Element) parse().getElementsByTagName("path").item(0)).getAttribute("d"));
+    }
+
+    @Test
+    void testQuantizedCoordinates() throws Exception {
+        writer.getBuffer().setLength(0);
+        svgGraphics.startDocument(new Dimension(200, 100), new Dimension(2000, 1000), null, null);
+        svgGraphics.setQuantizedCoordinates(true);
+        svgGraphics.scale(10, -10);
+        svgGraphics.setStroke(new BasicStroke(0.25f));
+        svgGraphics.draw(new Line2D.Double(0.04, 0, 1.26, 1));
+        svgGraphics.shear(0.5, 0);
+        svgGraphics.draw(new Line2D.Double(0.04, 0, 1.26, 1));
+        svgGraphics.endDocument();
+
+        Document doc = parse();
+        assertEquals("0 0 2000 1000", doc.getDocumentElement().getAttribute("viewBox"));
+        Element quantized = (Element) doc.getElementsByTagName("line").item(0);
+        assertEquals("13", quantized.getAttribute("x2"));
+        assertEquals("-10", quantized.getAttribute("y2"));
+        assertEquals("", ((Element) quantized.getParentNode()).getAttribute("transform"));
+        assertTrue(((Element) quantized.getParentNode()).getAttribute("style").contains("stroke-width:2.5;"));
+        // a sheared shape keeps its matrix
+        assertEquals("1.26", ((Element) doc.getElementsByTagName("line").item(1)).getAttribute("x2"));
+    }
+}
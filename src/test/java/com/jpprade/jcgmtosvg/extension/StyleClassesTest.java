@@ -0,0 +1,42 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StyleClassesTest {
+
+    private static Element child(Document document, Element parent, String name, String style) {
+        Element element = document.createElementNS(SVGDOMImplementation.SVG_NAMESPACE_URI, name);
+        element.setAttributeNS(null, "style", style);
+        parent.appendChild(element);
+        return element;
+    }
+
+    @Test
+    void testDistinctStylesBecomeClasses() {
+        Document document = SVGDOMImplementation.getDOMImplementation()
+                .createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+        Element root = document.getDocumentElement();
+        Element group1 = child(document, root, "g", "fill:black; stroke:black;");
+        Element path = child(document, group1, "path", "fill:none;");
+        Element group2 = child(document, root, "g", "fill:black; stroke:black;");
+        Element hotspot = child(document, group2, "rect", "fill:red;");
+        hotspot.setAttributeNS(null, "class", "hotspot");
+
+        StyleClasses styleClasses = new StyleClasses();
+        styleClasses.apply(root);
+
+        assertEquals(2, styleClasses.size());
+        assertEquals("s0", group1.getAttribute("class"));
+        assertFalse(group1.hasAttribute("style"));
+        assertEquals("s1", path.getAttribute("class"));
+        assertEquals("s0", group2.getAttribute("class"));
+        assertEquals("hotspot", hotspot.getAttribute("class"));
+        assertEquals("fill:red;", hotspot.getAttribute("style"));
+        assertEquals(".s0 {fill:black; stroke:black;}.s1 {fill:none;}", styleClasses.getStyleSheet());
+    }
+}
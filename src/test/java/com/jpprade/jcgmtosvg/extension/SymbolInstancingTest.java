@@ -0,0 +1,84 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.util.SVGConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+class SymbolInstancingTest {
+
+    private static final String BOLT = "M10 10 L12.5 10 C13 10 14 11 14 12 L14 15.25 L10 15.25 Z";
+
+    private Document document;
+    private Element root;
+    private Element defs;
+    private Element group;
+
+    @BeforeEach
+    void setUp() {
+        document = SVGDOMImplementation.getDOMImplementation()
+                .createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+        root = document.getDocumentElement();
+        defs = (Element) root.appendChild(document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, "defs"));
+        group = (Element) root.appendChild(document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, "g"));
+    }
+
+    private Element path(String d) {
+        Element path = document.createElementNS(SVGConstants.SVG_NAMESPACE_URI, "path");
+        path.setAttributeNS(null, "d", d);
+        group.appendChild(path);
+        return path;
+    }
+
+    private SymbolInstancing instancing() {
+        SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+        ctx.setPrecision(4);
+        return new SymbolInstancing(ctx);
+    }
+
+    @Test
+    void testRepeatedPathsBecomeUses() {
+        path(BOLT);
+        path("M110 -5 L112.5 -5 C113 -5 114 -4 114 -3 L114 0.25 L110 0.25 Z");
+        Element other = path("M10 10 L12.5 10 C13 10 14 11 14 12 L14 15.25 L10 15.3 Z");
+
+        assertEquals(1, instancing().apply(root, defs));
+
+        Element symbol = (Element) defs.getElementsByTagNameNS("*", "symbol").item(0);
+        assertEquals("visible", symbol.getAttribute("overflow"));
+        List<PathData.Segment> geometry = PathData.parse(((Element) symbol.getFirstChild()).getAttribute("d"));
+        List<PathData.Segment> expected = PathData.parse("M0 0 L2.5 0 C3 0 4 1 4 2 L4 5.25 L0 5.25 Z");
+        assertEquals(expected.size(), geometry.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).command(), geometry.get(i).command());
+            assertArrayEquals(expected.get(i).values(), geometry.get(i).values(), 1e-9);
+        }
+        assertEquals(2, group.getElementsByTagNameNS("*", "use").getLength());
+        Element second = (Element) group.getChildNodes().item(1);
+        assertEquals("use", second.getLocalName());
+        assertEquals("#" + symbol.getAttribute("id"), second.getAttributeNS(SVGConstants.XLINK_NAMESPACE_URI, "href"));
+        assertEquals("110", second.getAttribute("x"));
+        assertEquals("-5", second.getAttribute("y"));
+        assertSame(other, group.getChildNodes().item(2));
+    }
+
+    @Test
+    void testHotSpotsAndSingleAndShortPathsAreKept() {
+        Element hotspot = path(BOLT);
+        hotspot.setAttributeNS(null, "id", "hotspot1");
+        Element fill = path(BOLT);
+        fill.setAttributeNS(null, "fill-rule", "evenodd");
+        path("M0 0 L1 1");
+        path("M5 5 L6 6");
+
+        assertEquals(0, instancing().apply(root, defs));
+        assertEquals(0, group.getElementsByTagNameNS("*", "use").getLength());
+    }
+}
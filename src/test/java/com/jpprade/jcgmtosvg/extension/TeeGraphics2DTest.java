@@ -0,0 +1,72 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.StringWriter;
+
+import net.sf.jcgm.core.HatchIndex.HatchType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TeeGraphics2DTest {
+
+    private StringWriter writer;
+    private StreamingSVGGraphics2D svgGraphics;
+    private BufferedImage image;
+    private TeeGraphics2D teeGraphics;
+
+    @BeforeEach
+    void setUp() {
+        writer = new StringWriter();
+        svgGraphics = new StreamingSVGGraphics2D(writer, 4);
+        svgGraphics.startDocument(new Dimension(200, 100), "", null);
+        image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D raster = image.createGraphics();
+        raster.setBackground(Color.WHITE);
+        raster.clearRect(0, 0, 20, 10);
+        // the thumbnail is ten times smaller than the canvas
+        raster.scale(0.1, 0.1);
+        teeGraphics = new TeeGraphics2D(svgGraphics, raster);
+    }
+
+    @Test
+    void testElementsArePaintedOnBothTargets() {
+        teeGraphics.setColor(Color.RED);
+        teeGraphics.translate(100, 0);
+        teeGraphics.fill(new Rectangle(0, 0, 100, 100));
+        svgGraphics.endDocument();
+
+        assertTrue(writer.toString().contains("<rect"), writer.toString());
+        assertEquals(Color.WHITE.getRGB(), image.getRGB(5, 5));
+        assertEquals(Color.RED.getRGB(), image.getRGB(15, 5));
+    }
+
+    @Test
+    void testHatchesKeepTheColourOfTheContext() {
+        svgGraphics.setHatchPatterns(true);
+        teeGraphics.setColor(new Color(255, 0, 0, 128));
+        teeGraphics.setPaint(new HatchPaint(HatchType.HORIZONTAL_LINES, Color.BLUE, 10));
+        teeGraphics.fill(new Rectangle(10, 10, 20, 20));
+        svgGraphics.endDocument();
+
+        String svg = writer.toString();
+        assertTrue(svg.contains("fill:url(#"), svg);
+        assertTrue(svg.contains("stroke:rgb(255,0,0)"), svg);
+        assertTrue(svg.contains("fill-opacity:0.5"), svg);
+    }
+
+    @Test
+    void testHotSpotsAreOnlyDrawnOnThePrimaryTarget() {
+        teeGraphics.drawHotSpot(new Rectangle(0, 0, 200, 100), "hs1", "12");
+        svgGraphics.endDocument();
+
+        assertEquals(1, teeGraphics.getHotSpotCount());
+        assertTrue(writer.toString().contains("hs1"));
+        assertEquals(Color.WHITE.getRGB(), image.getRGB(10, 5));
+    }
+}
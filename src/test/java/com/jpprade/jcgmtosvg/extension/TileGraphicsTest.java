@@ -0,0 +1,111 @@
+package com.jpprade.jcgmtosvg.extension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jcgm.core.HatchIndex.HatchType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TileGraphicsTest {
+
+    private Map<String, StringWriter> writers;
+    private TileGraphics tileGraphics;
+
+    @BeforeEach
+    void setUp() {
+        writers = new HashMap<>();
+        // a 200x200 canvas in 2x2 tiles of 100 canvas px written at 50 px
+        tileGraphics = new TileGraphics(50, 100, 2, 2, (column, row) -> {
+            StringWriter writer = new StringWriter();
+            writers.put(column + "_" + row, writer);
+            StreamingSVGGraphics2D tile = new StreamingSVGGraphics2D(writer, 4);
+            tile.startDocument(new Dimension(50, 50), "", null);
+            return tile;
+        });
+    }
+
+    @Test
+    void testShapesAreOnlySentToTheTilesTheyIntersect() {
+        tileGraphics.setColor(Color.RED);
+        tileGraphics.fill(new Rectangle(10, 10, 20, 20));
+        assertEquals(List.of("0_0"), List.copyOf(writers.keySet()));
+
+        tileGraphics.fill(new Rectangle(90, 150, 20, 20));
+        assertEquals(3, writers.size());
+        assertTrue(writers.containsKey("0_1"));
+        assertTrue(writers.containsKey("1_1"));
+        assertFalse(writers.containsKey("1_0"));
+    }
+
+    @Test
+    void testStrokeWidthIsPartOfTheBounds() {
+        tileGraphics.setStroke(new BasicStroke(10, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND));
+        tileGraphics.draw(new Line2D.Double(10, 97, 50, 97));
+
+        assertTrue(writers.containsKey("0_0"));
+        assertTrue(writers.containsKey("0_1"));
+    }
+
+    @Test
+    void testTileTransformMovesTheTileToTheOrigin() {
+        tileGraphics.translate(10, 0);
+        tileGraphics.fill(new Rectangle(100, 100, 20, 20));
+
+        StringWriter writer = writers.get("1_1");
+        assertNotNull(writer);
+        assertEquals(1, writers.size());
+        assertTrue(writer.toString().contains("matrix(0.5,0,0,0.5,-45,-50)"), writer.toString());
+    }
+
+    @Test
+    void testSmallShapesAreDropped() {
+        tileGraphics.setMinimumSize(1);
+        tileGraphics.fill(new Rectangle2D.Double(10, 10, 0.5, 0.5));
+        assertTrue(writers.isEmpty());
+
+        tileGraphics.fill(new Rectangle2D.Double(10, 10, 2, 2));
+        assertEquals(1, writers.size());
+    }
+
+    @Test
+    void testHatchesKeepTheColourOfTheContext() {
+        tileGraphics.setHatchPatterns(true);
+        tileGraphics.setColor(new Color(255, 0, 0, 128));
+        tileGraphics.setPaint(new HatchPaint(HatchType.HORIZONTAL_LINES, Color.BLUE, 10));
+        tileGraphics.fill(new Rectangle(10, 10, 20, 20));
+
+        String tile = writers.get("0_0").toString();
+        assertTrue(tile.contains("fill:url(#"), tile);
+        assertTrue(tile.contains("stroke:rgb(255,0,0)"), tile);
+        assertTrue(tile.contains("fill-opacity:0.5"), tile);
+    }
+
+    @Test
+    void testHotSpotsGoToTheOverlay() {
+        StringWriter overlayWriter = new StringWriter();
+        StreamingSVGGraphics2D overlay = new StreamingSVGGraphics2D(overlayWriter, 4);
+        overlay.startDocument(new Dimension(200, 200), "", null);
+        List<HotSpot> hotSpots = new ArrayList<>();
+        tileGraphics.setOverlay(overlay);
+        tileGraphics.recordHotSpots(hotSpots);
+
+        tileGraphics.drawHotSpot(new Rectangle(10, 10, 20, 20), "hs1", "12");
+
+        assertTrue(writers.isEmpty());
+        assertEquals(1, tileGraphics.getHotSpotCount());
+        assertEquals(1, hotSpots.size());
+        assertTrue(overlayWriter.toString().contains("hs1"));
+    }
+}